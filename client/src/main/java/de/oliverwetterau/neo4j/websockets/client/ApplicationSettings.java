@@ -8,6 +8,40 @@ public class ApplicationSettings {
     private static String dataPath = "/ws/data";
     private static String[] serverURIs = new String[0];
     private static boolean binaryCommunication = true;
+    private static String zone = "";
+    private static int zoneSpilloverLoad = 8;
+    private static double routingLoadFactor = 0.25;
+    private static int partitionsPerServer = 4;
+    private static double circuitBreakerFailureRate = 0.5;
+    private static double circuitBreakerSlowCallRate = 0.5;
+    private static long circuitBreakerSlowCallMillis = 5000;
+    private static int circuitBreakerWindowSize = 20;
+    private static int circuitBreakerMinimumCalls = 10;
+    private static long circuitBreakerBackoffMillis = 5000;
+    private static long circuitBreakerMaxBackoffMillis = 60000;
+    private static int circuitBreakerTrialCalls = 3;
+    private static long answerTimeoutMillis = 600000;
+    private static long readAnswerTimeoutMillis = 30000;
+    private static long writeAnswerTimeoutMillis = 30000;
+    private static int readRetries = 2;
+    private static int writeRetries = 0;
+    private static long retryBackoffMillis = 50;
+    private static long retryMaxBackoffMillis = 1000;
+    private static double retryBudgetRatio = 0.1;
+    private static int retryBudgetMaximum = 10;
+    private static int warmUpConnections = 2;
+    private static int writeBufferSize = 0;
+    private static long writeBufferTimeoutMillis = 30000;
+    private static int resultCacheSize = 0;
+    private static long resultCacheStaleMillis = 0;
+    private static int entityCacheSize = 0;
+    private static int conditionalReadCacheSize = 0;
+    private static int writeBehindQueueSize = 10000;
+    private static int writeBehindBatchSize = 500;
+    private static long writeBehindFlushMillis = 100;
+    private static long writeBehindBlockMillis = 1000;
+    private static long writeCombineWindowMillis = 50;
+    private static long entityCacheTtlMillis = 60000;
 
     public static String managementPath() {
         return managementPath;
@@ -41,6 +75,431 @@ public class ApplicationSettings {
         binaryCommunication = binary;
     }
 
+    /**
+     * Gets the zone (e.g. rack or data center) this client is running in.
+     * @return zone of this client, empty if zones are not used
+     */
+    public static String zone() {
+        return zone;
+    }
+
+    /**
+     * Sets the zone (e.g. rack or data center) this client is running in. Read messages will preferably be sent to
+     * servers of the same zone. The zone of a server can be appended to its uri ("ws://192.168.1.10:8765#rack1") or
+     * will be taken from the server's registration reply.
+     * @param zone zone of this client
+     */
+    public static void setZone(String zone) {
+        ApplicationSettings.zone = (zone == null) ? "" : zone;
+    }
+
+    /**
+     * Gets the number of concurrent requests on every server of the own zone after which read messages spill over to
+     * servers of other zones.
+     * @return number of concurrent requests per server
+     */
+    public static int zoneSpilloverLoad() {
+        return zoneSpilloverLoad;
+    }
+
+    public static void setZoneSpilloverLoad(int load) {
+        zoneSpilloverLoad = load;
+    }
+
+    /**
+     * Gets the load above the average load of all read servers a server may take for read messages with a routing key
+     * before these messages are passed on to the next server on the hash ring.
+     * @return allowed load above the average (e.g. 0.25 for 25%)
+     */
+    public static double routingLoadFactor() {
+        return routingLoadFactor;
+    }
+
+    public static void setRoutingLoadFactor(double loadFactor) {
+        routingLoadFactor = loadFactor;
+    }
+
+    /**
+     * Gets the maximum number of partitions of a partitioned read that are sent to a single read server at once.
+     * @return number of concurrent partitions per server
+     */
+    public static int partitionsPerServer() {
+        return partitionsPerServer;
+    }
+
+    public static void setPartitionsPerServer(int partitions) {
+        partitionsPerServer = partitions;
+    }
+
+    /**
+     * Gets the rate of failed requests within the window of the last requests above which a server is ejected.
+     * @return failure rate (e.g. 0.5 for 50%)
+     */
+    public static double circuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public static void setCircuitBreakerFailureRate(double rate) {
+        circuitBreakerFailureRate = rate;
+    }
+
+    /**
+     * Gets the rate of slow requests within the window of the last requests above which a server is ejected.
+     * @return slow call rate (e.g. 0.5 for 50%)
+     */
+    public static double circuitBreakerSlowCallRate() {
+        return circuitBreakerSlowCallRate;
+    }
+
+    public static void setCircuitBreakerSlowCallRate(double rate) {
+        circuitBreakerSlowCallRate = rate;
+    }
+
+    /**
+     * Gets the duration after which a request is regarded as slow.
+     * @return duration in milliseconds
+     */
+    public static long circuitBreakerSlowCallMillis() {
+        return circuitBreakerSlowCallMillis;
+    }
+
+    public static void setCircuitBreakerSlowCallMillis(long millis) {
+        circuitBreakerSlowCallMillis = millis;
+    }
+
+    /**
+     * Gets the number of last requests per server used to calculate the failure and slow call rates.
+     * @return number of requests
+     */
+    public static int circuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public static void setCircuitBreakerWindowSize(int size) {
+        circuitBreakerWindowSize = size;
+    }
+
+    /**
+     * Gets the number of requests a server has to answer before it may be ejected.
+     * @return number of requests
+     */
+    public static int circuitBreakerMinimumCalls() {
+        return circuitBreakerMinimumCalls;
+    }
+
+    public static void setCircuitBreakerMinimumCalls(int calls) {
+        circuitBreakerMinimumCalls = calls;
+    }
+
+    /**
+     * Gets the period an ejected server is not used for the first time. It is doubled every time the trial requests
+     * fail.
+     * @return backoff period in milliseconds
+     */
+    public static long circuitBreakerBackoffMillis() {
+        return circuitBreakerBackoffMillis;
+    }
+
+    public static void setCircuitBreakerBackoffMillis(long millis) {
+        circuitBreakerBackoffMillis = millis;
+    }
+
+    /**
+     * Gets the maximum period an ejected server is not used.
+     * @return maximum backoff period in milliseconds
+     */
+    public static long circuitBreakerMaxBackoffMillis() {
+        return circuitBreakerMaxBackoffMillis;
+    }
+
+    public static void setCircuitBreakerMaxBackoffMillis(long millis) {
+        circuitBreakerMaxBackoffMillis = millis;
+    }
+
+    /**
+     * Gets the number of trial requests that have to succeed before an ejected server is used again.
+     * @return number of trial requests
+     */
+    public static int circuitBreakerTrialCalls() {
+        return circuitBreakerTrialCalls;
+    }
+
+    public static void setCircuitBreakerTrialCalls(int calls) {
+        circuitBreakerTrialCalls = calls;
+    }
+
+    /**
+     * Gets the time a write message (or any message sent to a given server) waits for the reply of the server.
+     * @return timeout in milliseconds
+     */
+    public static long answerTimeoutMillis() {
+        return answerTimeoutMillis;
+    }
+
+    public static void setAnswerTimeoutMillis(long millis) {
+        answerTimeoutMillis = millis;
+    }
+
+    /**
+     * Gets the time a read message waits for the reply of a read server. A read message that is not answered in time
+     * counts as failure of the server's circuit breaker and is retried on another read server.
+     * @return timeout in milliseconds
+     */
+    public static long readAnswerTimeoutMillis() {
+        return readAnswerTimeoutMillis;
+    }
+
+    public static void setReadAnswerTimeoutMillis(long millis) {
+        readAnswerTimeoutMillis = millis;
+    }
+
+    /**
+     * Gets the time a write message with an idempotency key (see {@link #writeRetries()}) waits for the reply of the
+     * master before it is sent again. Can be overridden per message with
+     * DatabaseService.writeDataWithResult(service, method, parameters, locale, answerTimeoutMillis).
+     * @return timeout in milliseconds
+     */
+    public static long writeAnswerTimeoutMillis() {
+        return writeAnswerTimeoutMillis;
+    }
+
+    public static void setWriteAnswerTimeoutMillis(long millis) {
+        writeAnswerTimeoutMillis = millis;
+    }
+
+    /**
+     * Gets the maximum number of retries of a failed read message on another read server.
+     * @return number of retries (0 to disable retries)
+     */
+    public static int readRetries() {
+        return readRetries;
+    }
+
+    public static void setReadRetries(int retries) {
+        readRetries = retries;
+    }
+
+    /**
+     * Gets the maximum number of retries of an unanswered write message. Retried write messages carry an idempotency
+     * key, so the master does not execute them twice (as long as the master has not changed in the meantime).
+     * @return number of retries (0 to disable retries)
+     */
+    public static int writeRetries() {
+        return writeRetries;
+    }
+
+    public static void setWriteRetries(int retries) {
+        writeRetries = retries;
+    }
+
+    /**
+     * Gets the backoff before the first retry. It is doubled for every further retry and a random part of it is used
+     * (jitter), so retries of many clients do not hit the cluster at the same time.
+     * @return backoff in milliseconds
+     */
+    public static long retryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public static void setRetryBackoffMillis(long millis) {
+        retryBackoffMillis = millis;
+    }
+
+    /**
+     * Gets the maximum backoff before a retry.
+     * @return maximum backoff in milliseconds
+     */
+    public static long retryMaxBackoffMillis() {
+        return retryMaxBackoffMillis;
+    }
+
+    public static void setRetryMaxBackoffMillis(long millis) {
+        retryMaxBackoffMillis = millis;
+    }
+
+    /**
+     * Gets the share of all read messages that may be retried.
+     * @return retry budget (e.g. 0.1 for 10%)
+     */
+    public static double retryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public static void setRetryBudgetRatio(double ratio) {
+        retryBudgetRatio = ratio;
+    }
+
+    /**
+     * Gets the maximum number of retries that may be saved up by successful read messages.
+     * @return maximum number of retries
+     */
+    public static int retryBudgetMaximum() {
+        return retryBudgetMaximum;
+    }
+
+    public static void setRetryBudgetMaximum(int maximum) {
+        retryBudgetMaximum = maximum;
+    }
+
+    /**
+     * Gets the number of data connections opened to a newly discovered server before it is used.
+     * @return number of data connections
+     */
+    public static int warmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public static void setWarmUpConnections(int connections) {
+        warmUpConnections = connections;
+    }
+
+    /**
+     * Gets the maximum number of write messages that are held while no master / write server is available. Writes are
+     * not buffered by default.
+     * @return number of write messages (0 to disable buffering)
+     */
+    public static int writeBufferSize() {
+        return writeBufferSize;
+    }
+
+    public static void setWriteBufferSize(int size) {
+        writeBufferSize = size;
+    }
+
+    /**
+     * Gets the time a buffered write message waits for a new master / write server before it fails.
+     * @return timeout in milliseconds
+     */
+    public static long writeBufferTimeoutMillis() {
+        return writeBufferTimeoutMillis;
+    }
+
+    public static void setWriteBufferTimeoutMillis(long millis) {
+        writeBufferTimeoutMillis = millis;
+    }
+
+    /**
+     * Gets the maximum number of results of read only methods cached on the client. Results are not cached by default.
+     * @return number of cached results (0 to disable the cache)
+     */
+    public static int resultCacheSize() {
+        return resultCacheSize;
+    }
+
+    public static void setResultCacheSize(int size) {
+        resultCacheSize = size;
+    }
+
+    /**
+     * Gets the time an expired result may still be returned from the cache while a fresh result is read in the
+     * background.
+     * @return time in milliseconds (0 to always wait for a fresh result)
+     */
+    public static long resultCacheStaleMillis() {
+        return resultCacheStaleMillis;
+    }
+
+    public static void setResultCacheStaleMillis(long millis) {
+        resultCacheStaleMillis = millis;
+    }
+
+    /**
+     * Gets the maximum number of nodes and of relationships cached on the client. Entities are not cached by default.
+     * @return number of cached nodes and of cached relationships (0 to disable the cache)
+     */
+    public static int entityCacheSize() {
+        return entityCacheSize;
+    }
+
+    public static void setEntityCacheSize(int size) {
+        entityCacheSize = size;
+    }
+
+    /**
+     * Gets the time after which a cached node or relationship expires even if the master has not reported a change.
+     * @return time to live in milliseconds
+     */
+    public static long entityCacheTtlMillis() {
+        return entityCacheTtlMillis;
+    }
+
+    public static void setEntityCacheTtlMillis(long millis) {
+        entityCacheTtlMillis = millis;
+    }
+
+    /**
+     * Gets the maximum number of read results kept to send conditional reads. Conditional reads are disabled by
+     * default.
+     * @return number of kept results (0 to disable conditional reads)
+     */
+    public static int conditionalReadCacheSize() {
+        return conditionalReadCacheSize;
+    }
+
+    public static void setConditionalReadCacheSize(int size) {
+        conditionalReadCacheSize = size;
+    }
+
+    /**
+     * Gets the maximum number of writes waiting in the write behind queue.
+     * @return capacity of the write behind queue
+     */
+    public static int writeBehindQueueSize() {
+        return writeBehindQueueSize;
+    }
+
+    public static void setWriteBehindQueueSize(int size) {
+        writeBehindQueueSize = size;
+    }
+
+    /**
+     * Gets the maximum number of writes sent to the master in one batch (and executed in one transaction).
+     * @return maximum batch size
+     */
+    public static int writeBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public static void setWriteBehindBatchSize(int size) {
+        writeBehindBatchSize = size;
+    }
+
+    /**
+     * Gets the maximum time the first write of a batch waits for further writes before the batch is sent.
+     * @return time in milliseconds
+     */
+    public static long writeBehindFlushMillis() {
+        return writeBehindFlushMillis;
+    }
+
+    public static void setWriteBehindFlushMillis(long millis) {
+        writeBehindFlushMillis = millis;
+    }
+
+    /**
+     * Gets the maximum time a write waits for free space in a full write behind queue before it is rejected.
+     * @return time in milliseconds (0 to reject writes immediately)
+     */
+    public static long writeBehindBlockMillis() {
+        return writeBehindBlockMillis;
+    }
+
+    public static void setWriteBehindBlockMillis(long millis) {
+        writeBehindBlockMillis = millis;
+    }
+
+    /**
+     * Gets the time window in which property updates of nodes are combined before they are sent.
+     * @return time in milliseconds
+     */
+    public static long writeCombineWindowMillis() {
+        return writeCombineWindowMillis;
+    }
+
+    public static void setWriteCombineWindowMillis(long millis) {
+        writeCombineWindowMillis = millis;
+    }
+
     private static String sanitizePath(String path) {
         StringBuilder pathBuilder = new StringBuilder();
 
@@ -3,12 +3,26 @@ package de.oliverwetterau.neo4j.websockets.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.oliverwetterau.neo4j.websockets.client.cache.ConditionalReadCache;
+import de.oliverwetterau.neo4j.websockets.client.cache.EntityCache;
+import de.oliverwetterau.neo4j.websockets.client.cache.RequestKey;
+import de.oliverwetterau.neo4j.websockets.client.cache.ResultCache;
+import de.oliverwetterau.neo4j.websockets.client.cache.SingleFlight;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodDescription;
+import de.oliverwetterau.neo4j.websockets.client.helpers.ResultMerger;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
 import de.oliverwetterau.neo4j.websockets.client.server.Database;
+import de.oliverwetterau.neo4j.websockets.client.server.Server;
+import de.oliverwetterau.neo4j.websockets.client.write.WriteAcknowledgement;
+import de.oliverwetterau.neo4j.websockets.client.write.WriteBehindQueue;
+import de.oliverwetterau.neo4j.websockets.client.write.WriteCombiner;
 import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
 import de.oliverwetterau.neo4j.websockets.core.data.Error;
 import de.oliverwetterau.neo4j.websockets.core.data.Result;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
 import de.oliverwetterau.neo4j.websockets.core.helpers.ExceptionConverter;
+import de.oliverwetterau.neo4j.websockets.core.helpers.Hashing;
 import de.oliverwetterau.neo4j.websockets.core.helpers.ThreadBinary;
 import de.oliverwetterau.neo4j.websockets.core.i18n.ThreadLocale;
 import org.slf4j.Logger;
@@ -16,7 +30,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides methods to send read and write messages to a Neo4j cluster.
@@ -28,24 +56,150 @@ import java.util.Locale;
 public class DatabaseService {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseService.class);
 
+    /** name of the parameter the maximum number of data elements is passed with to partitions of a partitioned read */
+    public static final String LIMIT_PARAMETER = "limit";
+    /** name of the parameter the id of a node or relationship is passed with to methods reading single entities */
+    public static final String ID_PARAMETER = "id";
+
     /** wrapper for json object mapper */
     protected final JsonObjectMapper jsonObjectMapper;
     /** manager for database connections */
     protected final Database database;
     /** language settings */
     protected final ThreadLocale threadLocale;
+    /** message methods published by the servers */
+    protected final MethodCatalog methodCatalog;
+    /** cached results of read only methods */
+    protected final ResultCache resultCache;
+    /** cached nodes and relationships */
+    protected final EntityCache entityCache;
+    /** reads in progress shared by identical concurrent reads */
+    protected final SingleFlight singleFlight;
+    /** last results of read messages used for conditional reads */
+    protected final ConditionalReadCache conditionalReadCache;
+    /** threads used to send the partitions of partitioned reads in parallel */
+    protected final ExecutorService partitionExecutor;
+    /** writes sent to the master in batches */
+    protected final WriteBehindQueue writeBehindQueue;
+    /** property updates combined within a short time window */
+    protected final WriteCombiner writeCombiner;
 
     /**
      * Constructor
      * @param database database connections manager
      * @param jsonObjectMapper wrapper for json object mapper
      * @param threadLocale language settings
+     * @param methodCatalog message methods published by the servers
+     * @param resultCache cached results of read only methods
+     * @param entityCache cached nodes and relationships
+     * @param singleFlight reads in progress shared by identical concurrent reads
+     * @param conditionalReadCache last results of read messages used for conditional reads
+     * @param databaseMetrics counters and latencies of the cluster communication
      */
     @Autowired
-    public DatabaseService(Database database, JsonObjectMapper jsonObjectMapper, ThreadLocale threadLocale) {
+    public DatabaseService(Database database, JsonObjectMapper jsonObjectMapper, ThreadLocale threadLocale,
+                           MethodCatalog methodCatalog, ResultCache resultCache, EntityCache entityCache,
+                           SingleFlight singleFlight, ConditionalReadCache conditionalReadCache,
+                           DatabaseMetrics databaseMetrics)
+    {
         this.database = database;
         this.jsonObjectMapper = jsonObjectMapper;
         this.threadLocale = threadLocale;
+        this.methodCatalog = methodCatalog;
+        this.resultCache = resultCache;
+        this.entityCache = entityCache;
+        this.singleFlight = singleFlight;
+        this.conditionalReadCache = conditionalReadCache;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.partitionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "neo4j-websockets-partition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writeBehindQueue = new WriteBehindQueue(jsonObjectMapper, databaseMetrics,
+                batchMessage -> writeDataWithResult(batchMessage, jsonObjectMapper.getObjectMapper()));
+        this.writeCombiner = new WriteCombiner(jsonObjectMapper, databaseMetrics, this::writeDataWithResult);
+    }
+
+    /**
+     * Sends all combined property updates and all writes still waiting in the write behind queue. Called on shutdown
+     * of the application context.
+     */
+    @PreDestroy
+    public void close() {
+        writeCombiner.close();
+        writeBehindQueue.close();
+    }
+
+    /**
+     * Calls a method of a service on the Neo4j cluster. Read only methods are sent to a read server, all other methods
+     * to the master / write server (as declared in the method catalog published by the servers).
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @return data server's answer
+     */
+    public Result<JsonNode> call(final String service, final String method) {
+        return call(service, method, null, threadLocale.getLocale());
+    }
+
+    /**
+     * Calls a method of a service on the Neo4j cluster. Read only methods are sent to a read server, all other methods
+     * to the master / write server (as declared in the method catalog published by the servers).
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method
+     * @return data server's answer
+     */
+    public Result<JsonNode> call(final String service, final String method, final JsonNode parameters) {
+        return call(service, method, parameters, threadLocale.getLocale());
+    }
+
+    /**
+     * Calls a method of a service on the Neo4j cluster. Read only methods are sent to a read server, all other methods
+     * to the master / write server (as declared in the method catalog published by the servers). Calls of unknown
+     * methods are rejected without sending them.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method (may be null)
+     * @param locale the language settings to be used by the method
+     * @return data server's answer
+     */
+    public Result<JsonNode> call(final String service, final String method, final JsonNode parameters, final Locale locale) {
+        MethodDescription description = methodCatalog.getMethod(service, method);
+
+        if (description == null) {
+            return new Result<>(unknownMethodError(service, method));
+        }
+
+        if (description.isReadOnly()) {
+            return (parameters == null)
+                    ? getData(service, method, locale)
+                    : getData(service, method, parameters, locale);
+        }
+
+        return (parameters == null)
+                ? writeDataWithResult(service, method, locale)
+                : writeDataWithResult(service, method, parameters, locale);
+    }
+
+    /**
+     * Creates the error for a call of a method that is not in the method catalog.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @return unknown service or unknown method error
+     */
+    protected Error unknownMethodError(final String service, final String method) {
+        if (!methodCatalog.hasService(service)) {
+            return new Error(Error.UNKNOWN_SERVICE, service);
+        }
+
+        ObjectNode detailsNode = jsonObjectMapper.getObjectMapper().createObjectNode();
+        detailsNode.put("Service", service);
+        detailsNode.put("Command", method);
+
+        return new Error(Error.UNKNOWN_SERVICE_METHOD, "unknown command '" + method + "' for service '" + service + "'",
+                detailsNode);
     }
 
     /**
@@ -85,7 +239,12 @@ public class DatabaseService {
         objectNode.put(CommandParameters.METHOD, method);
         objectNode.put(CommandParameters.LANGUAGE, locale.getLanguage());
 
-        return getData(objectNode, objectMapper);
+        RequestKey requestKey = new RequestKey(service, method, null, locale);
+        MethodDescription description = methodCatalog.getMethod(service, method);
+
+        return resultCache.get(requestKey, description,
+                () -> singleFlight.get(requestKey, description,
+                        () -> getData(objectNode, objectMapper, null, null, requestKey)));
     }
 
     /**
@@ -97,6 +256,37 @@ public class DatabaseService {
      * @return data server's answer
      */
     public Result<JsonNode> getData(final String service, final String method, final JsonNode parameters, final Locale locale) {
+        return getDataByKey(service, method, parameters, locale, null);
+    }
+
+    /**
+     * Sends a read message to a Neo4j cluster and returns the data server's answer. All messages with the same routing
+     * key will be sent to the same read server, so every read server only needs to cache its share of the data.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method
+     * @param routingKey key (e.g. customer or subgraph id) that defines which read server to use
+     * @return data server's answer
+     */
+    public Result<JsonNode> getDataByKey(final String service, final String method, final JsonNode parameters,
+                                         final String routingKey)
+    {
+        return getDataByKey(service, method, parameters, threadLocale.getLocale(), routingKey);
+    }
+
+    /**
+     * Sends a read message to a Neo4j cluster and returns the data server's answer. All messages with the same routing
+     * key will be sent to the same read server, so every read server only needs to cache its share of the data.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method
+     * @param locale the language settings to be used by the method
+     * @param routingKey key (e.g. customer or subgraph id) that defines which read server to use, null for round robin
+     * @return data server's answer
+     */
+    public Result<JsonNode> getDataByKey(final String service, final String method, final JsonNode parameters,
+                                         final Locale locale, final String routingKey)
+    {
         ObjectMapper objectMapper = jsonObjectMapper.getObjectMapper();
 
         ObjectNode objectNode = objectMapper.createObjectNode();
@@ -106,28 +296,212 @@ public class DatabaseService {
         objectNode.put(CommandParameters.LANGUAGE, locale.getLanguage());
         objectNode.set(CommandParameters.PARAMETERS, parameters);
 
-        return getData(objectNode, objectMapper);
+        RequestKey requestKey = new RequestKey(service, method, parameters, locale);
+        MethodDescription description = methodCatalog.getMethod(service, method);
+
+        return resultCache.get(requestKey, description,
+                () -> singleFlight.get(requestKey, description,
+                        () -> getData(objectNode, objectMapper, routingKey, null, requestKey)));
+    }
+
+    /**
+     * Gets a node by id. If the entity cache is enabled, the node is read only if it is not cached yet. The method is
+     * called with parameter {@link #ID_PARAMETER} and must return the node as single data element. All methods used
+     * to read nodes must return the same json representation, as nodes are cached by id only.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param id node id
+     * @return data server's answer or cached node
+     */
+    public Result<JsonNode> getNode(final String service, final String method, final long id) {
+        return entityCache.getNode(id, () -> getData(service, method, idParameter(id)));
+    }
+
+    /**
+     * Gets a relationship by id. If the entity cache is enabled, the relationship is read only if it is not cached
+     * yet. The method is called with parameter {@link #ID_PARAMETER} and must return the relationship as single data
+     * element. All methods used to read relationships must return the same json representation, as relationships are
+     * cached by id only.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param id relationship id
+     * @return data server's answer or cached relationship
+     */
+    public Result<JsonNode> getRelationship(final String service, final String method, final long id) {
+        return entityCache.getRelationship(id, () -> getData(service, method, idParameter(id)));
+    }
+
+    protected JsonNode idParameter(final long id) {
+        ObjectNode parameters = jsonObjectMapper.getObjectMapper().createObjectNode();
+        parameters.put(ID_PARAMETER, id);
+
+        return parameters;
+    }
+
+    /**
+     * Sends the partitions of a read message to all read servers in parallel and merges the data server's answers in
+     * the order of the partitions.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param partitions parameters of every partition (e.g. id ranges)
+     * @return merged data server's answers
+     */
+    public Result<JsonNode> getPartitionedData(final String service, final String method, final List<JsonNode> partitions) {
+        return getPartitionedData(service, method, partitions, null, 0, threadLocale.getLocale());
+    }
+
+    /**
+     * Sends the partitions of a read message to all read servers in parallel and merges the data server's answers.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param partitions parameters of every partition (e.g. id ranges)
+     * @param order sort order of the data every partition returns, null to merge in the order of the partitions
+     * @param limit maximum number of data elements (0 for no limit)
+     * @return merged data server's answers
+     */
+    public Result<JsonNode> getPartitionedData(final String service, final String method, final List<JsonNode> partitions,
+                                               final Comparator<JsonNode> order, final int limit)
+    {
+        return getPartitionedData(service, method, partitions, order, limit, threadLocale.getLocale());
+    }
+
+    /**
+     * Sends the partitions of a read message to all read servers in parallel and merges the data server's answers.
+     * Every read server works on up to {@link ApplicationSettings#partitionsPerServer()} partitions at once. A
+     * partition whose server is ejected or does not answer is retried on another read server like any read message.
+     * If a limit is given, it is passed to every partition as parameter {@link #LIMIT_PARAMETER}, so no partition needs
+     * to return more data than the merged result can take. If an order is given, every partition must return its data
+     * sorted by this order and the partitions will be merged into one sorted list.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param partitions parameters of every partition (e.g. id ranges)
+     * @param order sort order of the data every partition returns, null to merge in the order of the partitions
+     * @param limit maximum number of data elements (0 for no limit)
+     * @param locale the language settings to be used by the method
+     * @return merged data server's answers including the errors of all failed partitions
+     */
+    @SuppressWarnings("unchecked")
+    public Result<JsonNode> getPartitionedData(final String service, final String method, final List<JsonNode> partitions,
+                                               final Comparator<JsonNode> order, final int limit, final Locale locale)
+    {
+        final ObjectMapper objectMapper = jsonObjectMapper.getObjectMapper();
+        final Server[] servers = database.getReadServers();
+        final Result<JsonNode>[] results = new Result[partitions.size()];
+        List<Future<?>> workers = new ArrayList<>();
+
+        if (servers.length == 0) {
+            return new Result<>(new Error(Error.NO_DATABASE_REPLY, "no read server available"));
+        }
+
+        // assign partitions to servers
+        List<Queue<Integer>> serverPartitions = new ArrayList<>();
+
+        for (int i = 0; i < servers.length; i++) {
+            serverPartitions.add(new ConcurrentLinkedQueue<>());
+        }
+        for (int i = 0; i < partitions.size(); i++) {
+            serverPartitions.get(i % servers.length).add(i);
+        }
+
+        for (int s = 0; s < servers.length; s++) {
+            final Server server = servers[s];
+            final Queue<Integer> partitionIndexes = serverPartitions.get(s);
+            int serverWorkers = Math.min(ApplicationSettings.partitionsPerServer(), partitionIndexes.size());
+
+            for (int w = 0; w < serverWorkers; w++) {
+                workers.add(partitionExecutor.submit(() -> {
+                    Integer i;
+
+                    while ((i = partitionIndexes.poll()) != null) {
+                        ObjectNode objectNode = objectMapper.createObjectNode();
+
+                        objectNode.put(CommandParameters.SERVICE, service);
+                        objectNode.put(CommandParameters.METHOD, method);
+                        objectNode.put(CommandParameters.LANGUAGE, locale.getLanguage());
+                        objectNode.set(CommandParameters.PARAMETERS, limitPartition(partitions.get(i), limit));
+
+                        results[i] = getData(objectNode, objectMapper, null, server, null);
+                    }
+                }));
+            }
+        }
+
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            }
+            catch (InterruptedException | ExecutionException e) {
+                logger.error("[getPartitionedData] partition could not be read", e);
+                return new Result<>(new Error(Error.NO_DATABASE_REPLY, ExceptionConverter.toString(e)));
+            }
+        }
+
+        if (order == null) {
+            return ResultMerger.concatenate(Arrays.asList(results), limit);
+        }
+
+        return ResultMerger.mergeSorted(Arrays.asList(results), order, limit);
+    }
+
+    /**
+     * Adds the limit to the parameters of a partition.
+     * @param parameters parameters of the partition
+     * @param limit maximum number of data elements (0 for no limit)
+     * @return parameters including the limit
+     */
+    protected JsonNode limitPartition(final JsonNode parameters, final int limit) {
+        if (limit <= 0 || (parameters != null && !parameters.isObject())) {
+            return parameters;
+        }
+
+        ObjectNode limitedParameters = (parameters == null)
+                ? jsonObjectMapper.getObjectMapper().createObjectNode()
+                : ((ObjectNode) parameters).deepCopy();
+        limitedParameters.put(LIMIT_PARAMETER, limit);
+
+        return limitedParameters;
     }
 
     /**
      * Sends a read message to a Neo4j cluster and returns the data server's answer.
      * @param message service name, method name, language settingsa and method parameters in one json node
      * @param objectMapper json object mapper used for serialization
+     * @param routingKey key that defines which read server to use, null for round robin
+     * @param server read server to use first, null to choose one by routing key
+     * @param requestKey identifies the message for conditional reads, null for an unconditional read
      * @return data server's answer
      */
     @SuppressWarnings("unchecked")
-    private Result<JsonNode> getData(final ObjectNode message, final ObjectMapper objectMapper) {
+    private Result<JsonNode> getData(final ObjectNode message, final ObjectMapper objectMapper, final String routingKey,
+                                     final Server server, final RequestKey requestKey)
+    {
         Result<JsonNode> result;
         byte[] binaryResultMessage = null;
         String textResultMessage = null;
 
+        boolean isConditional = requestKey != null && conditionalReadCache.isEnabled();
+        ConditionalReadCache.Entry lastResult = isConditional ? conditionalReadCache.get(requestKey) : null;
+
+        if (lastResult != null) {
+            message.put(CommandParameters.HASH, lastResult.getHash());
+        }
+        else {
+            message.remove(CommandParameters.HASH);
+        }
+
         // convert json into map
         try {
             if (ThreadBinary.isBinary()) {
-                binaryResultMessage = database.sendReadMessage(objectMapper.writeValueAsBytes(message));
+                byte[] binaryMessage = objectMapper.writeValueAsBytes(message);
+                binaryResultMessage = (server == null)
+                        ? database.sendReadMessage(binaryMessage, routingKey)
+                        : database.sendReadMessageWithRetries(binaryMessage, server);
             }
             else {
-                textResultMessage = database.sendReadMessage(objectMapper.writeValueAsString(message));
+                String textMessage = objectMapper.writeValueAsString(message);
+                textResultMessage = (server == null)
+                        ? database.sendReadMessage(textMessage, routingKey)
+                        : database.sendReadMessageWithRetries(textMessage, server);
             }
         }
         catch (Exception e) {
@@ -148,6 +522,23 @@ public class DatabaseService {
             return new Result<>(new Error(Error.MESSAGE_TO_JSON_FAILURE, ExceptionConverter.toString(e)));
         }
 
+        if (isConditional && conditionalReadCache.isNotModified(result)) {
+            if (lastResult != null) {
+                return lastResult.getResult();
+            }
+
+            // there is no cached result the reply could refer to (e.g. it has been evicted), so it is read again
+            logger.debug("[getData] 'not modified' reply without cached result, reading '{}' again", requestKey);
+            message.remove(CommandParameters.HASH);
+            return getData(message, objectMapper, routingKey, server, null);
+        }
+
+        if (isConditional) {
+            conditionalReadCache.put(requestKey, ThreadBinary.isBinary()
+                    ? Hashing.hash(binaryResultMessage)
+                    : Hashing.hash(textResultMessage), result);
+        }
+
         return result;
     }
 
@@ -212,31 +603,203 @@ public class DatabaseService {
         return writeDataWithResult(objectNode, objectMapper);
     }
 
+    /**
+     * Sends a write message with an idempotency key to a Neo4j cluster and returns the data server's answer. If the
+     * master does not answer within the timeout, the message is sent again up to
+     * {@link ApplicationSettings#writeRetries()} times, the master answers a message it has already executed with the
+     * remembered result.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method
+     * @param locale the language settings to be used by the method
+     * @param answerTimeoutMillis time every attempt waits for the answer of the master
+     * @return data server's answer
+     */
+    public Result<JsonNode> writeDataWithResult(final String service, final String method, final JsonNode parameters,
+                                                final Locale locale, final long answerTimeoutMillis)
+    {
+        ObjectMapper objectMapper = jsonObjectMapper.getObjectMapper();
+
+        ObjectNode objectNode = objectMapper.createObjectNode();
+
+        objectNode.put(CommandParameters.SERVICE, service);
+        objectNode.put(CommandParameters.METHOD, method);
+        objectNode.put(CommandParameters.LANGUAGE, locale.getLanguage());
+        objectNode.set(CommandParameters.PARAMETERS, parameters);
+        objectNode.put(CommandParameters.IDEMPOTENCY_KEY, UUID.randomUUID().toString());
+
+        return writeDataWithResult(objectNode, objectMapper, answerTimeoutMillis);
+    }
+
+    /**
+     * Queues a write message that is sent to the master later on together with other queued writes. All writes of a
+     * batch are executed in a single transaction.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method
+     * @param acknowledgement defines whether the returned future is completed once the message has been queued or
+     *                        once its batch has been committed
+     * @return future completed with an empty result or with the data server's answer to the batch
+     */
+    public CompletableFuture<Result<JsonNode>> writeDataBehind(final String service, final String method,
+                                                               final JsonNode parameters,
+                                                               final WriteAcknowledgement acknowledgement)
+    {
+        return writeDataBehind(service, method, parameters, threadLocale.getLocale(), acknowledgement);
+    }
+
+    /**
+     * Queues a write message that is sent to the master later on together with other queued writes. All writes of a
+     * batch are executed in a single transaction.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param parameters a json node containing parameters for the method
+     * @param locale the language settings to be used by the method
+     * @param acknowledgement defines whether the returned future is completed once the message has been queued or
+     *                        once its batch has been committed
+     * @return future completed with an empty result or with the data server's answer to the batch
+     */
+    public CompletableFuture<Result<JsonNode>> writeDataBehind(final String service, final String method,
+                                                               final JsonNode parameters, final Locale locale,
+                                                               final WriteAcknowledgement acknowledgement)
+    {
+        ObjectNode objectNode = jsonObjectMapper.getObjectMapper().createObjectNode();
+
+        objectNode.put(CommandParameters.SERVICE, service);
+        objectNode.put(CommandParameters.METHOD, method);
+        objectNode.put(CommandParameters.LANGUAGE, locale.getLanguage());
+        objectNode.set(CommandParameters.PARAMETERS, parameters);
+
+        return writeBehindQueue.enqueue(objectNode, acknowledgement);
+    }
+
+    /**
+     * Increments a property of a node. Increments of the same property within a short time window are summed up and
+     * sent together with all other updates for the same method in one write message (see {@link WriteCombiner}).
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used, which should apply the updates with CombinedUpdateHandler
+     * @param nodeId node id
+     * @param property name of the property
+     * @param delta increment
+     * @return future completed with the data server's answer once the combined updates have been sent
+     */
+    public CompletableFuture<Result<JsonNode>> incrementProperty(final String service, final String method,
+                                                                 final long nodeId, final String property,
+                                                                 final long delta)
+    {
+        return writeCombiner.increment(service, method, nodeId, property, delta);
+    }
+
+    /**
+     * Increments a property of a node. Increments of the same property within a short time window are summed up and
+     * sent together with all other updates for the same method in one write message (see {@link WriteCombiner}).
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used, which should apply the updates with CombinedUpdateHandler
+     * @param nodeId node id
+     * @param property name of the property
+     * @param delta increment
+     * @return future completed with the data server's answer once the combined updates have been sent
+     */
+    public CompletableFuture<Result<JsonNode>> incrementProperty(final String service, final String method,
+                                                                 final long nodeId, final String property,
+                                                                 final double delta)
+    {
+        return writeCombiner.increment(service, method, nodeId, property, delta);
+    }
+
+    /**
+     * Sets a property of a node. Only the last value set within a short time window is sent, together with all other
+     * updates for the same method in one write message (see {@link WriteCombiner}).
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used, which should apply the updates with CombinedUpdateHandler
+     * @param nodeId node id
+     * @param property name of the property
+     * @param value value of the property (null removes the property)
+     * @return future completed with the data server's answer once the combined updates have been sent
+     */
+    public CompletableFuture<Result<JsonNode>> setProperty(final String service, final String method,
+                                                           final long nodeId, final String property,
+                                                           final JsonNode value)
+    {
+        return writeCombiner.set(service, method, nodeId, property, value);
+    }
+
+    /**
+     * Removes all cached results the method of a write message is declared to outdate. This is done even if the write
+     * message failed, as it might have been executed nevertheless.
+     * @param message service name, method name, language settings and method parameters in one json node (or a batch
+     *                of such messages)
+     */
+    protected void invalidateCachedResults(final ObjectNode message) {
+        if (message.has(CommandParameters.BATCH)) {
+            for (JsonNode batchMessage : message.get(CommandParameters.BATCH)) {
+                invalidateCachedResults((ObjectNode) batchMessage);
+            }
+            return;
+        }
+
+        MethodDescription description = methodCatalog.getMethod(
+                message.path(CommandParameters.SERVICE).asText(), message.path(CommandParameters.METHOD).asText());
+
+        if (description != null) {
+            resultCache.invalidate(description.getInvalidates());
+        }
+    }
+
     /**
      * Sends a write message to a Neo4j cluster and returns the data server's answer.
      * @param message service name, method name, language settingsa and method parameters in one json node
      * @param objectMapper json object mapper used for serialization
      * @return data server's answer
      */
-    @SuppressWarnings("unchecked")
     protected Result<JsonNode> writeDataWithResult(final ObjectNode message, final ObjectMapper objectMapper) {
+        if (ApplicationSettings.writeRetries() > 0 && !message.has(CommandParameters.IDEMPOTENCY_KEY)) {
+            message.put(CommandParameters.IDEMPOTENCY_KEY, UUID.randomUUID().toString());
+        }
+
+        return writeDataWithResult(message, objectMapper, ApplicationSettings.writeAnswerTimeoutMillis());
+    }
+
+    /**
+     * Sends a write message to a Neo4j cluster and returns the data server's answer. Messages with an idempotency key
+     * are sent again if the master does not answer within the timeout.
+     * @param message service name, method name, language settingsa and method parameters in one json node
+     * @param objectMapper json object mapper used for serialization
+     * @param answerTimeoutMillis time every attempt of a message with an idempotency key waits for the answer
+     * @return data server's answer
+     */
+    @SuppressWarnings("unchecked")
+    protected Result<JsonNode> writeDataWithResult(final ObjectNode message, final ObjectMapper objectMapper,
+                                                   final long answerTimeoutMillis)
+    {
         Result<JsonNode> result;
         byte[] binaryResultMessage = null;
         String textResultMessage = null;
 
+        boolean isRetryable = message.has(CommandParameters.IDEMPOTENCY_KEY);
+
         // convert json into map
         try {
             if (ThreadBinary.isBinary()) {
-                binaryResultMessage = database.sendWriteMessageWithResult(objectMapper.writeValueAsBytes(message));
+                byte[] binaryMessage = objectMapper.writeValueAsBytes(message);
+                binaryResultMessage = isRetryable
+                        ? database.sendIdempotentWriteMessageWithResult(binaryMessage, answerTimeoutMillis)
+                        : database.sendWriteMessageWithResult(binaryMessage);
             }
             else {
-                textResultMessage = database.sendWriteMessageWithResult(objectMapper.writeValueAsString(message));
+                String textMessage = objectMapper.writeValueAsString(message);
+                textResultMessage = isRetryable
+                        ? database.sendIdempotentWriteMessageWithResult(textMessage, answerTimeoutMillis)
+                        : database.sendWriteMessageWithResult(textMessage);
             }
         }
         catch (Exception e) {
             logger.error("[writeDataWithResult] could not read from database", e);
             return new Result<>(new Error(Error.NO_DATABASE_REPLY, ExceptionConverter.toString(e)));
         }
+        finally {
+            invalidateCachedResults(message);
+        }
 
         try {
             if (ThreadBinary.isBinary()) {
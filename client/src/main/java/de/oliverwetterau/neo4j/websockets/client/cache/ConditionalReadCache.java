@@ -0,0 +1,134 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded LRU cache of the last result of read messages and the hash of its encoded form. The hash is sent with
+ * the next identical read message and the server replies with a short "not modified" result if the encoded result
+ * has not changed, so the cached result can be used instead of transferring and parsing the same result again.
+ * Cached results are shared by all callers and must not be modified.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+@Service
+public class ConditionalReadCache {
+    /**
+     * The last result of a read message.
+     */
+    public static class Entry {
+        protected final long hash;
+        protected final Result<JsonNode> result;
+
+        protected Entry(final long hash, final Result<JsonNode> result) {
+            this.hash = hash;
+            this.result = result;
+        }
+
+        /**
+         * Gets the hash of the encoded result.
+         * @return hash
+         */
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * Gets the result.
+         * @return result
+         */
+        public Result<JsonNode> getResult() {
+            return result;
+        }
+    }
+
+    /** counter of "not modified" replies */
+    protected final DatabaseMetrics databaseMetrics;
+    /** last results in access order (least recently used first) */
+    protected final LinkedHashMap<RequestKey,Entry> entries = new LinkedHashMap<RequestKey,Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<RequestKey,Entry> eldest) {
+            return size() > ApplicationSettings.conditionalReadCacheSize();
+        }
+    };
+
+    /**
+     * Constructor
+     * @param databaseMetrics counter of "not modified" replies
+     */
+    @Autowired
+    public ConditionalReadCache(final DatabaseMetrics databaseMetrics) {
+        this.databaseMetrics = databaseMetrics;
+    }
+
+    /**
+     * Gets whether the cache is enabled.
+     * @return is the cache enabled?
+     */
+    public boolean isEnabled() {
+        return ApplicationSettings.conditionalReadCacheSize() > 0;
+    }
+
+    /**
+     * Gets the last result of a read message.
+     * @param key identifies the read message
+     * @return last result or null if there is none
+     */
+    public synchronized Entry get(final RequestKey key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Stores the last result of a read message, if it has no errors.
+     * @param key identifies the read message
+     * @param hash hash of the encoded result
+     * @param result result
+     */
+    public synchronized void put(final RequestKey key, final long hash, final Result<JsonNode> result) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        if (result.isOk()) {
+            entries.put(key, new Entry(hash, result));
+        }
+        else {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Gets whether a server replied that the result has not been modified.
+     * @param result server's reply
+     * @return has the result not been modified?
+     */
+    public boolean isNotModified(final Result<JsonNode> result) {
+        if (result.isOk() || result.getErrors().size() != 1) {
+            return false;
+        }
+
+        boolean isNotModified = Error.NOT_MODIFIED.equals(result.getErrors().get(0).getType());
+
+        if (isNotModified) {
+            databaseMetrics.increment(DatabaseMetrics.READS_NOT_MODIFIED);
+        }
+
+        return isNotModified;
+    }
+
+    /**
+     * Removes all results.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
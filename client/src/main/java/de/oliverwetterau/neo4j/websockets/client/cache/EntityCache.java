@@ -0,0 +1,172 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.client.server.Database;
+import de.oliverwetterau.neo4j.websockets.client.server.InvalidationListener;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded LRU cache of nodes and relationships by id (near cache). Entities are removed as soon as the master
+ * reports them as changed and the whole cache is cleared whenever invalidations might have been missed. Additionally
+ * every entity expires after {@link ApplicationSettings#entityCacheTtlMillis()}, e.g. to cover read servers lagging
+ * behind the master. Cached entities are shared by all callers and must not be modified.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+@Service
+public class EntityCache implements InvalidationListener {
+    /**
+     * A single cached entity.
+     */
+    protected static class Entry {
+        protected final JsonNode entity;
+        /** time the entity expires (System.nanoTime()) */
+        protected final long expiresAt;
+
+        protected Entry(final JsonNode entity, final long expiresAt) {
+            this.entity = entity;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Cached entities of one type in access order (least recently used first).
+     */
+    protected class EntityMap extends LinkedHashMap<Long,Entry> {
+        protected EntityMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long,Entry> eldest) {
+            return size() > ApplicationSettings.entityCacheSize();
+        }
+    }
+
+    /** counters of cache hits and misses */
+    protected final DatabaseMetrics databaseMetrics;
+    /** cached nodes by id */
+    protected final EntityMap nodes = new EntityMap();
+    /** cached relationships by id */
+    protected final EntityMap relationships = new EntityMap();
+    /** number of invalidations, used to discard entities that were read while an invalidation took place */
+    protected long invalidations = 0;
+
+    /**
+     * Constructor
+     * @param database database connections manager, informs this cache about changed entities
+     * @param databaseMetrics counters of cache hits and misses
+     */
+    @Autowired
+    public EntityCache(final Database database, final DatabaseMetrics databaseMetrics) {
+        this.databaseMetrics = databaseMetrics;
+
+        database.addInvalidationListener(this);
+    }
+
+    /**
+     * Gets whether the cache is enabled.
+     * @return is the cache enabled?
+     */
+    public boolean isEnabled() {
+        return ApplicationSettings.entityCacheSize() > 0;
+    }
+
+    /**
+     * Gets a node from the cache or reads it, if it is not cached.
+     * @param id node id
+     * @param reader reads the node from the cluster (the node must be the single data element of the result)
+     * @return result containing the node
+     */
+    public Result<JsonNode> getNode(final long id, final Supplier<Result<JsonNode>> reader) {
+        return get(nodes, id, reader);
+    }
+
+    /**
+     * Gets a relationship from the cache or reads it, if it is not cached.
+     * @param id relationship id
+     * @param reader reads the relationship from the cluster (the relationship must be the single data element of the
+     *               result)
+     * @return result containing the relationship
+     */
+    public Result<JsonNode> getRelationship(final long id, final Supplier<Result<JsonNode>> reader) {
+        return get(relationships, id, reader);
+    }
+
+    protected Result<JsonNode> get(final EntityMap entities, final long id, final Supplier<Result<JsonNode>> reader) {
+        if (!isEnabled()) {
+            return reader.get();
+        }
+
+        long version;
+
+        synchronized (this) {
+            Entry entry = entities.get(id);
+            version = invalidations;
+
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt < 0) {
+                    databaseMetrics.increment(DatabaseMetrics.ENTITY_CACHE_HITS);
+                    return new Result<>(entry.entity);
+                }
+                entities.remove(id);
+            }
+        }
+
+        databaseMetrics.increment(DatabaseMetrics.ENTITY_CACHE_MISSES);
+
+        Result<JsonNode> result = reader.get();
+
+        if (result.isOk() && result.getData().size() == 1) {
+            synchronized (this) {
+                if (version == invalidations) {
+                    long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ApplicationSettings.entityCacheTtlMillis());
+                    entities.put(id, new Entry(result.getSingleData(), expiresAt));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes changed nodes and relationships.
+     * @param nodeIds ids of changed nodes
+     * @param relationshipIds ids of changed relationships
+     */
+    @Override
+    public synchronized void onEntitiesInvalidated(final long[] nodeIds, final long[] relationshipIds) {
+        invalidations++;
+
+        for (long id : nodeIds) {
+            if (nodes.remove(id) != null) {
+                databaseMetrics.increment(DatabaseMetrics.ENTITY_CACHE_INVALIDATIONS);
+            }
+        }
+        for (long id : relationshipIds) {
+            if (relationships.remove(id) != null) {
+                databaseMetrics.increment(DatabaseMetrics.ENTITY_CACHE_INVALIDATIONS);
+            }
+        }
+    }
+
+    /**
+     * Removes all nodes and relationships, as invalidations might have been missed.
+     */
+    @Override
+    public synchronized void onInvalidationsLost() {
+        invalidations++;
+        nodes.clear();
+        relationships.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Identifies a read message by service, method, parameters and language settings.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class RequestKey {
+    /** name of the service */
+    protected final String service;
+    /** name of the method */
+    protected final String method;
+    /** parameters of the method (may be null) */
+    protected final JsonNode parameters;
+    /** language settings used by the method */
+    protected final Locale locale;
+    /** hash code computed once, as parameters may be large */
+    protected final int hashCode;
+
+    /**
+     * Constructor
+     * @param service name of the service
+     * @param method name of the method
+     * @param parameters parameters of the method (may be null), must not be modified afterwards
+     * @param locale language settings used by the method
+     */
+    public RequestKey(final String service, final String method, final JsonNode parameters, final Locale locale) {
+        this.service = service;
+        this.method = method;
+        this.parameters = parameters;
+        this.locale = locale;
+        this.hashCode = Objects.hash(service, method, parameters, locale);
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public JsonNode getParameters() {
+        return parameters;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RequestKey)) return false;
+
+        RequestKey other = (RequestKey) o;
+
+        return hashCode == other.hashCode
+                && service.equals(other.service)
+                && method.equals(other.method)
+                && Objects.equals(locale, other.locale)
+                && Objects.equals(parameters, other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return service + "/" + method + " " + parameters + " (" + locale + ")";
+    }
+}
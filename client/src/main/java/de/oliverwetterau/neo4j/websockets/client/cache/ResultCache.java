@@ -0,0 +1,271 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodDescription;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded LRU cache of results of read only methods. Results expire after the time to live of their method.
+ * Expired results may still be returned for a while (stale-while-revalidate) while a fresh result is read in the
+ * background. Writes through this client invalidate the cached results of the groups they are declared to outdate.
+ * Cached results are shared by all callers and must not be modified.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+@Service
+public class ResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    /**
+     * A single cached result.
+     */
+    protected static class Entry {
+        protected final Result<JsonNode> result;
+        /** invalidation groups the result belongs to */
+        protected final Set<String> groups;
+        /** time the result expires (System.nanoTime()) */
+        protected final long expiresAt;
+        /** time until which the expired result may still be returned (System.nanoTime()) */
+        protected final long staleUntil;
+        /** is a fresh result being read in the background? */
+        protected boolean isRefreshing = false;
+
+        protected Entry(final Result<JsonNode> result, final Set<String> groups, final long expiresAt, final long staleUntil) {
+            this.result = result;
+            this.groups = groups;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+    }
+
+    /** counters of cache hits and misses */
+    protected final DatabaseMetrics databaseMetrics;
+    /** cached results in access order (least recently used first) */
+    protected final LinkedHashMap<RequestKey,Entry> entries = new LinkedHashMap<RequestKey,Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<RequestKey,Entry> eldest) {
+            if (size() <= ApplicationSettings.resultCacheSize()) {
+                return false;
+            }
+
+            unindex(eldest.getKey(), eldest.getValue());
+            databaseMetrics.increment(DatabaseMetrics.CACHE_EVICTIONS);
+            return true;
+        }
+    };
+    /** keys of all cached results by invalidation group */
+    protected final Map<String,Set<RequestKey>> groupKeys = new HashMap<>();
+    /** number of invalidations, used to discard results that were read while an invalidation took place */
+    protected long invalidations = 0;
+    /** threads used to read fresh results of expired entries in the background */
+    protected final ExecutorService refreshExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "neo4j-websockets-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor
+     * @param databaseMetrics counters of cache hits and misses
+     */
+    @Autowired
+    public ResultCache(final DatabaseMetrics databaseMetrics) {
+        this.databaseMetrics = databaseMetrics;
+    }
+
+    /**
+     * Gets whether the cache is enabled.
+     * @return is the cache enabled?
+     */
+    public boolean isEnabled() {
+        return ApplicationSettings.resultCacheSize() > 0;
+    }
+
+    /**
+     * Gets a result from the cache or reads it, if it is not cached or has expired.
+     * @param key identifies the read message
+     * @param description description of the method (defines time to live and invalidation groups)
+     * @param reader reads the result from the cluster
+     * @return cached or read result
+     */
+    public Result<JsonNode> get(final RequestKey key, final MethodDescription description, final Supplier<Result<JsonNode>> reader) {
+        if (!isEnabled() || description == null || !description.isCacheable()) {
+            return reader.get();
+        }
+
+        long now = System.nanoTime();
+        long version;
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            version = invalidations;
+
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    databaseMetrics.increment(DatabaseMetrics.CACHE_HITS);
+                    return entry.result;
+                }
+                if (now - entry.staleUntil < 0) {
+                    databaseMetrics.increment(DatabaseMetrics.CACHE_STALE_HITS);
+
+                    if (!entry.isRefreshing) {
+                        entry.isRefreshing = true;
+                        refresh(key, description, reader, entry);
+                    }
+                    return entry.result;
+                }
+
+                entries.remove(key);
+                unindex(key, entry);
+            }
+        }
+
+        databaseMetrics.increment(DatabaseMetrics.CACHE_MISSES);
+
+        Result<JsonNode> result = reader.get();
+        put(key, description, result, version);
+
+        return result;
+    }
+
+    /**
+     * Reads a fresh result of an expired entry in the background.
+     * @param key identifies the read message
+     * @param description description of the method
+     * @param reader reads the result from the cluster
+     * @param entry expired entry
+     */
+    protected void refresh(final RequestKey key, final MethodDescription description, final Supplier<Result<JsonNode>> reader,
+                           final Entry entry)
+    {
+        final long version = invalidations;
+
+        refreshExecutor.execute(() -> {
+            try {
+                put(key, description, reader.get(), version);
+            }
+            catch (RuntimeException e) {
+                logger.error("[refresh] could not refresh {}", key, e);
+            }
+            finally {
+                synchronized (this) {
+                    entry.isRefreshing = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Caches a result, unless it contains errors or an invalidation took place while it was read.
+     * @param key identifies the read message
+     * @param description description of the method
+     * @param result result to be cached
+     * @param version number of invalidations before the result was read
+     */
+    protected synchronized void put(final RequestKey key, final MethodDescription description, final Result<JsonNode> result,
+                                    final long version)
+    {
+        if (!result.isOk() || version != invalidations) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long expiresAt = now + TimeUnit.MILLISECONDS.toNanos(description.getCacheTtlMillis());
+        Entry entry = new Entry(result, description.getCacheGroups(), expiresAt,
+                expiresAt + TimeUnit.MILLISECONDS.toNanos(ApplicationSettings.resultCacheStaleMillis()));
+
+        Entry previousEntry = entries.put(key, entry);
+
+        if (previousEntry != null) {
+            unindex(key, previousEntry);
+        }
+
+        for (String group : entry.groups) {
+            Set<RequestKey> keys = groupKeys.get(group);
+
+            if (keys == null) {
+                keys = new HashSet<>();
+                groupKeys.put(group, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Removes all cached results of invalidation groups.
+     * @param groups names of invalidation groups
+     */
+    public synchronized void invalidate(final Collection<String> groups) {
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        invalidations++;
+
+        for (String group : groups) {
+            Set<RequestKey> keys = groupKeys.remove(group);
+
+            if (keys == null) {
+                continue;
+            }
+
+            for (RequestKey key : keys) {
+                Entry entry = entries.remove(key);
+
+                if (entry != null) {
+                    unindex(key, entry);
+                    databaseMetrics.increment(DatabaseMetrics.CACHE_INVALIDATIONS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+        groupKeys.clear();
+    }
+
+    /**
+     * Gets the number of cached results.
+     * @return number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    protected void unindex(final RequestKey key, final Entry entry) {
+        for (String group : entry.groups) {
+            Set<RequestKey> keys = groupKeys.get(group);
+
+            if (keys != null) {
+                keys.remove(key);
+
+                if (keys.isEmpty()) {
+                    groupKeys.remove(group);
+                }
+            }
+        }
+    }
+}
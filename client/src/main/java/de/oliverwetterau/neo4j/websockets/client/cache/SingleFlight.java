@@ -0,0 +1,84 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodDescription;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent reads: while a read is in progress, identical reads of the same method do not send
+ * a message of their own but wait for the result of the read in progress. Only methods declared to be collapsed are
+ * affected. The shared result must not be modified.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+@Service
+public class SingleFlight {
+    /** counter of collapsed reads */
+    protected final DatabaseMetrics databaseMetrics;
+    /** results of the reads in progress */
+    protected final ConcurrentMap<RequestKey,CompletableFuture<Result<JsonNode>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param databaseMetrics counter of collapsed reads
+     */
+    @Autowired
+    public SingleFlight(final DatabaseMetrics databaseMetrics) {
+        this.databaseMetrics = databaseMetrics;
+    }
+
+    /**
+     * Reads a result or waits for the result of an identical read in progress.
+     * @param key identifies the read
+     * @param description description of the method to be called (may be null)
+     * @param reader reads the result from the cluster
+     * @return the read or shared result
+     */
+    public Result<JsonNode> get(final RequestKey key, final MethodDescription description,
+                                final Supplier<Result<JsonNode>> reader)
+    {
+        if (description == null || !description.isCollapsed()) {
+            return reader.get();
+        }
+
+        CompletableFuture<Result<JsonNode>> future = new CompletableFuture<>();
+        CompletableFuture<Result<JsonNode>> existingFuture = inFlight.putIfAbsent(key, future);
+
+        if (existingFuture != null) {
+            databaseMetrics.increment(DatabaseMetrics.CALLS_COLLAPSED);
+
+            try {
+                return existingFuture.join();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            Result<JsonNode> result = reader.get();
+            future.complete(result);
+            return result;
+        }
+        catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
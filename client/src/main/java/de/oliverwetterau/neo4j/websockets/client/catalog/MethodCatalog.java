@@ -0,0 +1,221 @@
+package de.oliverwetterau.neo4j.websockets.client.catalog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.core.data.CatalogParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the descriptions of all message methods the servers have published on registration. Descriptions may be
+ * overridden on the client, e.g. for servers that do not publish a catalog.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+@Service
+public class MethodCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(MethodCatalog.class);
+
+    /** method descriptions published by the servers by service and method name */
+    protected final ConcurrentMap<String,MethodDescription> methods = new ConcurrentHashMap<>();
+    /** method descriptions set on the client by service and method name */
+    protected final ConcurrentMap<String,MethodDescription> overrides = new ConcurrentHashMap<>();
+    /** names of all services having at least one method */
+    protected final ConcurrentMap<String,Boolean> services = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the published methods by the methods of the catalogs published by the servers. Methods no server
+     * publishes anymore are removed. If no server has published a catalog, the known methods are kept.
+     * @param catalogs method attributes by method name by service name of every server (null if not published)
+     */
+    public synchronized void update(final Collection<JsonNode> catalogs) {
+        Map<String,MethodDescription> publishedMethods = new HashMap<>();
+        boolean hasCatalog = false;
+
+        for (JsonNode catalog : catalogs) {
+            if (catalog == null || !catalog.isObject()) {
+                continue;
+            }
+
+            hasCatalog = true;
+            Iterator<Map.Entry<String,JsonNode>> serviceNodes = catalog.fields();
+
+            while (serviceNodes.hasNext()) {
+                Map.Entry<String,JsonNode> serviceNode = serviceNodes.next();
+                Iterator<Map.Entry<String,JsonNode>> methodNodes = serviceNode.getValue().fields();
+
+                while (methodNodes.hasNext()) {
+                    Map.Entry<String,JsonNode> methodNode = methodNodes.next();
+
+                    JsonNode attributes = methodNode.getValue();
+
+                    publishedMethods.put(key(serviceNode.getKey(), methodNode.getKey()), new MethodDescription(
+                            serviceNode.getKey(),
+                            methodNode.getKey(),
+                            attributes.path(CatalogParameters.READ_ONLY).asBoolean(false),
+                            attributes.path(CatalogParameters.CACHE_TTL_MILLIS).asLong(0),
+                            toSet(attributes.path(CatalogParameters.CACHE_GROUPS)),
+                            toSet(attributes.path(CatalogParameters.INVALIDATES)),
+                            attributes.path(CatalogParameters.COLLAPSE).asBoolean(false)));
+                }
+            }
+        }
+
+        if (!hasCatalog) {
+            return;
+        }
+
+        methods.keySet().retainAll(publishedMethods.keySet());
+        methods.putAll(publishedMethods);
+        refreshServices();
+    }
+
+    /**
+     * Declares a method on the client, overriding the description published by the servers.
+     * @param service name of the service
+     * @param method name of the method
+     * @param readOnly does the method only read data?
+     */
+    public void setReadOnly(final String service, final String method, final boolean readOnly) {
+        MethodDescription description = getMethod(service, method);
+
+        setMethod((description == null)
+                ? new MethodDescription(service, method, readOnly)
+                : new MethodDescription(service, method, readOnly, description.getCacheTtlMillis(),
+                        description.getCacheGroups(), description.getInvalidates(), description.isCollapsed()));
+    }
+
+    /**
+     * Declares how the results of a read only method are cached on the client, overriding the description published
+     * by the servers. Only results of read only methods are cached. Unknown methods are ignored, they have to be
+     * declared by {@link #setReadOnly} first.
+     * @param service name of the service
+     * @param method name of the method
+     * @param cacheTtlMillis time to live of cached results in milliseconds (0 for no caching)
+     * @param cacheGroups invalidation groups the cached results belong to
+     */
+    public void setCaching(final String service, final String method, final long cacheTtlMillis, final String... cacheGroups) {
+        MethodDescription description = getMethod(service, method);
+
+        if (description == null) {
+            logger.warn("[setCaching] unknown method {}.{} is not cached", service, method);
+            return;
+        }
+
+        setMethod(new MethodDescription(service, method, description.isReadOnly(), cacheTtlMillis,
+                new HashSet<>(Arrays.asList(cacheGroups)), description.getInvalidates(), description.isCollapsed()));
+    }
+
+    /**
+     * Declares which cached results are outdated after a method has been called, overriding the description published
+     * by the servers.
+     * @param service name of the service
+     * @param method name of the method
+     * @param invalidates invalidation groups whose cached results are outdated
+     */
+    public void setInvalidates(final String service, final String method, final String... invalidates) {
+        MethodDescription description = getMethod(service, method);
+
+        setMethod((description == null)
+                ? new MethodDescription(service, method, false, 0, Collections.<String>emptySet(),
+                        new HashSet<>(Arrays.asList(invalidates)))
+                : new MethodDescription(service, method, description.isReadOnly(), description.getCacheTtlMillis(),
+                        description.getCacheGroups(), new HashSet<>(Arrays.asList(invalidates)), description.isCollapsed()));
+    }
+
+    /**
+     * Declares whether identical concurrent calls of a read only method share one result, overriding the description
+     * published by the servers. Only calls of read only methods are collapsed. Unknown methods are ignored, they have
+     * to be declared by {@link #setReadOnly} first.
+     * @param service name of the service
+     * @param method name of the method
+     * @param collapse may identical concurrent calls share one result?
+     */
+    public void setCollapsed(final String service, final String method, final boolean collapse) {
+        MethodDescription description = getMethod(service, method);
+
+        if (description == null) {
+            logger.warn("[setCollapsed] unknown method {}.{} is not collapsed", service, method);
+            return;
+        }
+
+        setMethod(new MethodDescription(service, method, description.isReadOnly(), description.getCacheTtlMillis(),
+                description.getCacheGroups(), description.getInvalidates(), collapse));
+    }
+
+    /**
+     * Declares a method on the client, overriding the description published by the servers.
+     * @param description method description
+     */
+    public void setMethod(final MethodDescription description) {
+        overrides.put(key(description.getService(), description.getMethod()), description);
+        services.put(description.getService(), Boolean.TRUE);
+    }
+
+    /**
+     * Gets the description of a method.
+     * @param service name of the service
+     * @param method name of the method
+     * @return method description or null if the method is unknown
+     */
+    public MethodDescription getMethod(final String service, final String method) {
+        String key = key(service, method);
+        MethodDescription description = overrides.get(key);
+
+        return (description == null) ? methods.get(key) : description;
+    }
+
+    /**
+     * Gets whether a service is known.
+     * @param service name of the service
+     * @return is the service known?
+     */
+    public boolean hasService(final String service) {
+        return services.containsKey(service);
+    }
+
+    /**
+     * Collects the names of all services having at least one published or overridden method.
+     */
+    protected void refreshServices() {
+        Set<String> serviceNames = new HashSet<>();
+
+        for (MethodDescription description : methods.values()) {
+            serviceNames.add(description.getService());
+        }
+        for (MethodDescription description : overrides.values()) {
+            serviceNames.add(description.getService());
+        }
+
+        services.keySet().retainAll(serviceNames);
+        for (String serviceName : serviceNames) {
+            services.put(serviceName, Boolean.TRUE);
+        }
+    }
+
+    protected static Set<String> toSet(final JsonNode arrayNode) {
+        Set<String> values = new HashSet<>();
+
+        for (JsonNode value : arrayNode) {
+            values.add(value.asText());
+        }
+
+        return values;
+    }
+
+    protected static String key(final String service, final String method) {
+        return service + "/" + method;
+    }
+}
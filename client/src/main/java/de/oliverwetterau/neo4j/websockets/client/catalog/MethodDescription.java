@@ -0,0 +1,138 @@
+package de.oliverwetterau.neo4j.websockets.client.catalog;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Describes a message method of a service as published by the servers in their method catalog.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class MethodDescription {
+    /** name of the service */
+    protected final String service;
+    /** name of the method */
+    protected final String method;
+    /** does the method only read data? */
+    protected final boolean readOnly;
+    /** time to live of cached results in milliseconds (0 for no caching) */
+    protected final long cacheTtlMillis;
+    /** invalidation groups the cached results of the method belong to */
+    protected final Set<String> cacheGroups;
+    /** invalidation groups whose cached results are outdated after the method has been called */
+    protected final Set<String> invalidates;
+    /** may identical concurrent calls share one result? */
+    protected final boolean collapse;
+
+    /**
+     * Constructor
+     * @param service name of the service
+     * @param method name of the method
+     * @param readOnly does the method only read data?
+     */
+    public MethodDescription(final String service, final String method, final boolean readOnly) {
+        this(service, method, readOnly, 0, Collections.<String>emptySet(), Collections.<String>emptySet());
+    }
+
+    /**
+     * Constructor
+     * @param service name of the service
+     * @param method name of the method
+     * @param readOnly does the method only read data?
+     * @param cacheTtlMillis time to live of cached results in milliseconds (0 for no caching)
+     * @param cacheGroups invalidation groups the cached results of the method belong to
+     * @param invalidates invalidation groups whose cached results are outdated after the method has been called
+     */
+    public MethodDescription(final String service, final String method, final boolean readOnly, final long cacheTtlMillis,
+                             final Set<String> cacheGroups, final Set<String> invalidates)
+    {
+        this(service, method, readOnly, cacheTtlMillis, cacheGroups, invalidates, false);
+    }
+
+    /**
+     * Constructor
+     * @param service name of the service
+     * @param method name of the method
+     * @param readOnly does the method only read data?
+     * @param cacheTtlMillis time to live of cached results in milliseconds (0 for no caching)
+     * @param cacheGroups invalidation groups the cached results of the method belong to
+     * @param invalidates invalidation groups whose cached results are outdated after the method has been called
+     * @param collapse may identical concurrent calls share one result?
+     */
+    public MethodDescription(final String service, final String method, final boolean readOnly, final long cacheTtlMillis,
+                             final Set<String> cacheGroups, final Set<String> invalidates, final boolean collapse)
+    {
+        this.service = service;
+        this.method = method;
+        this.readOnly = readOnly;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.cacheGroups = Collections.unmodifiableSet(cacheGroups);
+        this.invalidates = Collections.unmodifiableSet(invalidates);
+        this.collapse = collapse;
+    }
+
+    /**
+     * Gets the name of the service.
+     * @return name of the service
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Gets the name of the method.
+     * @return name of the method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets whether the method only reads data and may therefore be sent to read servers.
+     * @return does the method only read data?
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Gets how long results of the method may be cached.
+     * @return time to live in milliseconds (0 for no caching)
+     */
+    public long getCacheTtlMillis() {
+        return cacheTtlMillis;
+    }
+
+    /**
+     * Gets whether results of the method may be cached.
+     * @return may results be cached?
+     */
+    public boolean isCacheable() {
+        return readOnly && cacheTtlMillis > 0;
+    }
+
+    /**
+     * Gets the invalidation groups the cached results of the method belong to.
+     * @return names of invalidation groups
+     */
+    public Set<String> getCacheGroups() {
+        return cacheGroups;
+    }
+
+    /**
+     * Gets the invalidation groups whose cached results are outdated after the method has been called.
+     * @return names of invalidation groups
+     */
+    public Set<String> getInvalidates() {
+        return invalidates;
+    }
+
+    /**
+     * Gets whether identical calls of the method made while the first call is still in progress may share its result.
+     * @return may identical concurrent calls be collapsed?
+     */
+    public boolean isCollapsed() {
+        return readOnly && collapse;
+    }
+}
@@ -0,0 +1,107 @@
+package de.oliverwetterau.neo4j.websockets.client.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the results of several partitions of one read request into a single result.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class ResultMerger {
+    /**
+     * Appends the data of all results in the given order.
+     * @param results results of all partitions
+     * @param limit maximum number of data elements of the merged result (0 for no limit)
+     * @return merged result containing the data and errors of all results
+     */
+    public static Result<JsonNode> concatenate(final List<Result<JsonNode>> results, final int limit) {
+        Result<JsonNode> mergedResult = new Result<>();
+
+        // the errors of all partitions are kept, even of those whose data is cut off by the limit
+        for (Result<JsonNode> result : results) {
+            addErrors(mergedResult, result);
+        }
+
+        for (Result<JsonNode> result : results) {
+            for (JsonNode element : result.getData()) {
+                if (isLimitReached(mergedResult, limit)) {
+                    return mergedResult;
+                }
+                mergedResult.add(element);
+            }
+        }
+
+        return mergedResult;
+    }
+
+    /**
+     * Merges the data of results that are already sorted by the given order (k-way merge), so the merged result is
+     * sorted as well.
+     * @param results results of all partitions, each sorted by order
+     * @param order sort order of the data elements
+     * @param limit maximum number of data elements of the merged result (0 for no limit)
+     * @return merged result containing the sorted data and the errors of all results
+     */
+    public static Result<JsonNode> mergeSorted(
+            final List<Result<JsonNode>> results, final Comparator<JsonNode> order, final int limit)
+    {
+        Result<JsonNode> mergedResult = new Result<>();
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, results.size()),
+                (a, b) -> order.compare(a.current(), b.current()));
+
+        for (Result<JsonNode> result : results) {
+            addErrors(mergedResult, result);
+
+            if (!result.getData().isEmpty()) {
+                cursors.add(new Cursor(result.getData()));
+            }
+        }
+
+        while (!cursors.isEmpty() && !isLimitReached(mergedResult, limit)) {
+            Cursor cursor = cursors.poll();
+            mergedResult.add(cursor.current());
+
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+
+        return mergedResult;
+    }
+
+    protected static void addErrors(final Result<JsonNode> mergedResult, final Result<JsonNode> result) {
+        if (!result.isOk()) {
+            mergedResult.addErrors(result.getErrors());
+        }
+    }
+
+    protected static boolean isLimitReached(final Result<JsonNode> result, final int limit) {
+        return limit > 0 && result.getData().size() >= limit;
+    }
+
+    /**
+     * Position within the data of a single result.
+     */
+    protected static class Cursor {
+        protected final List<JsonNode> data;
+        protected int index = 0;
+
+        public Cursor(final List<JsonNode> data) {
+            this.data = data;
+        }
+
+        public JsonNode current() {
+            return data.get(index);
+        }
+
+        public boolean next() {
+            return ++index < data.size();
+        }
+    }
+}
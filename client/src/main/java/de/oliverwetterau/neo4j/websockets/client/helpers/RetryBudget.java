@@ -0,0 +1,73 @@
+package de.oliverwetterau.neo4j.websockets.client.helpers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting retries to a share of all requests. Every request deposits a fraction of a token (the
+ * budget ratio), every retry withdraws a whole token. The balance is capped, so a long time of successful requests
+ * does not allow a flood of retries once servers start to fail.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class RetryBudget {
+    /** tokens are counted in thousandths to allow deposits of fractions */
+    protected static final long TOKEN = 1000;
+
+    /** thousandths of a token deposited by every request */
+    protected final long deposit;
+    /** maximum balance in thousandths of a token */
+    protected final long maximumBalance;
+    /** current balance in thousandths of a token */
+    protected final AtomicLong balance;
+
+    /**
+     * Constructor
+     * @param ratio share of requests that may be retried (e.g. 0.1 for 10%)
+     * @param maximumTokens maximum number of retries that may be saved up, the bucket starts full
+     */
+    public RetryBudget(final double ratio, final int maximumTokens) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.maximumBalance = maximumTokens * TOKEN;
+        this.balance = new AtomicLong(maximumBalance);
+    }
+
+    /**
+     * Deposits the share of a request.
+     */
+    public void onRequest() {
+        for (;;) {
+            long current = balance.get();
+            long next = Math.min(current + deposit, maximumBalance);
+
+            if (current == next || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tries to withdraw a token for a retry.
+     * @return true, if the retry may be done
+     */
+    public boolean tryWithdraw() {
+        for (;;) {
+            long current = balance.get();
+
+            if (current < TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of retries that may currently be done.
+     * @return number of available tokens
+     */
+    public long getAvailableTokens() {
+        return balance.get() / TOKEN;
+    }
+}
@@ -0,0 +1,170 @@
+package de.oliverwetterau.neo4j.websockets.client.metrics;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds counters and latency statistics of the communication with the Neo4j cluster.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+@Service
+public class DatabaseMetrics {
+    /** prefix of the latency statistics per zone, the zone name is appended */
+    public static final String ZONE_LATENCY = "latency.zone.";
+    /** number of servers ejected by their circuit breakers */
+    public static final String SERVERS_EJECTED = "circuitbreaker.ejected";
+    /** number of servers restored by their circuit breakers */
+    public static final String SERVERS_RESTORED = "circuitbreaker.restored";
+    /** number of requests rejected because the server was ejected */
+    public static final String REQUESTS_REJECTED = "circuitbreaker.rejected";
+    /** number of servers added at runtime because they were advertised by the cluster */
+    public static final String SERVERS_DISCOVERED = "cluster.discovered";
+    /** number of discovered servers removed at runtime because they failed */
+    public static final String SERVERS_REMOVED = "cluster.removed";
+    /** duration from the loss of the master / write server until a new one was available */
+    public static final String FAILOVER_LATENCY = "latency.failover";
+    /** time buffered write messages waited for a new master / write server */
+    public static final String WRITE_BUFFER_LATENCY = "latency.writebuffer";
+    /** number of times the master / write server was lost */
+    public static final String FAILOVERS = "failover.count";
+    /** number of write messages buffered while no master / write server was available */
+    public static final String WRITES_BUFFERED = "writebuffer.buffered";
+    /** number of write messages rejected because the write buffer was full */
+    public static final String WRITES_REJECTED = "writebuffer.rejected";
+    /** number of buffered write messages whose deadline passed before a new master was available */
+    public static final String WRITES_EXPIRED = "writebuffer.expired";
+    /** number of writes queued in the write behind queue */
+    public static final String WRITES_BEHIND_QUEUED = "writebehind.queued";
+    /** number of writes rejected because the write behind queue was full */
+    public static final String WRITES_BEHIND_REJECTED = "writebehind.rejected";
+    /** number of writes sent from the write behind queue */
+    public static final String WRITES_BEHIND_SENT = "writebehind.sent";
+    /** number of batches sent from the write behind queue */
+    public static final String WRITE_BATCHES = "writebehind.batches";
+    /** number of batches sent from the write behind queue that failed */
+    public static final String WRITE_BATCHES_FAILED = "writebehind.failed";
+    /** number of property updates combined with an earlier update of the same property */
+    public static final String UPDATES_COMBINED = "writecombiner.combined";
+    /** number of write messages sent with combined property updates */
+    public static final String COMBINED_UPDATES_SENT = "writecombiner.sent";
+    /** number of results returned from the result cache */
+    public static final String CACHE_HITS = "cache.hits";
+    /** number of expired results returned from the result cache while a fresh result was read */
+    public static final String CACHE_STALE_HITS = "cache.stale";
+    /** number of cacheable results that had to be read */
+    public static final String CACHE_MISSES = "cache.misses";
+    /** number of results removed from the result cache because it was full */
+    public static final String CACHE_EVICTIONS = "cache.evictions";
+    /** number of results removed from the result cache by writes */
+    public static final String CACHE_INVALIDATIONS = "cache.invalidations";
+    /** number of reads that shared the result of an identical read already in progress */
+    public static final String CALLS_COLLAPSED = "calls.collapsed";
+    /** number of reads answered with "not modified" */
+    public static final String READS_NOT_MODIFIED = "reads.notmodified";
+    /** number of nodes and relationships returned from the entity cache */
+    public static final String ENTITY_CACHE_HITS = "entitycache.hits";
+    /** number of nodes and relationships that had to be read */
+    public static final String ENTITY_CACHE_MISSES = "entitycache.misses";
+    /** number of nodes and relationships removed from the entity cache because they have been changed */
+    public static final String ENTITY_CACHE_INVALIDATIONS = "entitycache.invalidations";
+    /** number of write messages sent again with the same idempotency key */
+    public static final String WRITE_RETRIES = "retries.write";
+    /** number of read messages retried on another server */
+    public static final String READ_RETRIES = "retries.read";
+    /** number of read messages not retried because the retry budget was exhausted */
+    public static final String RETRY_BUDGET_EXHAUSTED = "retries.budgetexhausted";
+
+    /** all counters by name */
+    protected final ConcurrentMap<String,AtomicLong> counters = new ConcurrentHashMap<>();
+    /** all latency statistics by name */
+    protected final ConcurrentMap<String,LatencyStatistics> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Increments a counter by one.
+     * @param name name of the counter
+     */
+    public void increment(final String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds a value to a counter.
+     * @param name name of the counter
+     * @param delta value to add
+     */
+    public void add(final String name, final long delta) {
+        AtomicLong counter = counters.get(name);
+
+        if (counter == null) {
+            counters.putIfAbsent(name, new AtomicLong());
+            counter = counters.get(name);
+        }
+
+        counter.addAndGet(delta);
+    }
+
+    /**
+     * Gets the current value of a counter.
+     * @param name name of the counter
+     * @return value of the counter (0 if it has never been incremented)
+     */
+    public long getCount(final String name) {
+        AtomicLong counter = counters.get(name);
+        return (counter == null) ? 0 : counter.get();
+    }
+
+    /**
+     * Gets a snapshot of all counters.
+     * @return counter values by name
+     */
+    public Map<String,Long> getCounters() {
+        Map<String,Long> snapshot = new HashMap<>();
+
+        for (Map.Entry<String,AtomicLong> counter : counters.entrySet()) {
+            snapshot.put(counter.getKey(), counter.getValue().get());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Adds a latency sample.
+     * @param name name of the latency statistics
+     * @param nanos latency in nanoseconds
+     */
+    public void recordLatency(final String name, final long nanos) {
+        LatencyStatistics latency = latencies.get(name);
+
+        if (latency == null) {
+            latencies.putIfAbsent(name, new LatencyStatistics());
+            latency = latencies.get(name);
+        }
+
+        latency.record(nanos);
+    }
+
+    /**
+     * Gets latency statistics.
+     * @param name name of the latency statistics
+     * @return latency statistics or null if no sample has been recorded yet
+     */
+    public LatencyStatistics getLatency(final String name) {
+        return latencies.get(name);
+    }
+
+    /**
+     * Gets all latency statistics.
+     * @return latency statistics by name
+     */
+    public Map<String,LatencyStatistics> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+}
@@ -0,0 +1,82 @@
+package de.oliverwetterau.neo4j.websockets.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latency samples and provides count, mean, moving average and maximum of these samples.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class LatencyStatistics {
+    /** weight of the latest sample in the moving average */
+    protected static final double MOVING_AVERAGE_WEIGHT = 0.2;
+
+    /** number of recorded samples */
+    protected long count = 0;
+    /** sum of all recorded samples in nanoseconds */
+    protected long totalNanos = 0;
+    /** largest recorded sample in nanoseconds */
+    protected long maxNanos = 0;
+    /** exponentially weighted moving average in nanoseconds */
+    protected double movingAverageNanos = 0;
+
+    /**
+     * Adds a latency sample.
+     * @param nanos latency in nanoseconds
+     */
+    public synchronized void record(final long nanos) {
+        if (count == 0) {
+            movingAverageNanos = nanos;
+        }
+        else {
+            movingAverageNanos += MOVING_AVERAGE_WEIGHT * (nanos - movingAverageNanos);
+        }
+
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Gets the number of recorded samples.
+     * @return number of samples
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of all recorded samples.
+     * @return mean latency in milliseconds
+     */
+    public synchronized double getMeanMillis() {
+        return (count == 0) ? 0 : toMillis(totalNanos / (double) count);
+    }
+
+    /**
+     * Gets the exponentially weighted moving average of the recorded samples (recent samples weigh more).
+     * @return moving average latency in milliseconds
+     */
+    public synchronized double getMovingAverageMillis() {
+        return toMillis(movingAverageNanos);
+    }
+
+    /**
+     * Gets the largest recorded sample.
+     * @return maximum latency in milliseconds
+     */
+    public synchronized double getMaxMillis() {
+        return toMillis(maxNanos);
+    }
+
+    protected static double toMillis(final double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("count = %d, mean = %.3fms, moving average = %.3fms, max = %.3fms",
+                count, getMeanMillis(), getMovingAverageMillis(), getMaxMillis());
+    }
+}
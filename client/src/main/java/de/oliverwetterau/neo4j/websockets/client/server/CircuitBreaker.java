@@ -0,0 +1,242 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of a single server guarding the read messages sent to it. It tracks the rate of failed and slow calls
+ * of the last requests. If one of these rates gets too high, the server is ejected (the circuit is open) for a backoff
+ * period. After this period a few trial
+ * requests are allowed (the circuit is half open). If all of them succeed, the server will be used again (the circuit
+ * is closed), otherwise it will be ejected again for twice the backoff period.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    /** timer used to end the backoff periods of all circuit breakers */
+    protected static final Timer timer = new Timer("neo4j-websockets-circuit-breaker", true);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /** server guarded by this circuit breaker */
+    protected final Server server;
+    /** listener that will be informed about ejection and restoration of the server */
+    protected final CircuitBreakerListener listener;
+
+    /** outcomes of the last calls (failed) */
+    protected final boolean[] failedCalls;
+    /** outcomes of the last calls (slow) */
+    protected final boolean[] slowCalls;
+    /** position of the next outcome in failedCalls and slowCalls */
+    protected int nextCall = 0;
+    /** number of recorded outcomes (up to the window size) */
+    protected int recordedCalls = 0;
+    protected int failedCallCount = 0;
+    protected int slowCallCount = 0;
+
+    protected State state = State.CLOSED;
+    /** current backoff period in milliseconds */
+    protected long backoffMillis;
+    /** number of trial requests that may still be started while the circuit is half open */
+    protected int trialPermits = 0;
+    /** number of successful trial requests while the circuit is half open */
+    protected int successfulTrials = 0;
+
+    /**
+     * Constructor
+     * @param server server to be guarded
+     * @param listener listener that will be informed about ejection and restoration of the server (may be null)
+     */
+    public CircuitBreaker(final Server server, final CircuitBreakerListener listener) {
+        this.server = server;
+        this.listener = listener;
+        this.failedCalls = new boolean[ApplicationSettings.circuitBreakerWindowSize()];
+        this.slowCalls = new boolean[ApplicationSettings.circuitBreakerWindowSize()];
+        this.backoffMillis = ApplicationSettings.circuitBreakerBackoffMillis();
+    }
+
+    /**
+     * Gets the current state of the circuit.
+     * @return state of the circuit
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns whether a request may currently be sent to the server (without taking a permission).
+     * @return may a request be sent?
+     */
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED || (state == State.HALF_OPEN && trialPermits > 0);
+    }
+
+    /**
+     * Takes a permission to send a request to the server.
+     * @return true, if the request may be sent
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialPermits > 0) {
+                    trialPermits--;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a successful request.
+     * @param nanos duration of the request in nanoseconds
+     */
+    public void onSuccess(final long nanos) {
+        record(false, nanos);
+    }
+
+    /**
+     * Records a failed request.
+     * @param nanos duration of the request in nanoseconds
+     */
+    public void onFailure(final long nanos) {
+        record(true, nanos);
+    }
+
+    protected void record(final boolean failed, final long nanos) {
+        boolean slow = nanos >= TimeUnit.MILLISECONDS.toNanos(ApplicationSettings.circuitBreakerSlowCallMillis());
+        State newState;
+
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                if (failed || slow) {
+                    backoffMillis = Math.min(backoffMillis * 2, ApplicationSettings.circuitBreakerMaxBackoffMillis());
+                    newState = open();
+                }
+                else if (++successfulTrials >= ApplicationSettings.circuitBreakerTrialCalls()) {
+                    backoffMillis = ApplicationSettings.circuitBreakerBackoffMillis();
+                    newState = close();
+                }
+                else {
+                    return;
+                }
+            }
+            else if (state == State.CLOSED) {
+                addOutcome(failed, slow);
+
+                if (!isThresholdExceeded()) {
+                    return;
+                }
+                newState = open();
+            }
+            else {
+                return;
+            }
+        }
+
+        inform(newState);
+    }
+
+    protected void addOutcome(final boolean failed, final boolean slow) {
+        if (recordedCalls == failedCalls.length) {
+            if (failedCalls[nextCall]) failedCallCount--;
+            if (slowCalls[nextCall]) slowCallCount--;
+        }
+        else {
+            recordedCalls++;
+        }
+
+        failedCalls[nextCall] = failed;
+        slowCalls[nextCall] = slow;
+        if (failed) failedCallCount++;
+        if (slow) slowCallCount++;
+
+        nextCall = (nextCall + 1) % failedCalls.length;
+    }
+
+    protected boolean isThresholdExceeded() {
+        if (recordedCalls < ApplicationSettings.circuitBreakerMinimumCalls()) {
+            return false;
+        }
+
+        return failedCallCount >= ApplicationSettings.circuitBreakerFailureRate() * recordedCalls
+                || slowCallCount >= ApplicationSettings.circuitBreakerSlowCallRate() * recordedCalls;
+    }
+
+    protected State open() {
+        logger.warn("[open] ejecting server '{}' for {}ms (failed = {}, slow = {}, calls = {})",
+                server.getManagementUri(), backoffMillis, failedCallCount, slowCallCount, recordedCalls);
+
+        state = State.OPEN;
+        trialPermits = 0;
+
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                halfOpen();
+            }
+        }, backoffMillis);
+
+        return State.OPEN;
+    }
+
+    protected void halfOpen() {
+        synchronized (this) {
+            if (state != State.OPEN) {
+                return;
+            }
+
+            logger.info("[halfOpen] probing server '{}'", server.getManagementUri());
+
+            state = State.HALF_OPEN;
+            trialPermits = ApplicationSettings.circuitBreakerTrialCalls();
+            successfulTrials = 0;
+        }
+
+        inform(State.HALF_OPEN);
+    }
+
+    protected State close() {
+        logger.info("[close] restoring server '{}'", server.getManagementUri());
+
+        state = State.CLOSED;
+        recordedCalls = 0;
+        nextCall = 0;
+        failedCallCount = 0;
+        slowCallCount = 0;
+
+        return State.CLOSED;
+    }
+
+    protected void inform(final State newState) {
+        if (listener == null) {
+            return;
+        }
+
+        switch (newState) {
+            case OPEN:
+                listener.onServerEjected(server);
+                break;
+            case HALF_OPEN:
+                listener.onServerProbing(server);
+                break;
+            case CLOSED:
+                listener.onServerRestored(server);
+                break;
+        }
+    }
+}
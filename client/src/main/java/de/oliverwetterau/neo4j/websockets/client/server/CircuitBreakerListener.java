@@ -0,0 +1,28 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+/**
+ * This interface shall be used to inform the client about servers being ejected from or restored to the list of
+ * usable servers by their circuit breakers.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public interface CircuitBreakerListener {
+    /**
+     * Called when a server has failed or answered too slowly too often and will not be used for a while.
+     * @param server ejected server
+     */
+    void onServerEjected(final Server server);
+
+    /**
+     * Called when the backoff period of an ejected server is over and a few trial requests will be sent to it.
+     * @param server server being probed
+     */
+    void onServerProbing(final Server server);
+
+    /**
+     * Called when all trial requests to a server were successful and it will be used again.
+     * @param server restored server
+     */
+    void onServerRestored(final Server server);
+}
@@ -26,4 +26,24 @@ public interface ClusterListener {
      * @param uri websocket uri
      */
     void onServerReconnected(final String id, final String uri);
+
+    /**
+     * Called when a server advertises a member of the cluster that might not be known yet.
+     * @param id cluster id
+     * @param uri websocket uri
+     */
+    void onServerDiscovered(final String id, final String uri);
+
+    /**
+     * Called when a server in the cluster has failed (e.g. has left the cluster or stopped answering heartbeats).
+     * @param id cluster id
+     */
+    void onServerFailed(final String id);
+
+    /**
+     * Called when nodes or relationships have been changed or deleted by committed transactions.
+     * @param nodeIds ids of changed nodes
+     * @param relationshipIds ids of changed relationships
+     */
+    void onEntitiesInvalidated(final long[] nodeIds, final long[] relationshipIds);
 }
@@ -13,4 +13,12 @@ public class ConnectionNotAvailableException extends Exception {
         super();
         this.server = server;
     }
+
+    /**
+     * Gets the server that was not available.
+     * @return server that was not available, null if there was no server to choose from at all
+     */
+    public Server getServer() {
+        return server;
+    }
 }
@@ -0,0 +1,101 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import de.oliverwetterau.neo4j.websockets.core.helpers.Hashing;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Consistent hash ring over a list of servers. Every server is placed on the ring with several virtual nodes, so keys
+ * are spread evenly and only the keys of a server that joins or leaves the ring are moved to other servers. To keep
+ * single servers from being overloaded by hot keys, the ring uses bounded loads: a key is passed on to the next server
+ * on the ring as long as a server handles more than (1 + load factor) times the average number of requests.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class ConsistentHashRing {
+    /** number of positions of every server on the ring */
+    protected static final int VIRTUAL_NODES = 160;
+
+    /** all servers on the ring */
+    protected final Server[] servers;
+    /** sorted positions of the virtual nodes */
+    protected final long[] positions;
+    /** servers owning the virtual nodes (same order as positions) */
+    protected final Server[] owners;
+
+    /**
+     * Constructor
+     * @param servers servers to be placed on the ring
+     */
+    public ConsistentHashRing(final Server[] servers) {
+        this.servers = servers;
+
+        long[][] nodes = new long[servers.length * VIRTUAL_NODES][];
+        int n = 0;
+
+        for (int i = 0; i < servers.length; i++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                // use the uri (not the cluster id) as it is known before registration and never changes
+                nodes[n++] = new long[] { Hashing.hash(servers[i].getManagementUri() + "#" + v), i };
+            }
+        }
+
+        Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+
+        positions = new long[nodes.length];
+        owners = new Server[nodes.length];
+
+        for (int i = 0; i < nodes.length; i++) {
+            positions[i] = nodes[i][0];
+            owners[i] = servers[(int) nodes[i][1]];
+        }
+    }
+
+    /**
+     * Gets the server a key is assigned to.
+     * @param key routing key
+     * @param loadFactor allowed load above the average load of all servers (e.g. 0.25 for 25%)
+     * @return server for the key or null if the ring is empty
+     */
+    public Server get(final String key, final double loadFactor) {
+        if (positions.length == 0) {
+            return null;
+        }
+
+        int totalLoad = 0;
+
+        for (Server server : servers) {
+            totalLoad += server.getLoad();
+        }
+
+        int capacity = (int) Math.ceil((totalLoad + 1) * (1 + loadFactor) / servers.length);
+        int index = Arrays.binarySearch(positions, Hashing.hash(key));
+
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        Set<Server> checkedServers = new HashSet<>();
+
+        for (int i = 0; i < positions.length && checkedServers.size() < servers.length; i++) {
+            Server server = owners[(index + i) % positions.length];
+
+            if (checkedServers.add(server) && server.getLoad() < capacity) {
+                return server;
+            }
+        }
+
+        return owners[index % positions.length];
+    }
+
+    /**
+     * Gets the number of servers on the ring.
+     * @return number of servers
+     */
+    public int size() {
+        return servers.length;
+    }
+}
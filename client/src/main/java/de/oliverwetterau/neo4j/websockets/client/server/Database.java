@@ -1,7 +1,11 @@
 package de.oliverwetterau.neo4j.websockets.client.server;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
 import de.oliverwetterau.neo4j.websockets.client.helpers.ConcurrentSequence;
+import de.oliverwetterau.neo4j.websockets.client.helpers.RetryBudget;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
 import de.oliverwetterau.neo4j.websockets.client.web.DataConnection;
 import de.oliverwetterau.neo4j.websockets.client.web.WebSocketHandler;
 import de.oliverwetterau.neo4j.websockets.core.data.Error;
@@ -14,9 +18,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Manages connections to a cluster of Neo4j servers, deals with load balances and provides functionality to send read
@@ -26,32 +39,79 @@ import java.util.concurrent.ConcurrentSkipListSet;
  * @version 2015-09-01
  */
 @Service
-public class Database implements ClusterListener {
+public class Database implements ClusterListener, CircuitBreakerListener {
     private static final Logger logger = LoggerFactory.getLogger(Database.class);
 
     /** list all servers in the managed cluster */
     protected final Set<Server> SERVERS = new ConcurrentSkipListSet<>();
+    /** list of all servers that have been added at runtime because they were advertised by the cluster */
+    protected final Set<Server> discoveredServers = new ConcurrentSkipListSet<>();
     /** multi threaded sequence used for load balancing of read servers */
     protected final ConcurrentSequence readSequence = new ConcurrentSequence();
+    /** multi threaded sequence used for load balancing of read servers in the own zone */
+    protected final ConcurrentSequence localReadSequence = new ConcurrentSequence();
     /** list of all servers currently acting as slaves / read servers */
-    protected Server[] readServers;
+    protected Server[] readServers = new Server[0];
+    /** list of all read servers in the same zone as this client */
+    protected Server[] localReadServers = new Server[0];
+    /** consistent hash ring over all read servers used for read messages with a routing key */
+    protected ConsistentHashRing readServerRing = new ConsistentHashRing(new Server[0]);
+    /** consistent hash ring over the read servers in the same zone as this client */
+    protected ConsistentHashRing localReadServerRing = readServerRing;
     /** currently active master / write server */
     protected Server writeServer = null;
 
     /** Locale used in current thread */
     protected final ThreadLocale threadLocale;
+    /** counters and latencies of the cluster communication */
+    protected final DatabaseMetrics databaseMetrics;
+    /** message methods published by the servers */
+    protected final MethodCatalog methodCatalog;
+    /** limits retries of read messages to a share of all read messages */
+    protected final RetryBudget retryBudget =
+            new RetryBudget(ApplicationSettings.retryBudgetRatio(), ApplicationSettings.retryBudgetMaximum());
+    /** write messages held while no master / write server is available (null if buffering is disabled) */
+    protected final WriteBuffer writeBuffer = (ApplicationSettings.writeBufferSize() > 0)
+            ? new WriteBuffer(ApplicationSettings.writeBufferSize())
+            : null;
+    /** threads used to send buffered write messages in parallel to a new master / write server */
+    protected final ExecutorService flushExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "neo4j-websockets-write-buffer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** thread connecting to servers discovered in the cluster, so websocket receive threads are never blocked */
+    protected final ExecutorService discoveryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "neo4j-websockets-discovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** has a master / write server been available at least once? */
+    protected boolean hasHadWriteServer = false;
+    /** time the master / write server was lost (System.nanoTime()), 0 if a master is available */
+    protected long writeServerLostAt = 0;
+    /** listeners that will be informed about ejection and restoration of servers */
+    protected final List<CircuitBreakerListener> circuitBreakerListeners = new CopyOnWriteArrayList<>();
+    /** listeners that will be informed about changed nodes and relationships */
+    protected final List<InvalidationListener> invalidationListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor
      * @param jsonObjectMapper json serialization
      * @param threadLocale language settings
+     * @param databaseMetrics counters and latencies of the cluster communication
+     * @param methodCatalog message methods published by the servers
      */
     @Autowired
-    public Database(final JsonObjectMapper jsonObjectMapper, final ThreadLocale threadLocale) {
+    public Database(final JsonObjectMapper jsonObjectMapper, final ThreadLocale threadLocale, final DatabaseMetrics databaseMetrics,
+                    final MethodCatalog methodCatalog)
+    {
         Server server;
         Server masterServer = null;
 
         this.threadLocale = threadLocale;
+        this.databaseMetrics = databaseMetrics;
+        this.methodCatalog = methodCatalog;
         ThreadBinary.setFixedBinary(ApplicationSettings.binaryCommunication());
 
         // initially set JsonObjectMapper in all classes that need it
@@ -62,7 +122,7 @@ public class Database implements ClusterListener {
 
         // fill list of cluster servers
         for (String uri : ApplicationSettings.serverURIs()) {
-            server = new Server(this, uri, threadLocale, ThreadBinary.isBinary());
+            server = new Server(this, this, uri, threadLocale, ThreadBinary.isBinary());
             try {
                 server.connect();
             }
@@ -79,6 +139,13 @@ public class Database implements ClusterListener {
 
         // remember currently active master / write server
         setWriteServer(masterServer);
+
+        // add cluster members that are not part of the configured server list
+        for (Server configuredServer : new ArrayList<>(SERVERS)) {
+            for (Map.Entry<String,String> member : configuredServer.getMembers().entrySet()) {
+                addDiscoveredServer(member.getKey(), member.getValue());
+            }
+        }
     }
 
     /**
@@ -177,11 +244,196 @@ public class Database implements ClusterListener {
             Server server = getServerByUri(uri);
             server.register();
             server.setAvailable(true);
+            discoverServers(server.getMembers());
         }
 
+        // invalidations sent while the connection was down are lost
+        onInvalidationsLost();
+
         refreshServers();
     }
 
+    /**
+     * Adds all advertised cluster members that are not known yet.
+     * @param members websocket uris by cluster id
+     */
+    protected void discoverServers(final Map<String,String> members) {
+        for (Map.Entry<String,String> member : members.entrySet()) {
+            onServerDiscovered(member.getKey(), member.getValue());
+        }
+    }
+
+    /**
+     * Adds a server advertised by the cluster if it is not known yet. Connecting to the server is done by the discovery
+     * thread, because this method is called by the receive thread of a management connection.
+     * @param id Neo4j cluster id
+     * @param uri websocket uri
+     */
+    @Override
+    public void onServerDiscovered(final String id, final String uri) {
+        discoveryExecutor.execute(() -> addDiscoveredServer(id, uri));
+    }
+
+    /**
+     * Adds a server advertised by the cluster if it is not known yet. The server is registered and its connection pool
+     * is warmed up before it is added to the list of servers, so no request has to wait for a new connection.
+     * @param id Neo4j cluster id
+     * @param uri websocket uri
+     */
+    protected void addDiscoveredServer(final String id, final String uri) {
+        if (getServerById(id) != null || getServerByUri(uri + ApplicationSettings.managementPath()) != null) {
+            return;
+        }
+
+        logger.debug("[addDiscoveredServer] id = {}, uri = {}", id, uri);
+
+        Server server = new Server(this, this, uri, threadLocale, ThreadBinary.isBinary());
+
+        try {
+            server.connect();
+        }
+        catch (Exception e) {
+            logger.error("[addDiscoveredServer] server '{}' is not available", uri);
+            server.close();
+            return;
+        }
+
+        if (server.getId().length() == 0) {
+            server.close();
+            return;
+        }
+
+        server.warmUp(ApplicationSettings.warmUpConnections());
+
+        synchronized (this) {
+            if (getServerById(server.getId()) != null) {
+                server.close();
+                return;
+            }
+
+            SERVERS.add(server);
+            discoveredServers.add(server);
+            databaseMetrics.increment(DatabaseMetrics.SERVERS_DISCOVERED);
+
+            if (server.isMaster() && (writeServer == null || !writeServer.isAvailable())) {
+                setWriteServer(server);
+            }
+            else {
+                refreshServers();
+            }
+        }
+    }
+
+    /**
+     * Marks a failed server as not available. Servers that have been discovered at runtime are removed and their
+     * connections are closed; they will be added again if the cluster advertises them once more.
+     * @param id Neo4j cluster id
+     */
+    @Override
+    public synchronized void onServerFailed(final String id) {
+        logger.debug("[onServerFailed] id = {}", id);
+
+        Server server = getServerById(id);
+
+        if (server == null) {
+            return;
+        }
+
+        server.setAvailable(false);
+
+        if (discoveredServers.remove(server)) {
+            SERVERS.remove(server);
+            server.close();
+            databaseMetrics.increment(DatabaseMetrics.SERVERS_REMOVED);
+        }
+
+        refreshServers();
+    }
+
+    /**
+     * Adds a listener that will be informed about nodes and relationships changed in the cluster.
+     * @param listener invalidation listener
+     */
+    public void addInvalidationListener(final InvalidationListener listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /**
+     * Informs all invalidation listeners about changed nodes and relationships.
+     * @param nodeIds ids of changed nodes
+     * @param relationshipIds ids of changed relationships
+     */
+    @Override
+    public void onEntitiesInvalidated(final long[] nodeIds, final long[] relationshipIds) {
+        for (InvalidationListener listener : invalidationListeners) {
+            listener.onEntitiesInvalidated(nodeIds, relationshipIds);
+        }
+    }
+
+    /**
+     * Informs all invalidation listeners that invalidations might have been missed.
+     */
+    protected void onInvalidationsLost() {
+        for (InvalidationListener listener : invalidationListeners) {
+            listener.onInvalidationsLost();
+        }
+    }
+
+    /**
+     * Adds a listener that will be informed about ejection and restoration of servers by their circuit breakers.
+     * @param listener circuit breaker listener
+     */
+    public void addCircuitBreakerListener(final CircuitBreakerListener listener) {
+        circuitBreakerListeners.add(listener);
+    }
+
+    /**
+     * Removes an ejected server from the list of read servers.
+     * @param server ejected server
+     */
+    @Override
+    public void onServerEjected(final Server server) {
+        logger.debug("[onServerEjected] id = {}, uri = {}", server.getId(), server.getManagementUri());
+
+        databaseMetrics.increment(DatabaseMetrics.SERVERS_EJECTED);
+        refreshServers();
+
+        for (CircuitBreakerListener listener : circuitBreakerListeners) {
+            listener.onServerEjected(server);
+        }
+    }
+
+    /**
+     * Adds a server to the list of read servers again to send trial requests to it.
+     * @param server server being probed
+     */
+    @Override
+    public void onServerProbing(final Server server) {
+        logger.debug("[onServerProbing] id = {}, uri = {}", server.getId(), server.getManagementUri());
+
+        refreshServers();
+
+        for (CircuitBreakerListener listener : circuitBreakerListeners) {
+            listener.onServerProbing(server);
+        }
+    }
+
+    /**
+     * Adds a restored server to the list of read servers.
+     * @param server restored server
+     */
+    @Override
+    public void onServerRestored(final Server server) {
+        logger.debug("[onServerRestored] id = {}, uri = {}", server.getId(), server.getManagementUri());
+
+        databaseMetrics.increment(DatabaseMetrics.SERVERS_RESTORED);
+        refreshServers();
+
+        for (CircuitBreakerListener listener : circuitBreakerListeners) {
+            listener.onServerRestored(server);
+        }
+    }
+
     /**
      * Changes the current master / write server.
      * @param writeServer Neo4j server to use for write access
@@ -192,17 +444,25 @@ public class Database implements ClusterListener {
         if (this.writeServer != null && writeServer != null && this.writeServer.equals(writeServer)) return;
 
         this.writeServer = writeServer;
+        onInvalidationsLost();
         refreshServers();
     }
 
     /**
-     * Reorganises the list of read servers based on current master / write server and list of available servers.
+     * Reorganises the list of read servers based on current master / write server and list of available servers and
+     * adds the method catalogs of all registered servers to the method catalog.
      */
     protected synchronized void refreshServers() {
         StringBuilder refreshResult = new StringBuilder();
         Set<Server> availableReadServers = new HashSet<>();
         Server[] newReadServers;
 
+        List<JsonNode> catalogs = new ArrayList<>();
+        for (Server server : SERVERS) {
+            catalogs.add(server.getCatalog());
+        }
+        methodCatalog.update(catalogs);
+
         if (writeServer == null || !writeServer.isAvailable()) {
             logger.debug("[refreshServers] write server is null or not available");
 
@@ -215,6 +475,10 @@ public class Database implements ClusterListener {
 
             if (writeServer == null) {
                 readServers = new Server[0];
+                localReadServers = new Server[0];
+                readServerRing = new ConsistentHashRing(readServers);
+                localReadServerRing = readServerRing;
+                checkWriteServerGap();
                 return;
             }
         }
@@ -222,7 +486,9 @@ public class Database implements ClusterListener {
         for (Server server : SERVERS) {
             logger.debug("[refreshServers] server: id = {}, isAvailable = {}", server.getId(), server.isAvailable());
 
-            if (!server.getId().equals(writeServer.getId()) && server.isAvailable()) {
+            if (!server.getId().equals(writeServer.getId()) && server.isAvailable()
+                    && server.getCircuitBreaker().isCallPermitted())
+            {
                 logger.debug("[refreshServers] add read server");
                 availableReadServers.add(server);
             }
@@ -271,18 +537,212 @@ public class Database implements ClusterListener {
         }
 
         readServers = newReadServers;
+        localReadServers = getLocalServers(newReadServers);
+        readServerRing = new ConsistentHashRing(newReadServers);
+        localReadServerRing = (localReadServers == newReadServers)
+                ? readServerRing
+                : new ConsistentHashRing(localReadServers);
+
+        logger.debug("[refreshServers] {}, local read servers = {}", refreshResult.toString(), localReadServers.length);
+
+        checkWriteServerGap();
+    }
+
+    /**
+     * Keeps track of periods without an available master / write server. When a new master is available, the duration
+     * of the failover is recorded and all buffered write messages are sent to it.
+     */
+    protected synchronized void checkWriteServerGap() {
+        if (writeServer == null || !writeServer.isAvailable()) {
+            if (hasHadWriteServer && writeServerLostAt == 0) {
+                writeServerLostAt = System.nanoTime();
+                databaseMetrics.increment(DatabaseMetrics.FAILOVERS);
+            }
+            return;
+        }
+
+        hasHadWriteServer = true;
+
+        if (writeServerLostAt != 0) {
+            databaseMetrics.recordLatency(DatabaseMetrics.FAILOVER_LATENCY, System.nanoTime() - writeServerLostAt);
+            writeServerLostAt = 0;
+        }
+
+        if (writeBuffer != null && !writeBuffer.isEmpty()) {
+            flushWriteBuffer(writeServer);
+        }
+    }
+
+    /**
+     * Sends all buffered write messages in parallel to a master / write server. Messages whose deadline has passed
+     * are failed without being sent.
+     * @param server master / write server
+     */
+    protected void flushWriteBuffer(final Server server) {
+        List<WriteBuffer.PendingWrite<?>> pendingWrites = writeBuffer.drain();
+
+        logger.debug("[flushWriteBuffer] {} buffered write messages, uri = {}", pendingWrites.size(), server.getManagementUri());
+
+        for (WriteBuffer.PendingWrite<?> pendingWrite : pendingWrites) {
+            flushPendingWrite(pendingWrite, server);
+        }
+    }
+
+    /**
+     * Sends a single buffered write message to a master / write server.
+     * @param pendingWrite buffered write message
+     * @param server master / write server
+     * @param <T> message format (text or binary)
+     */
+    protected <T> void flushPendingWrite(final WriteBuffer.PendingWrite<T> pendingWrite, final Server server) {
+        if (pendingWrite.isDone()) {
+            return;
+        }
+        if (pendingWrite.isPastDeadline()) {
+            pendingWrite.expire();
+            return;
+        }
+
+        flushExecutor.execute(() -> {
+            // a message that has expired in the meantime must not be sent anymore
+            if (!pendingWrite.startSending()) {
+                return;
+            }
+
+            databaseMetrics.recordLatency(DatabaseMetrics.WRITE_BUFFER_LATENCY, System.nanoTime() - pendingWrite.getBufferedAt());
+
+            try {
+                pendingWrite.complete(sendMessageWithResult(server, pendingWrite.getSender()));
+            }
+            catch (ConnectionNotAvailableException e) {
+                pendingWrite.fail(e);
+            }
+        });
+    }
+
+    /**
+     * Filters a list of servers by the zone of this client.
+     * @param servers list of servers
+     * @return all servers being in the same zone as this client (all servers, if no zone has been set)
+     */
+    protected Server[] getLocalServers(final Server[] servers) {
+        String zone = ApplicationSettings.zone();
 
-        logger.debug("[refreshServers] {}", refreshResult.toString());
+        if (zone.length() == 0) {
+            return servers;
+        }
+
+        List<Server> localServers = new ArrayList<>();
+
+        for (Server server : servers) {
+            if (zone.equals(server.getZone())) {
+                localServers.add(server);
+            }
+        }
+
+        return localServers.toArray(new Server[localServers.size()]);
     }
 
     /**
-     * Gets an read server from the list of available servers using round robing load balancing.
-     * @return server for read access
+     * Gets a read server from the list of available servers. Servers in the same zone as this client are preferred
+     * and used with round robin load balancing. Only if there is no available server in the own zone or if all of them
+     * are busy with at least {@link ApplicationSettings#zoneSpilloverLoad()} requests, the least loaded server of all
+     * zones will be used. Servers whose circuit breaker does not permit any more requests are skipped.
+     * @return server for read access or null if no server is available
      */
     protected Server getReadServer() {
-        Server[] servers = readServers;
+        Server[] servers = localReadServers;
+
+        if (servers.length > 0) {
+            Server server = servers[localReadSequence.incrementAndGet(servers.length)];
+
+            if (server.getCircuitBreaker().isCallPermitted() && server.getLoad() < ApplicationSettings.zoneSpilloverLoad()) {
+                return server;
+            }
+
+            server = getLeastLoadedServer(servers);
+
+            if (server != null && server.getLoad() < ApplicationSettings.zoneSpilloverLoad()) {
+                return server;
+            }
+        }
+
+        servers = readServers;
+
+        if (servers.length == 0) {
+            return null;
+        }
+        if (servers.length == localReadServers.length) {
+            Server server = servers[readSequence.incrementAndGet(servers.length)];
+
+            if (server.getCircuitBreaker().isCallPermitted()) {
+                return server;
+            }
+        }
+
+        return getLeastLoadedServer(servers);
+    }
+
+    /**
+     * Gets a read server for a routing key. The same key is always sent to the same server (as long as the list of read
+     * servers does not change and the server is not overloaded), so the cache of every server only needs to hold the
+     * data of its share of all keys. Keys are spread over the servers in the same zone as this client; only if there
+     * is no such server or if the server of the key is ejected or busy with at least
+     * {@link ApplicationSettings#zoneSpilloverLoad()} requests, the key is looked up on the ring of all read servers.
+     * @param routingKey routing key (e.g. customer or subgraph id), null to use {@link #getReadServer()}
+     * @return server for read access or null if no server is available
+     */
+    protected Server getReadServer(final String routingKey) {
+        if (routingKey == null) {
+            return getReadServer();
+        }
+
+        ConsistentHashRing localRing = localReadServerRing;
+        Server server;
+
+        if (localRing.size() > 0) {
+            server = localRing.get(routingKey, ApplicationSettings.routingLoadFactor());
+
+            if (server.getCircuitBreaker().isCallPermitted() && server.getLoad() < ApplicationSettings.zoneSpilloverLoad()) {
+                return server;
+            }
+        }
+
+        server = readServerRing.get(routingKey, ApplicationSettings.routingLoadFactor());
+
+        if (server == null || !server.getCircuitBreaker().isCallPermitted()) {
+            return getReadServer();
+        }
+
+        return server;
+    }
+
+    /**
+     * Gets the server with the least number of concurrent requests whose circuit breaker permits requests.
+     * @param servers list of servers to choose from
+     * @return least loaded server or null if no server permits requests
+     */
+    protected Server getLeastLoadedServer(final Server[] servers) {
+        Server leastLoadedServer = null;
+
+        for (Server server : servers) {
+            if (!server.getCircuitBreaker().isCallPermitted()) {
+                continue;
+            }
+            if (leastLoadedServer == null || server.getLoad() < leastLoadedServer.getLoad()) {
+                leastLoadedServer = server;
+            }
+        }
+
+        return leastLoadedServer;
+    }
 
-        return servers[readSequence.incrementAndGet(servers.length)];
+    /**
+     * Gets all servers currently acting as slaves / read servers.
+     * @return list of read servers
+     */
+    public Server[] getReadServers() {
+        return readServers.clone();
     }
 
     /**
@@ -318,6 +778,10 @@ public class Database implements ClusterListener {
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public void sendWriteMessage(final String message, final Server server) throws ConnectionNotAvailableException {
+        if (server == null) {
+            throw new ConnectionNotAvailableException(null);
+        }
+
         DataConnection connection = server.getConnection();
 
         if (connection == null) {
@@ -336,6 +800,10 @@ public class Database implements ClusterListener {
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public void sendWriteMessage(final byte[] message, final Server server) throws ConnectionNotAvailableException {
+        if (server == null) {
+            throw new ConnectionNotAvailableException(null);
+        }
+
         DataConnection connection = server.getConnection();
 
         if (connection == null) {
@@ -349,64 +817,180 @@ public class Database implements ClusterListener {
 
     /**
      * Sends a text message (which will probably create a write access) to the Neo4j cluster and waits for a reply.
+     * During a master failover the message may be buffered (see {@link ApplicationSettings#writeBufferSize()}).
      * @param message text json message (usually json format)
      * @return result text message (usually json format)
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public String sendWriteMessageWithResult(final String message) throws ConnectionNotAvailableException {
-        return sendWriteMessageWithResult(message, getWriteServer());
+        return sendWriteMessageWithResult(connection -> connection.sendWithResult(message));
     }
 
     /**
      * Sends a binary message (which will probably create a write access) to the Neo4j cluster and waits for a reply.
+     * During a master failover the message may be buffered (see {@link ApplicationSettings#writeBufferSize()}).
      * @param message binary json message (usually json format)
      * @return result binary message (usually json format)
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public byte[] sendWriteMessageWithResult(final byte[] message) throws ConnectionNotAvailableException {
-        return sendWriteMessageWithResult(message, getWriteServer());
+        return sendWriteMessageWithResult(connection -> connection.sendWithResult(message));
     }
 
     /**
-     * Sends a text message (which will probably create a write access) to the Neo4j cluster and waits for a reply.
-     * @param message text json message (usually json format)
-     * @param server server that shall be used to send the message
-     * @return result text message (usually json format)
+     * Sends a write message to the current master / write server and waits for a reply. If there is no available
+     * master and write buffering is enabled, the message is held until a new master is available or until the
+     * deadline {@link ApplicationSettings#writeBufferTimeoutMillis()} has passed.
+     * @param sender sends the message through a data connection and returns the reply
+     * @param <T> message format (text or binary)
+     * @return reply of the server
      * @throws ConnectionNotAvailableException no connection to server exception
      */
-    public String sendWriteMessageWithResult(final String message, final Server server) throws ConnectionNotAvailableException {
-        DataConnection connection = server.getConnection();
+    protected <T> T sendWriteMessageWithResult(final Function<DataConnection,T> sender) throws ConnectionNotAvailableException {
+        Server server = getWriteServer();
 
-        if (connection == null) {
+        if (writeBuffer == null || (server != null && server.isAvailable())) {
+            return sendMessageWithResult(server, sender);
+        }
+
+        WriteBuffer.PendingWrite<T> pendingWrite = writeBuffer.add(sender, ApplicationSettings.writeBufferTimeoutMillis());
+
+        if (pendingWrite == null) {
+            databaseMetrics.increment(DatabaseMetrics.WRITES_REJECTED);
             throw new ConnectionNotAvailableException(server);
         }
 
-        String result = connection.sendWithResult(message);
+        databaseMetrics.increment(DatabaseMetrics.WRITES_BUFFERED);
 
-        server.returnConnection(connection);
+        // a new master might have become available while the message was buffered
+        checkWriteServerGap();
 
-        return result;
+        try {
+            return pendingWrite.await();
+        }
+        catch (ConnectionNotAvailableException e) {
+            if (pendingWrite.isExpired()) {
+                databaseMetrics.increment(DatabaseMetrics.WRITES_EXPIRED);
+            }
+            throw e;
+        }
     }
 
     /**
-     * Sends a binary message (which will probably create a write access) to the Neo4j cluster and waits for a reply.
-     * @param message binary json message (usually json format)
-     * @param server server that shall be used to send the message
+     * Sends a text message with an idempotency key to the Neo4j cluster and waits for a reply. If no reply is received
+     * within {@link ApplicationSettings#writeAnswerTimeoutMillis()}, the message is sent again up to
+     * {@link ApplicationSettings#writeRetries()} times, as the master answers a message it has already executed with
+     * the remembered result instead of executing it again.
+     * @param message text json message containing an idempotency key
+     * @return result text message (usually json format)
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public String sendIdempotentWriteMessageWithResult(final String message) throws ConnectionNotAvailableException {
+        return sendIdempotentWriteMessageWithResult(message, ApplicationSettings.writeAnswerTimeoutMillis());
+    }
+
+    /**
+     * Sends a text message with an idempotency key to the Neo4j cluster and waits for a reply. If no reply is received
+     * within the timeout, the message is sent again up to {@link ApplicationSettings#writeRetries()} times.
+     * @param message text json message containing an idempotency key
+     * @param timeoutMillis time every attempt waits for the reply
+     * @return result text message (usually json format)
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public String sendIdempotentWriteMessageWithResult(final String message, final long timeoutMillis)
+            throws ConnectionNotAvailableException
+    {
+        return sendWriteMessageWithRetries(connection -> connection.sendWithResult(message, timeoutMillis));
+    }
+
+    /**
+     * Sends a binary message with an idempotency key to the Neo4j cluster and waits for a reply. If no reply is
+     * received within {@link ApplicationSettings#writeAnswerTimeoutMillis()}, the message is sent again up to
+     * {@link ApplicationSettings#writeRetries()} times, as the master answers a message it has already executed with
+     * the remembered result instead of executing it again.
+     * @param message binary json message containing an idempotency key
      * @return result binary message (usually json format)
      * @throws ConnectionNotAvailableException no connection to server exception
      */
-    public byte[] sendWriteMessageWithResult(final byte[] message, final Server server) throws ConnectionNotAvailableException {
-        DataConnection connection = server.getConnection();
+    public byte[] sendIdempotentWriteMessageWithResult(final byte[] message) throws ConnectionNotAvailableException {
+        return sendIdempotentWriteMessageWithResult(message, ApplicationSettings.writeAnswerTimeoutMillis());
+    }
 
-        if (connection == null) {
-            throw new ConnectionNotAvailableException(server);
-        }
+    /**
+     * Sends a binary message with an idempotency key to the Neo4j cluster and waits for a reply. If no reply is
+     * received within the timeout, the message is sent again up to {@link ApplicationSettings#writeRetries()} times.
+     * @param message binary json message containing an idempotency key
+     * @param timeoutMillis time every attempt waits for the reply
+     * @return result binary message (usually json format)
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public byte[] sendIdempotentWriteMessageWithResult(final byte[] message, final long timeoutMillis)
+            throws ConnectionNotAvailableException
+    {
+        return sendWriteMessageWithRetries(connection -> connection.sendWithResult(message, timeoutMillis));
+    }
 
-        byte[] result = connection.sendWithResult(message);
+    /**
+     * Sends a write message and sends it again up to {@link ApplicationSettings#writeRetries()} times if no reply is
+     * received. Retries wait for an exponential backoff with jitter and share the retry budget of read messages.
+     * @param sender sends the message through a data connection and returns the reply
+     * @param <T> message format (text or binary)
+     * @return reply of the server
+     * @throws ConnectionNotAvailableException no reply from the master exception
+     */
+    protected <T> T sendWriteMessageWithRetries(final Function<DataConnection,T> sender)
+            throws ConnectionNotAvailableException
+    {
+        retryBudget.onRequest();
 
-        server.returnConnection(connection);
+        for (int attempt = 0;; attempt++) {
+            try {
+                return sendWriteMessageWithResult(sender);
+            }
+            catch (ConnectionNotAvailableException e) {
+                if (attempt >= ApplicationSettings.writeRetries()) {
+                    throw e;
+                }
+                if (!retryBudget.tryWithdraw()) {
+                    databaseMetrics.increment(DatabaseMetrics.RETRY_BUDGET_EXHAUSTED);
+                    throw e;
+                }
 
-        return result;
+                try {
+                    TimeUnit.MILLISECONDS.sleep(getRetryBackoff(attempt));
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+
+                databaseMetrics.increment(DatabaseMetrics.WRITE_RETRIES);
+
+                logger.debug("[sendWriteMessageWithRetries] retry {}", attempt + 1);
+            }
+        }
+    }
+
+    /**
+     * Sends a text message (which will probably create a write access) to the Neo4j cluster and waits for a reply.
+     * @param message text json message (usually json format)
+     * @param server server that shall be used to send the message
+     * @return result text message (usually json format)
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public String sendWriteMessageWithResult(final String message, final Server server) throws ConnectionNotAvailableException {
+        return sendMessageWithResult(server, connection -> connection.sendWithResult(message));
+    }
+
+    /**
+     * Sends a binary message (which will probably create a write access) to the Neo4j cluster and waits for a reply.
+     * @param message binary json message (usually json format)
+     * @param server server that shall be used to send the message
+     * @return result binary message (usually json format)
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public byte[] sendWriteMessageWithResult(final byte[] message, final Server server) throws ConnectionNotAvailableException {
+        return sendMessageWithResult(server, connection -> connection.sendWithResult(message));
     }
 
     /**
@@ -416,7 +1000,7 @@ public class Database implements ClusterListener {
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public String sendReadMessage(final String message) throws ConnectionNotAvailableException {
-        return sendReadMessage(message, getReadServer());
+        return sendReadMessage(message, (String) null);
     }
 
     /**
@@ -426,7 +1010,31 @@ public class Database implements ClusterListener {
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public byte[] sendReadMessage(final byte[] message) throws ConnectionNotAvailableException {
-        return sendReadMessage(message, getReadServer());
+        return sendReadMessage(message, (String) null);
+    }
+
+    /**
+     * Sends a text message (only read access) to the Neo4j cluster and waits for a reply. If the read server does not
+     * answer, the message is retried on another read server.
+     * @param message text json message
+     * @param routingKey key used to choose the read server by consistent hashing (null for round robin)
+     * @return result text json message
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public String sendReadMessage(final String message, final String routingKey) throws ConnectionNotAvailableException {
+        return sendReadMessageWithRetries(getReadServer(routingKey), readSender(message));
+    }
+
+    /**
+     * Sends a binary message (only read access) to the Neo4j cluster and waits for a reply. If the read server does not
+     * answer, the message is retried on another read server.
+     * @param message binary json message
+     * @param routingKey key used to choose the read server by consistent hashing (null for round robin)
+     * @return result binary json message
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public byte[] sendReadMessage(final byte[] message, final String routingKey) throws ConnectionNotAvailableException {
+        return sendReadMessageWithRetries(getReadServer(routingKey), readSender(message));
     }
 
     /**
@@ -437,36 +1045,232 @@ public class Database implements ClusterListener {
      * @throws ConnectionNotAvailableException no connection to server exception
      */
     public String sendReadMessage(final String message, final Server server) throws ConnectionNotAvailableException{
-        DataConnection connection = server.getConnection();
+        return sendReadMessageWithResult(server, readSender(message));
+    }
 
-        if (connection == null) {
-            throw new ConnectionNotAvailableException(server);
+    /**
+     * Sends a message (only read access) to the Neo4j cluster and waits for a reply.
+     * @param message binary json message
+     * @param server server that shall be used to send the message
+     * @return result binary json message
+     * @throws ConnectionNotAvailableException no connection to server exception
+     */
+    public byte[] sendReadMessage(final byte[] message, final Server server) throws ConnectionNotAvailableException{
+        return sendReadMessageWithResult(server, readSender(message));
+    }
+
+    /**
+     * Sends a text message (only read access) preferably to the given read server and waits for a reply. If the
+     * server is ejected by its circuit breaker or does not answer, the message is sent to another read server.
+     * @param message text json message
+     * @param server read server that shall be used first
+     * @return result text json message
+     * @throws ConnectionNotAvailableException no reply from any server exception
+     */
+    public String sendReadMessageWithRetries(final String message, final Server server) throws ConnectionNotAvailableException {
+        return sendReadMessageWithRetries(server, readSender(message));
+    }
+
+    /**
+     * Sends a binary message (only read access) preferably to the given read server and waits for a reply. If the
+     * server is ejected by its circuit breaker or does not answer, the message is sent to another read server.
+     * @param message binary json message
+     * @param server read server that shall be used first
+     * @return result binary json message
+     * @throws ConnectionNotAvailableException no reply from any server exception
+     */
+    public byte[] sendReadMessageWithRetries(final byte[] message, final Server server) throws ConnectionNotAvailableException {
+        return sendReadMessageWithRetries(server, readSender(message));
+    }
+
+    /**
+     * Sends a read message and retries it on another read server up to {@link ApplicationSettings#readRetries()} times
+     * if no reply is received. Retries wait for an exponential backoff with jitter and are only done as long as the
+     * retry budget of all read messages is not exhausted, so retries do not multiply the load of a failing cluster.
+     * If the given server has been ejected in the meantime, another read server is used for the first attempt.
+     * @param server read server to be used for the first attempt
+     * @param sender sends the message through the data connection and returns the reply
+     * @param <T> message format (text or binary)
+     * @return reply of the server
+     * @throws ConnectionNotAvailableException no reply from any server exception
+     */
+    protected <T> T sendReadMessageWithRetries(final Server server, final Function<DataConnection,T> sender)
+            throws ConnectionNotAvailableException
+    {
+        Server currentServer = (server != null && server.getCircuitBreaker().isCallPermitted())
+                ? server
+                : getRetryServer(server);
+
+        retryBudget.onRequest();
+
+        for (int attempt = 0;; attempt++) {
+            try {
+                return sendReadMessageWithResult(currentServer, sender);
+            }
+            catch (ConnectionNotAvailableException e) {
+                if (attempt >= ApplicationSettings.readRetries()) {
+                    throw e;
+                }
+                if (!retryBudget.tryWithdraw()) {
+                    databaseMetrics.increment(DatabaseMetrics.RETRY_BUDGET_EXHAUSTED);
+                    throw e;
+                }
+
+                try {
+                    TimeUnit.MILLISECONDS.sleep(getRetryBackoff(attempt));
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+
+                databaseMetrics.increment(DatabaseMetrics.READ_RETRIES);
+                currentServer = getRetryServer(currentServer);
+
+                logger.debug("[sendReadMessageWithRetries] retry {} on server '{}'",
+                        attempt + 1, (currentServer == null) ? "NULL" : currentServer.getManagementUri());
+            }
         }
+    }
 
-        String result = connection.sendWithResult(message);
+    /**
+     * Calculates the backoff before a retry: a random duration up to the exponentially growing backoff (full jitter).
+     * @param attempt number of the failed attempt (starting with 0)
+     * @return backoff in milliseconds
+     */
+    protected long getRetryBackoff(final int attempt) {
+        long backoff = Math.min(ApplicationSettings.retryBackoffMillis() << Math.min(attempt, 30),
+                ApplicationSettings.retryMaxBackoffMillis());
 
-        server.returnConnection(connection);
+        return (backoff <= 0) ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
 
-        return result;
+    /**
+     * Gets the read server for a retry, which is the least loaded read server other than the failed one. If there is
+     * no other read server, a read server is chosen as usual (which might be the failed one again after a failover).
+     * @param failedServer server that did not answer (may be null)
+     * @return server for the retry or null if no server is available
+     */
+    protected Server getRetryServer(final Server failedServer) {
+        Server retryServer = null;
+
+        for (Server server : readServers) {
+            if (server == failedServer || !server.getCircuitBreaker().isCallPermitted()) {
+                continue;
+            }
+            if (retryServer == null || server.getLoad() < retryServer.getLoad()) {
+                retryServer = server;
+            }
+        }
+
+        return (retryServer == null) ? getReadServer() : retryServer;
     }
 
     /**
-     * Sends a message (only read access) to the Neo4j cluster and waits for a reply.
+     * Creates the sender of a text read message, which waits up to {@link ApplicationSettings#readAnswerTimeoutMillis()}
+     * for the reply.
+     * @param message text json message
+     * @return message sender
+     */
+    protected Function<DataConnection,String> readSender(final String message) {
+        return connection -> connection.sendWithResult(message, ApplicationSettings.readAnswerTimeoutMillis());
+    }
+
+    /**
+     * Creates the sender of a binary read message, which waits up to
+     * {@link ApplicationSettings#readAnswerTimeoutMillis()} for the reply.
      * @param message binary json message
+     * @return message sender
+     */
+    protected Function<DataConnection,byte[]> readSender(final byte[] message) {
+        return connection -> connection.sendWithResult(message, ApplicationSettings.readAnswerTimeoutMillis());
+    }
+
+    /**
+     * Sends a read message through a data connection of a server guarded by the server's circuit breaker. The outcome
+     * is reported to the circuit breaker; a missing reply (connection failure, send failure or timeout) counts as
+     * failure. Write messages are not guarded, so a slow master is never ejected for writes.
      * @param server server that shall be used to send the message
-     * @return result binary json message
-     * @throws ConnectionNotAvailableException no connection to server exception
+     * @param sender sends the message through the data connection and returns the reply
+     * @param <T> message format (text or binary)
+     * @return reply of the server
+     * @throws ConnectionNotAvailableException server ejected, no connection to server or no reply from server exception
      */
-    public byte[] sendReadMessage(final byte[] message, final Server server) throws ConnectionNotAvailableException{
+    protected <T> T sendReadMessageWithResult(final Server server, final Function<DataConnection,T> sender)
+            throws ConnectionNotAvailableException
+    {
+        if (server == null) {
+            throw new ConnectionNotAvailableException(null);
+        }
+
+        CircuitBreaker circuitBreaker = server.getCircuitBreaker();
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            databaseMetrics.increment(DatabaseMetrics.REQUESTS_REJECTED);
+            throw new ConnectionNotAvailableException(server);
+        }
+
+        long start = System.nanoTime();
+        boolean isAnswered = false;
+
+        try {
+            T result = sendMessageWithResult(server, sender);
+            isAnswered = true;
+            return result;
+        }
+        finally {
+            // every taken permission is answered by an outcome, so a trial request of a half open circuit is not lost
+            if (isAnswered) {
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+            }
+            else {
+                circuitBreaker.onFailure(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Sends a message through a data connection of a server, waits for the reply and records the latency of the
+     * server's zone. If no reply is received (send failure or timeout), the connection is discarded.
+     * @param server server that shall be used to send the message
+     * @param sender sends the message through the data connection and returns the reply
+     * @param <T> message format (text or binary)
+     * @return reply of the server
+     * @throws ConnectionNotAvailableException no connection to server or no reply from server exception
+     */
+    protected <T> T sendMessageWithResult(final Server server, final Function<DataConnection,T> sender)
+            throws ConnectionNotAvailableException
+    {
+        if (server == null) {
+            throw new ConnectionNotAvailableException(null);
+        }
+
         DataConnection connection = server.getConnection();
 
         if (connection == null) {
             throw new ConnectionNotAvailableException(server);
         }
 
-        byte[] result = connection.sendWithResult(message);
+        long start = System.nanoTime();
+        T result = null;
 
-        server.returnConnection(connection);
+        try {
+            result = sender.apply(connection);
+        }
+        finally {
+            databaseMetrics.recordLatency(DatabaseMetrics.ZONE_LATENCY + server.getZone(), System.nanoTime() - start);
+
+            if (result == null) {
+                server.discardConnection(connection);
+            }
+            else {
+                server.returnConnection(connection);
+            }
+        }
+
+        if (result == null) {
+            throw new ConnectionNotAvailableException(server);
+        }
 
         return result;
     }
@@ -0,0 +1,21 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+/**
+ * This interface shall be used to inform the client about nodes and relationships changed in the cluster.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public interface InvalidationListener {
+    /**
+     * Called when nodes or relationships have been changed or deleted by committed transactions.
+     * @param nodeIds ids of changed nodes
+     * @param relationshipIds ids of changed relationships
+     */
+    void onEntitiesInvalidated(final long[] nodeIds, final long[] relationshipIds);
+
+    /**
+     * Called when invalidations might have been missed (e.g. the connection to the master was lost).
+     */
+    void onInvalidationsLost();
+}
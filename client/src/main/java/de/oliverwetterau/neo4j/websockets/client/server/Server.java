@@ -6,13 +6,18 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
 import de.oliverwetterau.neo4j.websockets.client.web.DataConnection;
 import de.oliverwetterau.neo4j.websockets.client.web.ManagementConnection;
+import de.oliverwetterau.neo4j.websockets.core.data.CatalogParameters;
 import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
 import de.oliverwetterau.neo4j.websockets.core.i18n.ThreadLocale;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -38,6 +43,12 @@ public class Server implements Comparable<Server> {
     protected String id = "";
     /** is this server a master / write server? */
     protected boolean isMaster;
+    /** zone (e.g. rack or data center) of this server */
+    protected String zone = "";
+    /** websocket uris of all cluster members (by cluster id) as advertised by this server on registration */
+    protected Map<String,String> members = Collections.emptyMap();
+    /** message methods published by this server on registration (null if not published) */
+    protected JsonNode catalog = null;
 
     /** list of all available and free data connections to this server */
     protected final Queue<DataConnection> availableConnections = new ConcurrentLinkedQueue<>();
@@ -46,23 +57,51 @@ public class Server implements Comparable<Server> {
     /** management connection to this server */
     protected final ManagementConnection managementConnection;
 
+    /** have all connections to this server been closed for good? */
+    protected volatile boolean isClosed = false;
+
     /** binary or text web socket connection? */
     protected final boolean isBinary;
+    /** ejects this server if it fails or answers too slowly too often */
+    protected final CircuitBreaker circuitBreaker;
 
     /**
      * Constructor
      * @param clusterListener listener that will be informed about changes in the cluster configuration
-     * @param uri base uri of the Neo4j server
+     * @param uri base uri of the Neo4j server, optionally followed by "#" and the zone of the server
      * @param threadLocale language settings
      * @param isBinary use binary or text format?
      */
     public Server(final ClusterListener clusterListener, final String uri, final ThreadLocale threadLocale, final boolean isBinary) {
-        this.managementUri = uri + ApplicationSettings.managementPath();
-        this.dataUri = uri + ApplicationSettings.dataPath();
+        this(clusterListener, null, uri, threadLocale, isBinary);
+    }
+
+    /**
+     * Constructor
+     * @param clusterListener listener that will be informed about changes in the cluster configuration
+     * @param circuitBreakerListener listener that will be informed about ejection and restoration of this server
+     * @param uri base uri of the Neo4j server, optionally followed by "#" and the zone of the server
+     * @param threadLocale language settings
+     * @param isBinary use binary or text format?
+     */
+    public Server(final ClusterListener clusterListener, final CircuitBreakerListener circuitBreakerListener,
+                  final String uri, final ThreadLocale threadLocale, final boolean isBinary)
+    {
+        int zoneSeparator = uri.indexOf('#');
+        String baseUri = uri;
+
+        if (zoneSeparator >= 0) {
+            baseUri = uri.substring(0, zoneSeparator);
+            this.zone = uri.substring(zoneSeparator + 1);
+        }
+
+        this.managementUri = baseUri + ApplicationSettings.managementPath();
+        this.dataUri = baseUri + ApplicationSettings.dataPath();
         this.threadLocale = threadLocale;
         this.isBinary = isBinary;
 
         this.managementConnection = new ManagementConnection(clusterListener, managementUri);
+        this.circuitBreaker = new CircuitBreaker(this, circuitBreakerListener);
     }
 
     /**
@@ -81,6 +120,38 @@ public class Server implements Comparable<Server> {
         return id;
     }
 
+    /**
+     * Gets the zone (e.g. rack or data center) of this server.
+     * @return zone of this server, empty if unknown
+     */
+    public String getZone() {
+        return zone;
+    }
+
+    /**
+     * Gets the circuit breaker of this server.
+     * @return circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Gets the websocket uris of all cluster members as advertised by this server on registration.
+     * @return websocket uris by cluster id
+     */
+    public Map<String,String> getMembers() {
+        return members;
+    }
+
+    /**
+     * Gets the message methods published by this server on registration.
+     * @return method attributes by method name by service name, null if not published
+     */
+    public JsonNode getCatalog() {
+        return catalog;
+    }
+
     /**
      * Gets the full Neo4j server uri for the management connection.
      * @return Neo4j server uri for management connection
@@ -121,19 +192,48 @@ public class Server implements Comparable<Server> {
         objectNode.put(CommandParameters.METHOD, "register");
 
         try {
-            jsonNode = objectMapper.readTree(managementConnection.sendWithResult(objectMapper.writeValueAsBytes(objectNode)));
+            byte[] reply = managementConnection.sendWithResult(objectMapper.writeValueAsBytes(objectNode));
+
+            if (reply == null) {
+                logger.error("[register] no reply from server, uri = {}", getManagementUri());
+                return;
+            }
+
+            jsonNode = objectMapper.readTree(reply);
         }
         catch (Exception e) {
             logger.error("[register] could not register at server");
             return;
         }
 
+        if (!jsonNode.hasNonNull("id") || !jsonNode.hasNonNull("isMaster")) {
+            logger.error("[register] invalid reply from server, uri = {}, reply = {}", getManagementUri(), jsonNode);
+            return;
+        }
+
         id = jsonNode.get("id").asText();
         setMaster(jsonNode.get("isMaster").asBoolean());
+        if (zone.length() == 0 && jsonNode.has("zone")) {
+            zone = jsonNode.get("zone").asText();
+        }
+        if (jsonNode.has("members")) {
+            Map<String,String> advertisedMembers = new HashMap<>();
+            Iterator<Map.Entry<String,JsonNode>> fields = jsonNode.get("members").fields();
+
+            while (fields.hasNext()) {
+                Map.Entry<String,JsonNode> member = fields.next();
+                advertisedMembers.put(member.getKey(), member.getValue().asText());
+            }
+
+            members = advertisedMembers;
+        }
+        if (jsonNode.has(CatalogParameters.CATALOG)) {
+            catalog = jsonNode.get(CatalogParameters.CATALOG);
+        }
 
         managementConnection.setServerId(id);
 
-        logger.debug("[register] id = {}, isMaster = {}, uri = {}", getId(), isMaster(), getManagementUri());
+        logger.debug("[register] id = {}, isMaster = {}, zone = {}, uri = {}", getId(), isMaster(), getZone(), getManagementUri());
     }
 
     /**
@@ -170,7 +270,7 @@ public class Server implements Comparable<Server> {
 
     /**
      * Gets a connection from the pool of available and free data connections to this server.
-     * @return data connection to this server
+     * @return data connection to this server, null if no connection could be established
      */
     public DataConnection getConnection() {
         DataConnection connection;
@@ -197,6 +297,7 @@ public class Server implements Comparable<Server> {
         }
 
         connection.setLocale(threadLocale.getLocale());
+        usedConnections.add(connection);
 
         return connection;
     }
@@ -206,7 +307,7 @@ public class Server implements Comparable<Server> {
      * @param connection data connection to this server
      */
     public void returnConnection(DataConnection connection) {
-        if (connection.isUsable()) {
+        if (connection.isUsable() && !isClosed) {
             connection.setLastUsage(new Date());
             availableConnections.add(connection);
         }
@@ -217,6 +318,55 @@ public class Server implements Comparable<Server> {
         usedConnections.remove(connection);
     }
 
+    /**
+     * Opens data connections in advance, so the first requests to this server do not have to wait for them.
+     * @param connections number of data connections to open
+     */
+    public void warmUp(final int connections) {
+        for (int i = availableConnections.size(); i < connections; i++) {
+            DataConnection connection = new DataConnection(getDataUri());
+
+            try {
+                connection.connect();
+            }
+            catch (Exception e) {
+                logger.error("[warmUp] could not connect to database", e);
+                return;
+            }
+
+            availableConnections.add(connection);
+        }
+    }
+
+    /**
+     * Closes all connections to this server for good.
+     */
+    public void close() {
+        isClosed = true;
+        managementConnection.close();
+
+        for (DataConnection connection = availableConnections.poll(); connection != null; connection = availableConnections.poll()) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes a connection that did not answer properly instead of returning it to the pool.
+     * @param connection data connection to this server
+     */
+    public void discardConnection(DataConnection connection) {
+        connection.close();
+        usedConnections.remove(connection);
+    }
+
+    /**
+     * Gets the number of data connections to this server currently in use.
+     * @return number of concurrent requests
+     */
+    public int getLoad() {
+        return usedConnections.size();
+    }
+
     /**
      * Compares two servers using their Neo4j cluster ids.
      * @param o other server to compare with
@@ -0,0 +1,230 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import de.oliverwetterau.neo4j.websockets.client.web.DataConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Bounded queue of write messages that have been issued while no master / write server was available. The messages
+ * are held until a new master has been elected or until their deadline has passed.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class WriteBuffer {
+    /**
+     * A single buffered write message.
+     * @param <T> message format (text or binary)
+     */
+    public static class PendingWrite<T> {
+        /**
+         * Life cycle of a buffered message. Only a message that is still pending may be sent or expire, so a message
+         * that is being sent is never reported as failed to the caller while the master executes it.
+         */
+        public enum State {
+            PENDING, SENDING, DONE
+        }
+
+        /** sends the message through a data connection and returns the reply */
+        protected final Function<DataConnection,T> sender;
+        /** reply of the master / write server */
+        protected final CompletableFuture<T> future = new CompletableFuture<>();
+        /** time the message was buffered (System.nanoTime()) */
+        protected final long bufferedAt;
+        /** time after which the message will not be sent anymore (System.nanoTime()) */
+        protected final long deadline;
+        /** current state of the message */
+        protected final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+        /** has the message failed because its deadline passed? */
+        protected volatile boolean isExpired = false;
+
+        protected PendingWrite(final Function<DataConnection,T> sender, final long timeoutMillis) {
+            this.sender = sender;
+            this.bufferedAt = System.nanoTime();
+            this.deadline = bufferedAt + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        /**
+         * Gets the function that sends the message.
+         * @return message sender
+         */
+        public Function<DataConnection,T> getSender() {
+            return sender;
+        }
+
+        /**
+         * Gets the time the message was buffered.
+         * @return time in nanoseconds (System.nanoTime())
+         */
+        public long getBufferedAt() {
+            return bufferedAt;
+        }
+
+        /**
+         * Gets whether the deadline of this message has passed.
+         * @return has the deadline passed?
+         */
+        public boolean isPastDeadline() {
+            return System.nanoTime() - deadline >= 0;
+        }
+
+        /**
+         * Gets whether the message has failed because its deadline passed.
+         * @return has the message expired?
+         */
+        public boolean isExpired() {
+            return isExpired;
+        }
+
+        /**
+         * Gets the current state of the message.
+         * @return pending, sending or done
+         */
+        public State getState() {
+            return state.get();
+        }
+
+        /**
+         * Gets whether this message has already been answered, failed or expired.
+         * @return is this message done?
+         */
+        public boolean isDone() {
+            return state.get() == State.DONE;
+        }
+
+        /**
+         * Claims a pending message for sending it. A claimed message cannot expire anymore.
+         * @return true, if the message was pending and may be sent by the caller
+         */
+        public boolean startSending() {
+            return state.compareAndSet(State.PENDING, State.SENDING);
+        }
+
+        /**
+         * Sets the reply of the master / write server.
+         * @param result reply
+         */
+        public void complete(final T result) {
+            state.set(State.DONE);
+            future.complete(result);
+        }
+
+        /**
+         * Marks this message as failed.
+         * @param e reason
+         * @return true, if the message had not been done before
+         */
+        public boolean fail(final ConnectionNotAvailableException e) {
+            if (state.getAndSet(State.DONE) == State.DONE) {
+                return false;
+            }
+
+            return future.completeExceptionally(e);
+        }
+
+        /**
+         * Marks this message as failed because its deadline passed, unless it is already being sent.
+         * @return true, if the message was pending and has expired
+         */
+        public boolean expire() {
+            if (!state.compareAndSet(State.PENDING, State.DONE)) {
+                return false;
+            }
+
+            isExpired = true;
+            return future.completeExceptionally(new ConnectionNotAvailableException(null));
+        }
+
+        /**
+         * Waits until the message has been sent or its deadline has passed. A message that is being sent when the
+         * deadline passes is waited for until the master has answered it.
+         * @return reply of the master / write server
+         * @throws ConnectionNotAvailableException no new master within the deadline or no reply from it
+         */
+        public T await() throws ConnectionNotAvailableException {
+            try {
+                try {
+                    future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                }
+                catch (TimeoutException e) {
+                    if (!expire()) {
+                        future.get();
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (state.compareAndSet(State.PENDING, State.DONE)) {
+                    future.completeExceptionally(new ConnectionNotAvailableException(null));
+                }
+                throw new ConnectionNotAvailableException(null);
+            }
+            catch (ExecutionException ignored) {
+            }
+
+            try {
+                return future.join();
+            }
+            catch (CompletionException | CancellationException e) {
+                if (e.getCause() instanceof ConnectionNotAvailableException) {
+                    throw (ConnectionNotAvailableException) e.getCause();
+                }
+                throw new ConnectionNotAvailableException(null);
+            }
+        }
+    }
+
+    /** buffered write messages in the order they have been issued */
+    protected final BlockingQueue<PendingWrite<?>> pendingWrites;
+
+    /**
+     * Constructor
+     * @param capacity maximum number of buffered messages
+     */
+    public WriteBuffer(final int capacity) {
+        this.pendingWrites = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Buffers a write message.
+     * @param sender sends the message through a data connection and returns the reply
+     * @param timeoutMillis time the message may wait for a new master
+     * @param <T> message format (text or binary)
+     * @return buffered message or null if the buffer is full
+     */
+    public <T> PendingWrite<T> add(final Function<DataConnection,T> sender, final long timeoutMillis) {
+        PendingWrite<T> pendingWrite = new PendingWrite<>(sender, timeoutMillis);
+
+        return pendingWrites.offer(pendingWrite) ? pendingWrite : null;
+    }
+
+    /**
+     * Removes all buffered messages from the buffer.
+     * @return buffered messages in the order they have been issued
+     */
+    public List<PendingWrite<?>> drain() {
+        List<PendingWrite<?>> drainedWrites = new ArrayList<>(pendingWrites.size());
+        pendingWrites.drainTo(drainedWrites);
+
+        return drainedWrites;
+    }
+
+    /**
+     * Gets whether there are buffered messages.
+     * @return is the buffer empty?
+     */
+    public boolean isEmpty() {
+        return pendingWrites.isEmpty();
+    }
+}
@@ -1,5 +1,6 @@
 package de.oliverwetterau.neo4j.websockets.client.web;
 
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.socket.client.WebSocketClient;
@@ -20,7 +21,6 @@ import java.util.concurrent.TimeUnit;
 public class DataConnection implements Comparable<DataConnection> {
     private static Logger logger = LoggerFactory.getLogger(DataConnection.class);
     protected static int WEBSOCKET_TIMEOUT = 15;
-    protected static int ANSWER_TIMEOUT = 600;
     protected static long MAXIMUM_AGE_IN_MINUTES = 10;
 
     protected final WebSocketConnectionManager webSocketConnectionManager;
@@ -139,16 +139,31 @@ public class DataConnection implements Comparable<DataConnection> {
     }
 
     /**
-     * Sends a text message to the connected Neo4j server and waits for a reply.
+     * Sends a text message to the connected Neo4j server and waits for a reply up to
+     * {@link ApplicationSettings#answerTimeoutMillis()}.
      * @param message text json message
-     * @return result text json message
+     * @return result text json message, null if the message could not be sent or no reply arrived in time
      */
     public String sendWithResult(final String message) {
+        return sendWithResult(message, ApplicationSettings.answerTimeoutMillis());
+    }
+
+    /**
+     * Sends a text message to the connected Neo4j server and waits for a reply.
+     * @param message text json message
+     * @param timeoutMillis time to wait for the reply
+     * @return result text json message, null if the message could not be sent or no reply arrived in time
+     */
+    public String sendWithResult(final String message, final long timeoutMillis) {
         synchronized (webSocketHandler.getNotifyResultObject()) {
-            webSocketHandler.sendMessage(message);
+            webSocketHandler.clearResult();
+
+            if (!webSocketHandler.sendMessage(message)) {
+                return null;
+            }
 
             try {
-                webSocketHandler.getNotifyResultObject().wait(TimeUnit.SECONDS.toMillis(ANSWER_TIMEOUT));
+                webSocketHandler.getNotifyResultObject().wait(timeoutMillis);
             }
             catch (InterruptedException e) {
                 return null;
@@ -159,16 +174,31 @@ public class DataConnection implements Comparable<DataConnection> {
     }
 
     /**
-     * Sends a binary message to the connected Neo4j server and waits for a reply.
+     * Sends a binary message to the connected Neo4j server and waits for a reply up to
+     * {@link ApplicationSettings#answerTimeoutMillis()}.
      * @param message binary json message
-     * @return result binary json message
+     * @return result binary json message, null if the message could not be sent or no reply arrived in time
      */
     public byte[] sendWithResult(final byte[] message) {
+        return sendWithResult(message, ApplicationSettings.answerTimeoutMillis());
+    }
+
+    /**
+     * Sends a binary message to the connected Neo4j server and waits for a reply.
+     * @param message binary json message
+     * @param timeoutMillis time to wait for the reply
+     * @return result binary json message, null if the message could not be sent or no reply arrived in time
+     */
+    public byte[] sendWithResult(final byte[] message, final long timeoutMillis) {
         synchronized (webSocketHandler.getNotifyResultObject()) {
-            webSocketHandler.sendMessage(message);
+            webSocketHandler.clearResult();
+
+            if (!webSocketHandler.sendMessage(message)) {
+                return null;
+            }
 
             try {
-                webSocketHandler.getNotifyResultObject().wait(TimeUnit.SECONDS.toMillis(ANSWER_TIMEOUT));
+                webSocketHandler.getNotifyResultObject().wait(timeoutMillis);
             }
             catch (InterruptedException e) {
                 return null;
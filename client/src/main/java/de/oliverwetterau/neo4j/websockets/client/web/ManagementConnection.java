@@ -35,6 +35,8 @@ public class ManagementConnection implements ConnectionListener {
     protected boolean isAvailable = true;
     /** the id of the Neo4j server */
     protected String serverId = "";
+    /** has this connection been closed for good (no reconnection attempts)? */
+    protected boolean isClosed = false;
 
     /** timer used for reconnection attempts */
     protected Timer timer;
@@ -128,6 +130,10 @@ public class ManagementConnection implements ConnectionListener {
 
         webSocketConnectionManager.stop();
 
+        if (isClosed) {
+            return;
+        }
+
         timer = new Timer();
 
         timer.schedule(new TimerTask() {
@@ -159,6 +165,19 @@ public class ManagementConnection implements ConnectionListener {
         }, TimeUnit.SECONDS.toMillis(WEBSOCKET_TIMEOUT), TimeUnit.SECONDS.toMillis(WEBSOCKET_RECONNECT_TIMEOUT));
     }
 
+    /**
+     * Closes this connection for good without any further reconnection attempts.
+     */
+    public void close() {
+        isClosed = true;
+
+        if (timer != null) {
+            timer.cancel();
+        }
+
+        webSocketConnectionManager.stop();
+    }
+
     /**
      * Returns whether this connection has an active websocket connection to its server.
      * @return does this connection have an active websocket connection?
@@ -179,11 +198,16 @@ public class ManagementConnection implements ConnectionListener {
     /**
      * Sends a message through it's websocket connection to the server and waits for the reply.
      * @param message json message in binary format
-     * @return answer from the server in json binary format
+     * @return answer from the server in json binary format, null if the message could not be sent or no reply arrived
+     * in time
      */
     public byte[] sendWithResult(final byte[] message) {
         synchronized (webSocketHandler.getNotifyResultObject()) {
-            webSocketHandler.sendMessage(message);
+            webSocketHandler.clearResult();
+
+            if (!webSocketHandler.sendMessage(message)) {
+                return null;
+            }
 
             try {
                 webSocketHandler.getNotifyResultObject().wait(TimeUnit.SECONDS.toMillis(ANSWER_TIMEOUT));
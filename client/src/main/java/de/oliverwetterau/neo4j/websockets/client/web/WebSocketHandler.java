@@ -103,13 +103,16 @@ public class WebSocketHandler extends TextWebSocketHandler {
     }
 
     protected void handleMessage(final Object message, final boolean isBinary) {
+        byte[] messageBytes = null;
+        String messageString = null;
+
         if (isBinary) {
             BinaryMessage binaryMessage = (BinaryMessage) message;
-            resultBytes = new byte[binaryMessage.getPayloadLength()];
-            binaryMessage.getPayload().get(resultBytes);
+            messageBytes = new byte[binaryMessage.getPayloadLength()];
+            binaryMessage.getPayload().get(messageBytes);
         }
         else {
-            resultString = ((TextMessage) message).getPayload();
+            messageString = ((TextMessage) message).getPayload();
         }
 
         if (clusterListener != null) {
@@ -117,31 +120,76 @@ public class WebSocketHandler extends TextWebSocketHandler {
 
             try {
                 if (isBinary) {
-                    jsonNode = jsonObjectMapper.getObjectMapperBinary().readTree(resultBytes);
+                    jsonNode = jsonObjectMapper.getObjectMapperBinary().readTree(messageBytes);
                 }
                 else {
-                    jsonNode = jsonObjectMapper.getObjectMapperText().readTree(resultString);
+                    jsonNode = jsonObjectMapper.getObjectMapperText().readTree(messageString);
                 }
             }
             catch (Exception e) {
                 logger.error("[handleMessage]", e);
             }
 
-            if (jsonNode != null) {
-                if (jsonNode.has("available")) {
-                    clusterListener.onServerAvailable(jsonNode.get("available").asText(), jsonNode.get("role").asText());
-                }
-                else if (jsonNode.has("unavailable")) {
-                    clusterListener.onServerUnavailable(jsonNode.get("unavailable").asText());
-                }
+            // cluster events and invalidations are broadcast by the server, they are no reply to a sent message
+            if (jsonNode != null && handleClusterEvent(jsonNode)) {
+                return;
             }
         }
 
         synchronized (notifyResultObject) {
+            resultBytes = messageBytes;
+            resultString = messageString;
             notifyResultObject.notifyAll();
         }
     }
 
+    /**
+     * Passes a cluster event or an invalidation broadcast by the server to the cluster listener.
+     * @param jsonNode received message
+     * @return true, if the message was a cluster event or an invalidation
+     */
+    protected boolean handleClusterEvent(final JsonNode jsonNode) {
+        if (jsonNode.has("available")) {
+            if (jsonNode.has("uri")) {
+                clusterListener.onServerDiscovered(jsonNode.get("available").asText(), jsonNode.get("uri").asText());
+            }
+            clusterListener.onServerAvailable(jsonNode.get("available").asText(), jsonNode.get("role").asText());
+        }
+        else if (jsonNode.has("discovered")) {
+            clusterListener.onServerDiscovered(jsonNode.get("discovered").asText(), jsonNode.get("uri").asText());
+        }
+        else if (jsonNode.has("unavailable")) {
+            clusterListener.onServerUnavailable(jsonNode.get("unavailable").asText());
+        }
+        else if (jsonNode.has("failed")) {
+            clusterListener.onServerFailed(jsonNode.get("failed").asText());
+        }
+        else if (jsonNode.has("invalidate")) {
+            JsonNode invalidateNode = jsonNode.get("invalidate");
+            clusterListener.onEntitiesInvalidated(toIds(invalidateNode.path("n")), toIds(invalidateNode.path("r")));
+        }
+        else {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Converts a json array of entity ids.
+     * @param arrayNode json array of ids
+     * @return ids
+     */
+    protected static long[] toIds(final JsonNode arrayNode) {
+        long[] ids = new long[arrayNode.size()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = arrayNode.get(i).asLong();
+        }
+
+        return ids;
+    }
+
     /**
      * Handles an incoming text messages.
      * @param webSocketSession websocket session the message was received from
@@ -191,29 +239,43 @@ public class WebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * Forgets the last received result, so a missing reply to the next message can be detected.
+     */
+    public void clearResult() {
+        resultString = null;
+        resultBytes = null;
+    }
+
     /**
      * Sends a text message using this object's websocket session.
      * @param message json binary message
+     * @return true, if the message has been sent
      */
-    public void sendMessage(final String message) {
+    public boolean sendMessage(final String message) {
         try {
             session.sendMessage(new TextMessage(message));
+            return true;
         }
-        catch (IOException e) {
+        catch (IOException | RuntimeException e) {
             logger.error("[sendTextMessage]", e);
+            return false;
         }
     }
 
     /**
      * Sends a binary message using this object's websocket session.
      * @param message json binary message
+     * @return true, if the message has been sent
      */
-    public void sendMessage(final byte[] message) {
+    public boolean sendMessage(final byte[] message) {
         try {
             session.sendMessage(new BinaryMessage(message));
+            return true;
         }
-        catch (IOException e) {
+        catch (IOException | RuntimeException e) {
             logger.error("[sendBinaryMessage]", e);
+            return false;
         }
     }
 
@@ -0,0 +1,14 @@
+package de.oliverwetterau.neo4j.websockets.client.write;
+
+/**
+ * Defines when a write sent through the write behind queue is acknowledged.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public enum WriteAcknowledgement {
+    /** the write is acknowledged as soon as it has been queued, failures of its batch are only logged and counted */
+    ENQUEUE,
+    /** the write is acknowledged after the batch containing it has been committed by the master */
+    COMMIT
+}
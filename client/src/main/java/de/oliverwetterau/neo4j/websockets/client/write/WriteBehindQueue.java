@@ -0,0 +1,258 @@
+package de.oliverwetterau.neo4j.websockets.client.write;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.helpers.ExceptionConverter;
+import de.oliverwetterau.neo4j.websockets.core.helpers.ThreadBinary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Queues write messages locally and sends them to the master in batches, either as soon as
+ * {@link ApplicationSettings#writeBehindBatchSize()} messages have been queued or
+ * {@link ApplicationSettings#writeBehindFlushMillis()} after the first message of a batch has been queued. The master
+ * executes all messages of a batch in a single transaction, so a failing message rolls back its whole batch.
+ * If the queue is full, writes wait up to {@link ApplicationSettings#writeBehindBlockMillis()} for free space and are
+ * rejected afterwards. Queued writes are sent in the order they have been queued.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class WriteBehindQueue {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    /**
+     * A queued write message.
+     */
+    protected static class QueuedWrite {
+        protected final ObjectNode message;
+        /** is the message sent in binary format? */
+        protected final boolean isBinary;
+        /** completed with the result of the batch after it has been committed (null if acknowledged on enqueue) */
+        protected final CompletableFuture<Result<JsonNode>> future;
+
+        protected QueuedWrite(final ObjectNode message, final boolean isBinary,
+                              final CompletableFuture<Result<JsonNode>> future)
+        {
+            this.message = message;
+            this.isBinary = isBinary;
+            this.future = future;
+        }
+    }
+
+    /** wrapper for json object mapper */
+    protected final JsonObjectMapper jsonObjectMapper;
+    /** counters of queued and sent writes */
+    protected final DatabaseMetrics databaseMetrics;
+    /** sends a batch message to the master and returns its answer */
+    protected final Function<ObjectNode,Result<JsonNode>> batchSender;
+    /** queued writes */
+    protected final BlockingQueue<QueuedWrite> queue;
+    /** thread sending the batches */
+    protected final Thread flushThread;
+    /** has the queue been closed? */
+    protected volatile boolean isClosed = false;
+    /** held while writes are queued (read lock) and while the queue is closed (write lock), so no write is queued
+     * after the queue has been drained for the last time */
+    protected final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructor
+     * @param jsonObjectMapper wrapper for json object mapper
+     * @param databaseMetrics counters of queued and sent writes
+     * @param batchSender sends a batch message to the master and returns its answer
+     */
+    public WriteBehindQueue(final JsonObjectMapper jsonObjectMapper, final DatabaseMetrics databaseMetrics,
+                            final Function<ObjectNode,Result<JsonNode>> batchSender)
+    {
+        this.jsonObjectMapper = jsonObjectMapper;
+        this.databaseMetrics = databaseMetrics;
+        this.batchSender = batchSender;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, ApplicationSettings.writeBehindQueueSize()));
+
+        flushThread = new Thread(this::run, "neo4j-websockets-write-behind");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    /**
+     * Queues a write message.
+     * @param message service name, method name, language settings and method parameters in one json node
+     * @param acknowledgement defines when the returned future is completed
+     * @return future completed with an empty result once the message has been queued or with the master's answer to
+     *         the batch once it has been committed; completed with an error if the queue is full or closed
+     */
+    public CompletableFuture<Result<JsonNode>> enqueue(final ObjectNode message, final WriteAcknowledgement acknowledgement) {
+        QueuedWrite write = new QueuedWrite(message, ThreadBinary.isBinary(),
+                (acknowledgement == WriteAcknowledgement.COMMIT) ? new CompletableFuture<>() : null);
+
+        closeLock.readLock().lock();
+
+        try {
+            if (isClosed) {
+                return CompletableFuture.completedFuture(
+                        new Result<JsonNode>(new Error(Error.WRITE_QUEUE_FULL, "write behind queue has been closed")));
+            }
+
+            if (!queue.offer(write, ApplicationSettings.writeBehindBlockMillis(), TimeUnit.MILLISECONDS)) {
+                databaseMetrics.increment(DatabaseMetrics.WRITES_BEHIND_REJECTED);
+                return CompletableFuture.completedFuture(
+                        new Result<JsonNode>(new Error(Error.WRITE_QUEUE_FULL, "write behind queue is full")));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(
+                    new Result<JsonNode>(new Error(Error.WRITE_QUEUE_FULL, ExceptionConverter.toString(e))));
+        }
+        finally {
+            closeLock.readLock().unlock();
+        }
+
+        databaseMetrics.increment(DatabaseMetrics.WRITES_BEHIND_QUEUED);
+
+        return (write.future == null) ? CompletableFuture.completedFuture(new Result<>()) : write.future;
+    }
+
+    /**
+     * Gets the number of queued writes.
+     * @return number of queued writes
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting writes and sends all queued writes before returning. Writes being queued while the queue is
+     * closed are either sent or rejected.
+     */
+    public void close() {
+        closeLock.writeLock().lock();
+
+        try {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        }
+        finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            flushThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<QueuedWrite> writes = new ArrayList<>();
+
+        while (queue.drainTo(writes, ApplicationSettings.writeBehindBatchSize()) > 0) {
+            send(writes);
+            writes.clear();
+        }
+    }
+
+    protected void run() {
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(ApplicationSettings.writeBehindFlushMillis());
+        List<QueuedWrite> writes = new ArrayList<>();
+
+        while (!isClosed) {
+            try {
+                QueuedWrite write = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+
+                if (write == null) {
+                    continue;
+                }
+
+                writes.add(write);
+                long deadline = System.nanoTime() + flushNanos;
+
+                while (writes.size() < ApplicationSettings.writeBehindBatchSize()) {
+                    long remainingNanos = deadline - System.nanoTime();
+
+                    if (remainingNanos <= 0 || (write = queue.poll(remainingNanos, TimeUnit.NANOSECONDS)) == null) {
+                        break;
+                    }
+                    writes.add(write);
+                }
+            }
+            catch (InterruptedException e) {
+                logger.warn("[run] interrupted while collecting a batch");
+            }
+
+            if (!writes.isEmpty()) {
+                send(writes);
+                writes.clear();
+            }
+        }
+    }
+
+    /**
+     * Sends writes in batches of consecutive messages of the same format.
+     * @param writes writes to be sent
+     */
+    protected void send(final List<QueuedWrite> writes) {
+        int start = 0;
+
+        for (int i = 1; i <= writes.size(); i++) {
+            if (i == writes.size() || writes.get(i).isBinary != writes.get(start).isBinary) {
+                sendBatch(writes.subList(start, i));
+                start = i;
+            }
+        }
+    }
+
+    protected void sendBatch(final List<QueuedWrite> writes) {
+        ObjectNode batchMessage = jsonObjectMapper.getObjectMapper().createObjectNode();
+        ArrayNode messages = batchMessage.putArray(CommandParameters.BATCH);
+
+        for (QueuedWrite write : writes) {
+            messages.add(write.message);
+        }
+
+        Result<JsonNode> result;
+
+        ThreadBinary.setBinary(writes.get(0).isBinary);
+
+        try {
+            result = batchSender.apply(batchMessage);
+        }
+        catch (RuntimeException e) {
+            logger.error("[sendBatch] could not send batch", e);
+            result = new Result<>(new Error(Error.EXCEPTION, ExceptionConverter.toString(e)));
+        }
+
+        databaseMetrics.increment(DatabaseMetrics.WRITE_BATCHES);
+        databaseMetrics.add(DatabaseMetrics.WRITES_BEHIND_SENT, writes.size());
+
+        if (!result.isOk()) {
+            databaseMetrics.increment(DatabaseMetrics.WRITE_BATCHES_FAILED);
+            logger.error("[sendBatch] batch of {} writes failed: {}", writes.size(), result.getErrors());
+        }
+
+        for (QueuedWrite write : writes) {
+            if (write.future != null) {
+                write.future.complete(result);
+            }
+        }
+    }
+}
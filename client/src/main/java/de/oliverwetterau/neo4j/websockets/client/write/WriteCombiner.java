@@ -0,0 +1,327 @@
+package de.oliverwetterau.neo4j.websockets.client.write;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.CombinedUpdateParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.helpers.ExceptionConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines property updates of nodes that are issued within {@link ApplicationSettings#writeCombineWindowMillis()}:
+ * increments of the same property are summed up and a property value replaces all earlier updates of the same
+ * property (last write wins). At the end of every window the combined updates of each message method are sent in a
+ * single write message, so hot nodes are locked once per window instead of once per update. On the server the method
+ * is expected to apply the updates in one transaction, e.g. by delegating to CombinedUpdateHandler.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class WriteCombiner {
+    private static final Logger logger = LoggerFactory.getLogger(WriteCombiner.class);
+
+    /**
+     * A combined update of a property of a node.
+     */
+    protected static class Update {
+        /** value to be set (null if the property is incremented) */
+        protected JsonNode value;
+        /** sum of all increments as long, as long as all increments are integral numbers */
+        protected long longDelta = 0;
+        /** sum of all increments */
+        protected double doubleDelta = 0;
+        /** are all increments integral numbers? */
+        protected boolean isIntegral = true;
+
+        protected void increment(final long delta) {
+            if (value != null) {
+                value = (value.isNumber() && !value.isIntegralNumber())
+                        ? JsonNodeFactory.instance.numberNode(value.asDouble() + delta)
+                        : JsonNodeFactory.instance.numberNode(value.asLong() + delta);
+                return;
+            }
+            longDelta += delta;
+            doubleDelta += delta;
+        }
+
+        protected void increment(final double delta) {
+            if (value != null) {
+                value = JsonNodeFactory.instance.numberNode(value.asDouble() + delta);
+                return;
+            }
+            isIntegral = false;
+            doubleDelta += delta;
+        }
+
+        protected void set(final JsonNode value) {
+            this.value = (value == null) ? JsonNodeFactory.instance.nullNode() : value;
+        }
+    }
+
+    /**
+     * The combined updates for one message method.
+     */
+    protected static class Updates {
+        protected final String service;
+        protected final String method;
+        /** updates by property name by node id (sorted by node id) */
+        protected final TreeMap<Long,Map<String,Update>> nodes = new TreeMap<>();
+        /** completed with the data server's answer once the updates have been sent */
+        protected final CompletableFuture<Result<JsonNode>> future = new CompletableFuture<>();
+
+        protected Updates(final String service, final String method) {
+            this.service = service;
+            this.method = method;
+        }
+    }
+
+    /**
+     * Sends a write message.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        /**
+         * Sends a write message.
+         * @param service the service of the data server to be used
+         * @param method the method of the service to be used
+         * @param parameters parameters of the method
+         * @return data server's answer
+         */
+        Result<JsonNode> send(String service, String method, JsonNode parameters);
+    }
+
+    /** wrapper for json object mapper */
+    protected final JsonObjectMapper jsonObjectMapper;
+    /** counters of combined and sent updates */
+    protected final DatabaseMetrics databaseMetrics;
+    /** sends a write message (service, method, parameters) and returns the data server's answer */
+    protected final Sender sender;
+    /** thread sending the combined updates at the end of every window */
+    protected final ScheduledExecutorService flushExecutor;
+    /** combined updates of the current window by service and method name */
+    protected Map<String,Updates> pending = new LinkedHashMap<>();
+    /** has the combiner been closed? */
+    protected boolean isClosed = false;
+
+    /**
+     * Constructor
+     * @param jsonObjectMapper wrapper for json object mapper
+     * @param databaseMetrics counters of combined and sent updates
+     * @param sender sends a write message and returns the data server's answer
+     */
+    public WriteCombiner(final JsonObjectMapper jsonObjectMapper, final DatabaseMetrics databaseMetrics,
+                         final Sender sender)
+    {
+        this.jsonObjectMapper = jsonObjectMapper;
+        this.databaseMetrics = databaseMetrics;
+        this.sender = sender;
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "neo4j-websockets-write-combiner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, ApplicationSettings.writeCombineWindowMillis(),
+                ApplicationSettings.writeCombineWindowMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Increments a property of a node by an integral number.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param nodeId node id
+     * @param property name of the property
+     * @param delta increment
+     * @return future completed with the data server's answer once the combined updates have been sent, completed with
+     *         an error if the combiner has been closed
+     */
+    public synchronized CompletableFuture<Result<JsonNode>> increment(final String service, final String method,
+                                                                      final long nodeId, final String property,
+                                                                      final long delta)
+    {
+        if (isClosed) {
+            return closedFuture();
+        }
+
+        Updates updates = getUpdates(service, method);
+        getUpdate(updates, nodeId, property).increment(delta);
+
+        return updates.future;
+    }
+
+    /**
+     * Increments a property of a node.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param nodeId node id
+     * @param property name of the property
+     * @param delta increment
+     * @return future completed with the data server's answer once the combined updates have been sent, completed with
+     *         an error if the combiner has been closed
+     */
+    public synchronized CompletableFuture<Result<JsonNode>> increment(final String service, final String method,
+                                                                      final long nodeId, final String property,
+                                                                      final double delta)
+    {
+        if (isClosed) {
+            return closedFuture();
+        }
+
+        Updates updates = getUpdates(service, method);
+        getUpdate(updates, nodeId, property).increment(delta);
+
+        return updates.future;
+    }
+
+    /**
+     * Sets a property of a node, replacing all earlier updates of the property within the current window.
+     * @param service the service of the data server to be used
+     * @param method the method of the service to be used
+     * @param nodeId node id
+     * @param property name of the property
+     * @param value value of the property (null removes the property)
+     * @return future completed with the data server's answer once the combined updates have been sent, completed with
+     *         an error if the combiner has been closed
+     */
+    public synchronized CompletableFuture<Result<JsonNode>> set(final String service, final String method,
+                                                                final long nodeId, final String property,
+                                                                final JsonNode value)
+    {
+        if (isClosed) {
+            return closedFuture();
+        }
+
+        Updates updates = getUpdates(service, method);
+        Update update = new Update();
+        update.set(value);
+
+        if (updates.nodes.computeIfAbsent(nodeId, id -> new HashMap<>()).put(property, update) != null) {
+            databaseMetrics.increment(DatabaseMetrics.UPDATES_COMBINED);
+        }
+
+        return updates.future;
+    }
+
+    /**
+     * Stops combining and sends all combined updates. Updates issued afterwards are rejected.
+     */
+    public void close() {
+        synchronized (this) {
+            isClosed = true;
+        }
+
+        flushExecutor.shutdown();
+
+        try {
+            flushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+    }
+
+    protected static CompletableFuture<Result<JsonNode>> closedFuture() {
+        return CompletableFuture.completedFuture(
+                new Result<JsonNode>(new Error(Error.WRITE_QUEUE_FULL, "write combiner has been closed")));
+    }
+
+    protected Updates getUpdates(final String service, final String method) {
+        return pending.computeIfAbsent(service + "/" + method, key -> new Updates(service, method));
+    }
+
+    protected Update getUpdate(final Updates updates, final long nodeId, final String property) {
+        Map<String,Update> properties = updates.nodes.computeIfAbsent(nodeId, id -> new HashMap<>());
+        Update update = properties.get(property);
+
+        if (update == null) {
+            update = new Update();
+            properties.put(property, update);
+        }
+        else {
+            databaseMetrics.increment(DatabaseMetrics.UPDATES_COMBINED);
+        }
+
+        return update;
+    }
+
+    /**
+     * Sends the combined updates of the current window, one write message per message method.
+     */
+    protected void flush() {
+        Map<String,Updates> updatesToSend;
+
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            updatesToSend = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        for (Updates updates : updatesToSend.values()) {
+            Result<JsonNode> result;
+
+            try {
+                result = sender.send(updates.service, updates.method, toParameters(updates));
+            }
+            catch (RuntimeException e) {
+                logger.error("[flush] could not send combined updates", e);
+                result = new Result<>(new Error(Error.EXCEPTION, ExceptionConverter.toString(e)));
+            }
+
+            databaseMetrics.increment(DatabaseMetrics.COMBINED_UPDATES_SENT);
+
+            if (!result.isOk()) {
+                logger.error("[flush] combined updates of {}/{} failed: {}", updates.service, updates.method,
+                        result.getErrors());
+            }
+
+            updates.future.complete(result);
+        }
+    }
+
+    protected JsonNode toParameters(final Updates updates) {
+        ObjectNode parameters = jsonObjectMapper.getObjectMapper().createObjectNode();
+        ArrayNode updateNodes = parameters.putArray(CombinedUpdateParameters.UPDATES);
+
+        for (Map.Entry<Long,Map<String,Update>> node : updates.nodes.entrySet()) {
+            for (Map.Entry<String,Update> property : node.getValue().entrySet()) {
+                Update update = property.getValue();
+                ObjectNode updateNode = updateNodes.addObject();
+
+                updateNode.put(CombinedUpdateParameters.NODE_ID, node.getKey());
+                updateNode.put(CombinedUpdateParameters.PROPERTY, property.getKey());
+
+                if (update.value != null) {
+                    updateNode.set(CombinedUpdateParameters.VALUE, update.value);
+                }
+                else if (update.isIntegral) {
+                    updateNode.put(CombinedUpdateParameters.DELTA, update.longDelta);
+                }
+                else {
+                    updateNode.put(CombinedUpdateParameters.DELTA, update.doubleDelta);
+                }
+            }
+        }
+
+        return parameters;
+    }
+}
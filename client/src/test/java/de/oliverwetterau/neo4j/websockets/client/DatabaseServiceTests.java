@@ -0,0 +1,159 @@
+package de.oliverwetterau.neo4j.websockets.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import de.oliverwetterau.neo4j.websockets.client.cache.ConditionalReadCache;
+import de.oliverwetterau.neo4j.websockets.client.cache.EntityCache;
+import de.oliverwetterau.neo4j.websockets.client.cache.ResultCache;
+import de.oliverwetterau.neo4j.websockets.client.cache.SingleFlight;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.client.server.Database;
+import de.oliverwetterau.neo4j.websockets.client.web.DefaultThreadLocale;
+import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.helpers.Hashing;
+import de.oliverwetterau.neo4j.websockets.core.helpers.ThreadBinary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class DatabaseServiceTests {
+    private boolean binaryCommunication;
+    private int conditionalReadCacheSize;
+    private JsonObjectMapper jsonObjectMapper;
+    private DatabaseMetrics databaseMetrics;
+    private TestDatabase database;
+    private DatabaseService databaseService;
+
+    /**
+     * Replies to read messages with the queued answers and records the sent messages.
+     */
+    private static class TestDatabase extends Database {
+        private final Queue<String> answers = new LinkedList<>();
+        private final List<JsonNode> messages = new ArrayList<>();
+        private final JsonObjectMapper jsonObjectMapper;
+
+        TestDatabase(final JsonObjectMapper jsonObjectMapper, final DatabaseMetrics databaseMetrics) {
+            super(jsonObjectMapper, new DefaultThreadLocale(), databaseMetrics, new MethodCatalog());
+            this.jsonObjectMapper = jsonObjectMapper;
+        }
+
+        @Override
+        public String sendReadMessage(final String message, final String routingKey) {
+            try {
+                messages.add(jsonObjectMapper.getObjectMapperText().readTree(message));
+            }
+            catch (Exception e) {
+                throw new IllegalArgumentException(message, e);
+            }
+
+            return answers.remove();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        binaryCommunication = ApplicationSettings.binaryCommunication();
+        conditionalReadCacheSize = ApplicationSettings.conditionalReadCacheSize();
+        ApplicationSettings.setBinaryCommunication(false);
+        ApplicationSettings.setConditionalReadCacheSize(1);
+
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonSerializers());
+        databaseMetrics = new DatabaseMetrics();
+        database = new TestDatabase(jsonObjectMapper, databaseMetrics);
+        databaseService = new DatabaseService(database, jsonObjectMapper, new DefaultThreadLocale(),
+                new MethodCatalog(), new ResultCache(databaseMetrics), new EntityCache(database, databaseMetrics),
+                new SingleFlight(databaseMetrics), new ConditionalReadCache(databaseMetrics), databaseMetrics);
+    }
+
+    @After
+    public void tearDown() {
+        databaseService.close();
+
+        ApplicationSettings.setBinaryCommunication(binaryCommunication);
+        ApplicationSettings.setConditionalReadCacheSize(conditionalReadCacheSize);
+        ThreadBinary.setFixedBinary(binaryCommunication);
+    }
+
+    private static String dataAnswer(final int value) throws Exception {
+        Result<JsonNode> result = new Result<>();
+        result.add(IntNode.valueOf(value));
+        return result.toJsonString();
+    }
+
+    private static String notModifiedAnswer() throws Exception {
+        return new Result<JsonNode>(new Error(Error.NOT_MODIFIED, "result has not been modified")).toJsonString();
+    }
+
+    private Result<JsonNode> getCustomer(final int id) {
+        return databaseService.getData("customer", "getCustomer",
+                jsonObjectMapper.getObjectMapperText().createObjectNode().put("id", id), Locale.US);
+    }
+
+    @Test
+    public void unchangedResultTest() throws Exception {
+        String answer = dataAnswer(1);
+        database.answers.add(answer);
+        database.answers.add(notModifiedAnswer());
+
+        Result<JsonNode> result = getCustomer(1);
+        assertFalse(database.messages.get(0).has(CommandParameters.HASH));
+
+        // the hash of the encoded result is sent and the cached result is used for the "not modified" reply
+        assertSame(result, getCustomer(1));
+        assertEquals(Hashing.hash(answer), database.messages.get(1).get(CommandParameters.HASH).asLong());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.READS_NOT_MODIFIED));
+    }
+
+    @Test
+    public void changedResultTest() throws Exception {
+        database.answers.add(dataAnswer(1));
+        database.answers.add(dataAnswer(2));
+        database.answers.add(notModifiedAnswer());
+
+        assertEquals(1, getCustomer(1).getSingleData().asInt());
+        assertEquals(2, getCustomer(1).getSingleData().asInt());
+
+        // the hash of the changed result is sent next
+        assertEquals(2, getCustomer(1).getSingleData().asInt());
+        assertEquals(Hashing.hash(dataAnswer(2)), database.messages.get(2).get(CommandParameters.HASH).asLong());
+    }
+
+    @Test
+    public void notModifiedReplyForEvictedResultTest() throws Exception {
+        database.answers.add(dataAnswer(1));
+        database.answers.add(dataAnswer(2));
+        database.answers.add(notModifiedAnswer());
+        database.answers.add(dataAnswer(1));
+
+        getCustomer(1);
+        // the cache holds a single result, so the result of the first customer is evicted
+        getCustomer(2);
+
+        Result<JsonNode> result = getCustomer(1);
+
+        assertTrue(result.isOk());
+        assertEquals(1, result.getSingleData().asInt());
+        assertEquals(4, database.messages.size());
+        assertFalse(database.messages.get(2).has(CommandParameters.HASH));
+        assertFalse(database.messages.get(3).has(CommandParameters.HASH));
+    }
+}
@@ -0,0 +1,126 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.client.server.Database;
+import de.oliverwetterau.neo4j.websockets.client.web.DefaultThreadLocale;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class EntityCacheTests {
+    private static JsonObjectMapper jsonObjectMapper;
+
+    private int entityCacheSize;
+    private DatabaseMetrics databaseMetrics;
+    private EntityCache entityCache;
+
+    /**
+     * Reads a new entity with an increasing value on every call. An action can be run while the entity is read.
+     */
+    private static class CountingReader implements Supplier<Result<JsonNode>> {
+        private final AtomicInteger reads = new AtomicInteger();
+        private Runnable whileReading = null;
+
+        @Override
+        public Result<JsonNode> get() {
+            if (whileReading != null) {
+                whileReading.run();
+            }
+
+            Result<JsonNode> result = new Result<>();
+            result.add(IntNode.valueOf(reads.incrementAndGet()));
+            return result;
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonSerializers());
+        Error.setJsonObjectMapper(jsonObjectMapper);
+    }
+
+    @Before
+    public void setUp() {
+        entityCacheSize = ApplicationSettings.entityCacheSize();
+        ApplicationSettings.setEntityCacheSize(10);
+
+        databaseMetrics = new DatabaseMetrics();
+        entityCache = new EntityCache(new Database(jsonObjectMapper, new DefaultThreadLocale(), databaseMetrics,
+                new MethodCatalog()), databaseMetrics);
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationSettings.setEntityCacheSize(entityCacheSize);
+    }
+
+    @Test
+    public void cachedEntityTest() {
+        CountingReader reader = new CountingReader();
+
+        assertEquals(1, entityCache.getNode(1, reader).getSingleData().asInt());
+        assertEquals(1, entityCache.getNode(1, reader).getSingleData().asInt());
+
+        // nodes and relationships with the same id are different entities
+        assertEquals(2, entityCache.getRelationship(1, reader).getSingleData().asInt());
+
+        assertEquals(2, reader.reads.get());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.ENTITY_CACHE_HITS));
+    }
+
+    @Test
+    public void invalidatedEntityIsReadAgainTest() {
+        CountingReader reader = new CountingReader();
+
+        entityCache.getNode(1, reader);
+        entityCache.getNode(2, reader);
+        entityCache.onEntitiesInvalidated(new long[] { 1 }, new long[0]);
+
+        assertEquals(3, entityCache.getNode(1, reader).getSingleData().asInt());
+        assertEquals(2, entityCache.getNode(2, reader).getSingleData().asInt());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.ENTITY_CACHE_INVALIDATIONS));
+    }
+
+    @Test
+    public void entityReadDuringInvalidationIsNotCachedTest() {
+        final CountingReader reader = new CountingReader();
+
+        // the entity is changed on the master while its old version is read
+        reader.whileReading = () -> entityCache.onEntitiesInvalidated(new long[] { 1 }, new long[0]);
+        assertEquals(1, entityCache.getNode(1, reader).getSingleData().asInt());
+
+        reader.whileReading = null;
+        assertEquals(2, entityCache.getNode(1, reader).getSingleData().asInt());
+        assertEquals(2, entityCache.getNode(1, reader).getSingleData().asInt());
+        assertEquals(2, reader.reads.get());
+    }
+
+    @Test
+    public void entityReadWhileInvalidationsWereLostIsNotCachedTest() {
+        final CountingReader reader = new CountingReader();
+
+        reader.whileReading = entityCache::onInvalidationsLost;
+        entityCache.getRelationship(1, reader);
+
+        reader.whileReading = null;
+        assertEquals(2, entityCache.getRelationship(1, reader).getSingleData().asInt());
+        assertEquals(2, reader.reads.get());
+    }
+}
@@ -0,0 +1,199 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodDescription;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ResultCacheTests {
+    private static final MethodDescription CACHED = new MethodDescription("customer", "getCustomer", true, 60000,
+            new HashSet<>(Collections.singletonList("customers")), Collections.<String>emptySet());
+
+    private int resultCacheSize;
+    private long resultCacheStaleMillis;
+    private DatabaseMetrics databaseMetrics;
+    private ResultCache resultCache;
+
+    /**
+     * Reads a new result with an increasing value on every call.
+     */
+    private static class CountingReader implements Supplier<Result<JsonNode>> {
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public Result<JsonNode> get() {
+            Result<JsonNode> result = new Result<>();
+            result.add(IntNode.valueOf(reads.incrementAndGet()));
+            return result;
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        Error.setJsonObjectMapper(new JsonObjectMapper(new DefaultJsonSerializers()));
+    }
+
+    @Before
+    public void setUp() {
+        resultCacheSize = ApplicationSettings.resultCacheSize();
+        resultCacheStaleMillis = ApplicationSettings.resultCacheStaleMillis();
+        ApplicationSettings.setResultCacheSize(2);
+        ApplicationSettings.setResultCacheStaleMillis(0);
+
+        databaseMetrics = new DatabaseMetrics();
+        resultCache = new ResultCache(databaseMetrics);
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationSettings.setResultCacheSize(resultCacheSize);
+        ApplicationSettings.setResultCacheStaleMillis(resultCacheStaleMillis);
+    }
+
+    private static RequestKey key(final int id) {
+        return new RequestKey("customer", "getCustomer", IntNode.valueOf(id), Locale.GERMANY);
+    }
+
+    @Test
+    public void hitTest() {
+        CountingReader reader = new CountingReader();
+
+        Result<JsonNode> result = resultCache.get(key(1), CACHED, reader);
+
+        assertSame(result, resultCache.get(key(1), CACHED, reader));
+        assertEquals(1, reader.reads.get());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.CACHE_HITS));
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.CACHE_MISSES));
+    }
+
+    @Test
+    public void writeMethodIsNotCachedTest() {
+        MethodDescription write = new MethodDescription("customer", "saveCustomer", false, 60000,
+                Collections.<String>emptySet(), Collections.<String>emptySet());
+        CountingReader reader = new CountingReader();
+
+        resultCache.get(key(1), write, reader);
+        resultCache.get(key(1), write, reader);
+
+        assertEquals(2, reader.reads.get());
+        assertEquals(0, resultCache.size());
+    }
+
+    @Test
+    public void errorIsNotCachedTest() {
+        AtomicInteger reads = new AtomicInteger();
+        Supplier<Result<JsonNode>> reader = () -> {
+            reads.incrementAndGet();
+            return new Result<>(new Error(Error.NO_DATABASE_REPLY, "no reply"));
+        };
+
+        resultCache.get(key(1), CACHED, reader);
+        resultCache.get(key(1), CACHED, reader);
+
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedTest() {
+        CountingReader reader = new CountingReader();
+
+        resultCache.get(key(1), CACHED, reader);
+        resultCache.get(key(2), CACHED, reader);
+        // key 1 is used again, so key 2 is the least recently used result
+        resultCache.get(key(1), CACHED, reader);
+        resultCache.get(key(3), CACHED, reader);
+
+        assertEquals(2, resultCache.size());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.CACHE_EVICTIONS));
+
+        resultCache.get(key(1), CACHED, reader);
+        assertEquals(3, reader.reads.get());
+        resultCache.get(key(2), CACHED, reader);
+        assertEquals(4, reader.reads.get());
+    }
+
+    @Test
+    public void invalidateGroupTest() {
+        CountingReader reader = new CountingReader();
+        MethodDescription other = new MethodDescription("order", "getOrder", true, 60000,
+                new HashSet<>(Collections.singletonList("orders")), Collections.<String>emptySet());
+
+        resultCache.get(key(1), CACHED, reader);
+        resultCache.get(key(2), other, reader);
+
+        resultCache.invalidate(Collections.singletonList("customers"));
+
+        assertEquals(1, resultCache.size());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.CACHE_INVALIDATIONS));
+
+        resultCache.get(key(1), CACHED, reader);
+        assertEquals(3, reader.reads.get());
+    }
+
+    @Test
+    public void invalidationWhileReadingTest() {
+        CountingReader reader = new CountingReader();
+
+        // a write invalidates the group while the result is being read, the result may be outdated
+        resultCache.get(key(1), CACHED, () -> {
+            resultCache.invalidate(Collections.singletonList("customers"));
+            return reader.get();
+        });
+
+        assertEquals(0, resultCache.size());
+    }
+
+    @Test
+    public void staleWhileRevalidateTest() throws Exception {
+        ApplicationSettings.setResultCacheStaleMillis(60000);
+        MethodDescription shortLived = new MethodDescription("customer", "getCustomer", true, 20,
+                new HashSet<>(Collections.singletonList("customers")), Collections.<String>emptySet());
+        CountingReader reader = new CountingReader();
+
+        Result<JsonNode> result = resultCache.get(key(1), shortLived, reader);
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        // the expired result is returned while a fresh one is read in the background
+        assertSame(result, resultCache.get(key(1), shortLived, reader));
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.CACHE_STALE_HITS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reader.reads.get() < 2) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("result was not refreshed");
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+
+        deadline = System.currentTimeMillis() + 5000;
+        while (resultCache.get(key(1), shortLived, reader) == result) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("refreshed result was not cached");
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package de.oliverwetterau.neo4j.websockets.client.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodDescription;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class SingleFlightTests {
+    private static final int CALLERS = 8;
+    private static final MethodDescription COLLAPSED = new MethodDescription("customer", "getCustomer", true, 0,
+            Collections.<String>emptySet(), Collections.<String>emptySet(), true);
+    private static final RequestKey KEY = new RequestKey("customer", "getCustomer", IntNode.valueOf(1), Locale.GERMANY);
+
+    private DatabaseMetrics databaseMetrics;
+    private SingleFlight singleFlight;
+    private ExecutorService executor;
+
+    /**
+     * Reads a new result on every call, the first read is blocked until it is released.
+     */
+    private static class BlockingReader implements Supplier<Result<JsonNode>> {
+        private final AtomicInteger reads = new AtomicInteger();
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final RuntimeException exception;
+
+        BlockingReader(final RuntimeException exception) {
+            this.exception = exception;
+        }
+
+        @Override
+        public Result<JsonNode> get() {
+            int read = reads.incrementAndGet();
+            reading.countDown();
+
+            try {
+                release.await();
+            }
+            catch (InterruptedException ignored) {
+            }
+
+            if (exception != null) {
+                throw exception;
+            }
+
+            Result<JsonNode> result = new Result<>();
+            result.add(IntNode.valueOf(read));
+            return result;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        databaseMetrics = new DatabaseMetrics();
+        singleFlight = new SingleFlight(databaseMetrics);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<CompletableFuture<Result<JsonNode>>> callConcurrently(final RequestKey key,
+                                                                        final BlockingReader reader)
+            throws Exception
+    {
+        List<CompletableFuture<Result<JsonNode>>> results = new ArrayList<>();
+
+        results.add(CompletableFuture.supplyAsync(() -> singleFlight.get(key, COLLAPSED, reader), executor));
+        assertTrue(reader.reading.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> singleFlight.get(key, COLLAPSED, reader), executor));
+        }
+
+        // wait until all callers share the read in progress
+        long deadline = System.currentTimeMillis() + 5000;
+        while (databaseMetrics.getCount(DatabaseMetrics.CALLS_COLLAPSED) < CALLERS - 1) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("calls were not collapsed");
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+
+        return results;
+    }
+
+    @Test
+    public void identicalReadsAreCollapsedTest() throws Exception {
+        BlockingReader reader = new BlockingReader(null);
+
+        List<CompletableFuture<Result<JsonNode>>> results = callConcurrently(KEY, reader);
+        reader.release.countDown();
+
+        Result<JsonNode> result = results.get(0).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Result<JsonNode>> sharedResult : results) {
+            assertSame(result, sharedResult.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, reader.reads.get());
+
+        // a read after the shared read has finished is sent again
+        singleFlight.get(KEY, COLLAPSED, reader);
+        assertEquals(2, reader.reads.get());
+    }
+
+    @Test
+    public void failedReadIsSharedTest() throws Exception {
+        IllegalStateException exception = new IllegalStateException("read failed");
+        BlockingReader reader = new BlockingReader(exception);
+
+        List<CompletableFuture<Result<JsonNode>>> results = callConcurrently(KEY, reader);
+        reader.release.countDown();
+
+        for (CompletableFuture<Result<JsonNode>> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("read failed");
+            }
+            catch (ExecutionException e) {
+                assertSame(exception, e.getCause());
+            }
+        }
+        assertEquals(1, reader.reads.get());
+        assertTrue(singleFlight.inFlight.isEmpty());
+    }
+
+    @Test
+    public void differentReadsAreNotCollapsedTest() throws Exception {
+        BlockingReader reader = new BlockingReader(null);
+        RequestKey otherKey = new RequestKey("customer", "getCustomer", IntNode.valueOf(2), Locale.GERMANY);
+
+        CompletableFuture<Result<JsonNode>> first =
+                CompletableFuture.supplyAsync(() -> singleFlight.get(KEY, COLLAPSED, reader), executor);
+        assertTrue(reader.reading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Result<JsonNode>> second =
+                CompletableFuture.supplyAsync(() -> singleFlight.get(otherKey, COLLAPSED, reader), executor);
+
+        reader.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, reader.reads.get());
+        assertEquals(0, databaseMetrics.getCount(DatabaseMetrics.CALLS_COLLAPSED));
+    }
+
+    @Test
+    public void methodWithoutCollapsingTest() {
+        MethodDescription notCollapsed = new MethodDescription("customer", "getCustomer", true);
+        BlockingReader reader = new BlockingReader(null);
+        reader.release.countDown();
+
+        singleFlight.get(KEY, notCollapsed, reader);
+        singleFlight.get(KEY, null, reader);
+
+        assertEquals(2, reader.reads.get());
+        assertTrue(singleFlight.inFlight.isEmpty());
+    }
+}
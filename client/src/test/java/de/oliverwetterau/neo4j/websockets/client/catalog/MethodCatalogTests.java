@@ -0,0 +1,91 @@
+package de.oliverwetterau.neo4j.websockets.client.catalog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.oliverwetterau.neo4j.websockets.core.data.CatalogParameters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class MethodCatalogTests {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static JsonNode catalog(final String service, final String... methods) {
+        ObjectNode catalog = objectMapper.createObjectNode();
+        ObjectNode serviceNode = catalog.putObject(service);
+
+        for (String method : methods) {
+            serviceNode.putObject(method).put(CatalogParameters.READ_ONLY, method.startsWith("get"));
+        }
+
+        return catalog;
+    }
+
+    @Test
+    public void cachingKeepsReadOnlyTest() {
+        MethodCatalog methodCatalog = new MethodCatalog();
+        methodCatalog.update(Collections.singletonList(catalog("customer", "getCustomer", "saveCustomer")));
+
+        methodCatalog.setCaching("customer", "getCustomer", 1000, "customers");
+        methodCatalog.setCaching("customer", "saveCustomer", 1000, "customers");
+        methodCatalog.setCollapsed("customer", "saveCustomer", true);
+
+        assertTrue(methodCatalog.getMethod("customer", "getCustomer").isCacheable());
+
+        MethodDescription description = methodCatalog.getMethod("customer", "saveCustomer");
+        assertFalse(description.isReadOnly());
+        assertFalse(description.isCacheable());
+        assertFalse(description.isCollapsed());
+    }
+
+    @Test
+    public void unknownMethodIsNotCreatedTest() {
+        MethodCatalog methodCatalog = new MethodCatalog();
+
+        methodCatalog.setCaching("customer", "getCustomer", 1000);
+        methodCatalog.setCollapsed("customer", "getCustomer", true);
+
+        assertNull(methodCatalog.getMethod("customer", "getCustomer"));
+        assertFalse(methodCatalog.hasService("customer"));
+    }
+
+    @Test
+    public void updateRemovesUnpublishedMethodsTest() {
+        MethodCatalog methodCatalog = new MethodCatalog();
+        methodCatalog.update(Arrays.asList(catalog("customer", "getCustomer"), catalog("order", "getOrder")));
+
+        assertNotNull(methodCatalog.getMethod("order", "getOrder"));
+
+        methodCatalog.update(Arrays.asList(catalog("customer", "getCustomer"), null));
+
+        assertNotNull(methodCatalog.getMethod("customer", "getCustomer"));
+        assertNull(methodCatalog.getMethod("order", "getOrder"));
+        assertFalse(methodCatalog.hasService("order"));
+    }
+
+    @Test
+    public void updateWithoutCatalogKeepsMethodsTest() {
+        MethodCatalog methodCatalog = new MethodCatalog();
+        methodCatalog.update(Collections.singletonList(catalog("customer", "getCustomer")));
+        methodCatalog.setReadOnly("report", "getReport", true);
+
+        methodCatalog.update(Collections.<JsonNode>singletonList(null));
+        assertNotNull(methodCatalog.getMethod("customer", "getCustomer"));
+
+        // methods declared on the client are kept
+        methodCatalog.update(Collections.singletonList(catalog("order", "getOrder")));
+        assertNull(methodCatalog.getMethod("customer", "getCustomer"));
+        assertNotNull(methodCatalog.getMethod("report", "getReport"));
+        assertTrue(methodCatalog.hasService("report"));
+    }
+}
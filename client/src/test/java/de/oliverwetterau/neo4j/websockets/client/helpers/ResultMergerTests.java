@@ -0,0 +1,85 @@
+package de.oliverwetterau.neo4j.websockets.client.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ResultMergerTests {
+    private static final Comparator<JsonNode> ORDER = (a, b) -> Integer.compare(a.asInt(), b.asInt());
+
+    @BeforeClass
+    public static void setUp() {
+        Error.setJsonObjectMapper(new JsonObjectMapper(new DefaultJsonSerializers()));
+    }
+
+    private static Result<JsonNode> result(final int... values) {
+        Result<JsonNode> result = new Result<>();
+
+        for (int value : values) {
+            result.add(IntNode.valueOf(value));
+        }
+
+        return result;
+    }
+
+    private static Result<JsonNode> failedResult() {
+        return new Result<>(new Error(Error.NO_DATABASE_REPLY, "partition failed"));
+    }
+
+    private static void assertData(final Result<JsonNode> result, final int... values) {
+        assertEquals(values.length, result.getData().size());
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], result.getData().get(i).asInt());
+        }
+    }
+
+    @Test
+    public void concatenateTest() {
+        Result<JsonNode> result = ResultMerger.concatenate(Arrays.asList(result(3, 1), result(), result(2)), 0);
+
+        assertData(result, 3, 1, 2);
+    }
+
+    @Test
+    public void concatenateKeepsErrorsBehindLimitTest() {
+        List<Result<JsonNode>> results = Arrays.asList(result(1, 2, 3), failedResult(), failedResult());
+        Result<JsonNode> result = ResultMerger.concatenate(results, 2);
+
+        assertData(result, 1, 2);
+        assertFalse(result.isOk());
+        assertEquals(2, result.getErrors().size());
+    }
+
+    @Test
+    public void mergeSortedTest() {
+        List<Result<JsonNode>> results = Arrays.asList(result(1, 4, 7), result(2, 5), result(), result(3, 6, 8));
+
+        assertData(ResultMerger.mergeSorted(results, ORDER, 0), 1, 2, 3, 4, 5, 6, 7, 8);
+        assertData(ResultMerger.mergeSorted(results, ORDER, 5), 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void mergeSortedKeepsErrorsTest() {
+        List<Result<JsonNode>> results = Arrays.asList(result(1, 3), failedResult(), result(2));
+        Result<JsonNode> result = ResultMerger.mergeSorted(results, ORDER, 1);
+
+        assertData(result, 1);
+        assertEquals(1, result.getErrors().size());
+    }
+}
@@ -0,0 +1,90 @@
+package de.oliverwetterau.neo4j.websockets.client.helpers;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class RetryBudgetTests {
+    @Test
+    public void startsFullTest() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 3);
+
+        assertEquals(3, retryBudget.getAvailableTokens());
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    public void depositRatioTest() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 3);
+
+        while (retryBudget.tryWithdraw()) {
+        }
+
+        for (int i = 0; i < 9; i++) {
+            retryBudget.onRequest();
+        }
+        assertFalse(retryBudget.tryWithdraw());
+
+        retryBudget.onRequest();
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    public void maximumBalanceTest() {
+        RetryBudget retryBudget = new RetryBudget(0.5, 2);
+
+        for (int i = 0; i < 100; i++) {
+            retryBudget.onRequest();
+        }
+
+        assertEquals(2, retryBudget.getAvailableTokens());
+    }
+
+    @Test
+    public void concurrentWithdrawTest() throws Exception {
+        final RetryBudget retryBudget = new RetryBudget(0.1, 100);
+        final AtomicInteger withdrawals = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int i = 0; i < 1000; i++) {
+                    if (retryBudget.tryWithdraw()) {
+                        withdrawals.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // no token is withdrawn twice
+        assertEquals(100, withdrawals.get());
+        assertEquals(0, retryBudget.getAvailableTokens());
+    }
+}
@@ -0,0 +1,226 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.client.web.DataConnection;
+import de.oliverwetterau.neo4j.websockets.client.web.DefaultThreadLocale;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class CircuitBreakerTests {
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(ApplicationSettings.circuitBreakerSlowCallMillis());
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final CircuitBreakerListener listener = new CircuitBreakerListener() {
+        @Override
+        public void onServerEjected(final Server server) {
+            events.add("ejected");
+        }
+
+        @Override
+        public void onServerProbing(final Server server) {
+            events.add("probing");
+        }
+
+        @Override
+        public void onServerRestored(final Server server) {
+            events.add("restored");
+        }
+    };
+
+    private long backoffMillis;
+    private Server server;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        backoffMillis = ApplicationSettings.circuitBreakerBackoffMillis();
+        ApplicationSettings.setCircuitBreakerBackoffMillis(50);
+
+        server = new Server(null, listener, "ws://server:8765", new DefaultThreadLocale(), true);
+        circuitBreaker = server.getCircuitBreaker();
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationSettings.setCircuitBreakerBackoffMillis(backoffMillis);
+    }
+
+    private void awaitState(final CircuitBreaker.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (circuitBreaker.getState() != state) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("circuit breaker did not get " + state);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private void open() {
+        for (int i = 0; i < ApplicationSettings.circuitBreakerMinimumCalls(); i++) {
+            circuitBreaker.onFailure(0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void minimumCallsTest() {
+        for (int i = 0; i < ApplicationSettings.circuitBreakerMinimumCalls() - 1; i++) {
+            circuitBreaker.onFailure(0);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void failureRateTest() {
+        for (int i = 0; i < ApplicationSettings.circuitBreakerWindowSize(); i++) {
+            if (i % 3 == 0) circuitBreaker.onFailure(0);
+            else circuitBreaker.onSuccess(0);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        open();
+        assertFalse(circuitBreaker.isCallPermitted());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(Collections.singletonList("ejected"), events);
+    }
+
+    @Test
+    public void slowCallRateTest() {
+        for (int i = 0; i < ApplicationSettings.circuitBreakerMinimumCalls(); i++) {
+            circuitBreaker.onSuccess(SLOW);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void restoreAfterTrialCallsTest() throws Exception {
+        open();
+        awaitState(CircuitBreaker.State.HALF_OPEN);
+
+        for (int i = 0; i < ApplicationSettings.circuitBreakerTrialCalls(); i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+        }
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        for (int i = 0; i < ApplicationSettings.circuitBreakerTrialCalls(); i++) {
+            circuitBreaker.onSuccess(0);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(Arrays.asList("ejected", "probing", "restored"), events);
+    }
+
+    @Test
+    public void failedTrialCallTest() throws Exception {
+        open();
+        awaitState(CircuitBreaker.State.HALF_OPEN);
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess(SLOW);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(100, circuitBreaker.backoffMillis);
+    }
+
+    private Database database() {
+        return new Database(new JsonObjectMapper(new DefaultJsonSerializers()), new DefaultThreadLocale(),
+                new DatabaseMetrics(), new MethodCatalog());
+    }
+
+    private static DataConnection answeringConnection() {
+        return new DataConnection("ws://server:8765/ws/data") {
+            @Override
+            public String sendWithResult(final String message, final long timeoutMillis) {
+                return "answer";
+            }
+
+            @Override
+            public String sendWithResult(final String message) {
+                return "answer";
+            }
+
+            @Override
+            public boolean isUsable() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    public void missingConnectionReleasesTrialPermitTest() throws Exception {
+        Server unreachableServer = new Server(null, listener, "ws://server:8765", new DefaultThreadLocale(), true) {
+            @Override
+            public DataConnection getConnection() {
+                return null;
+            }
+        };
+        circuitBreaker = unreachableServer.getCircuitBreaker();
+        Database database = database();
+
+        open();
+        awaitState(CircuitBreaker.State.HALF_OPEN);
+
+        try {
+            database.sendReadMessage("message", unreachableServer);
+            fail("no connection available");
+        }
+        catch (ConnectionNotAvailableException ignored) {
+        }
+
+        // the failed trial request has been recorded instead of keeping its permit
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void writesAreNotGuardedTest() throws Exception {
+        // keep the circuit open while the connection is created
+        ApplicationSettings.setCircuitBreakerBackoffMillis(60000);
+
+        Server master = new Server(null, listener, "ws://server:8765", new DefaultThreadLocale(), true) {
+            @Override
+            public DataConnection getConnection() {
+                return answeringConnection();
+            }
+        };
+        circuitBreaker = master.getCircuitBreaker();
+        Database database = database();
+
+        open();
+
+        assertEquals("answer", database.sendWriteMessageWithResult("message", master));
+
+        try {
+            database.sendReadMessage("message", master);
+            fail("reads are guarded");
+        }
+        catch (ConnectionNotAvailableException ignored) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ConsistentHashRingTests {
+    private static final int KEYS = 10000;
+
+    private static class LoadedServer extends Server {
+        private int load = 0;
+
+        LoadedServer(final String uri) {
+            super(null, uri, null, true);
+        }
+
+        @Override
+        public int getLoad() {
+            return load;
+        }
+    }
+
+    private static LoadedServer[] servers(final int count) {
+        LoadedServer[] servers = new LoadedServer[count];
+
+        for (int i = 0; i < count; i++) {
+            servers[i] = new LoadedServer("ws://server" + i + ":8765");
+        }
+
+        return servers;
+    }
+
+    @Test
+    public void emptyRingTest() {
+        ConsistentHashRing ring = new ConsistentHashRing(new Server[0]);
+
+        assertEquals(0, ring.size());
+        assertNull(ring.get("customer-1", 0.25));
+    }
+
+    @Test
+    public void sameKeySameServerTest() {
+        LoadedServer[] servers = servers(4);
+        ConsistentHashRing ring = new ConsistentHashRing(servers);
+        ConsistentHashRing otherRing = new ConsistentHashRing(servers(4));
+
+        for (int i = 0; i < 100; i++) {
+            Server server = ring.get("customer-" + i, 0.25);
+
+            assertNotNull(server);
+            assertSame(server, ring.get("customer-" + i, 0.25));
+            // the position of a server only depends on its uri
+            assertEquals(server.getManagementUri(), otherRing.get("customer-" + i, 0.25).getManagementUri());
+        }
+    }
+
+    @Test
+    public void evenDistributionTest() {
+        LoadedServer[] servers = servers(4);
+        ConsistentHashRing ring = new ConsistentHashRing(servers);
+        Map<Server,Integer> keysByServer = new HashMap<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            Server server = ring.get("customer-" + i, 0.25);
+            keysByServer.put(server, keysByServer.getOrDefault(server, 0) + 1);
+        }
+
+        assertEquals(servers.length, keysByServer.size());
+
+        for (int keys : keysByServer.values()) {
+            assertTrue("unbalanced ring: " + keysByServer.values(), keys > KEYS / servers.length / 2);
+            assertTrue("unbalanced ring: " + keysByServer.values(), keys < KEYS / servers.length * 2);
+        }
+    }
+
+    @Test
+    public void removedServerOnlyMovesItsKeysTest() {
+        LoadedServer[] servers = servers(4);
+        ConsistentHashRing ring = new ConsistentHashRing(servers);
+        ConsistentHashRing smallerRing = new ConsistentHashRing(new Server[] { servers[0], servers[1], servers[2] });
+
+        for (int i = 0; i < KEYS; i++) {
+            Server server = ring.get("customer-" + i, 0.25);
+
+            if (server != servers[3]) {
+                assertSame(server, smallerRing.get("customer-" + i, 0.25));
+            }
+        }
+    }
+
+    @Test
+    public void boundedLoadTest() {
+        LoadedServer[] servers = servers(4);
+        ConsistentHashRing ring = new ConsistentHashRing(servers);
+        LoadedServer owner = (LoadedServer) ring.get("customer-1", 0.25);
+
+        // the owner takes less than (1 + load factor) times the average load (including the new request)
+        owner.load = 10;
+        Server server = ring.get("customer-1", 0.25);
+        assertNotNull(server);
+        assertTrue(server != owner);
+        assertSame(server, ring.get("customer-1", 0.25));
+
+        // with an even load the key is back with its owner
+        for (LoadedServer loadedServer : servers) {
+            loadedServer.load = 10;
+        }
+        assertSame(owner, ring.get("customer-1", 0.25));
+    }
+}
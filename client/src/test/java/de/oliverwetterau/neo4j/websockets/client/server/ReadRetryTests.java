@@ -0,0 +1,160 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.client.web.DataConnection;
+import de.oliverwetterau.neo4j.websockets.client.web.DefaultThreadLocale;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ReadRetryTests {
+    private static final long READ_TIMEOUT = 100;
+
+    private long readAnswerTimeoutMillis;
+    private DatabaseMetrics databaseMetrics;
+    private Database database;
+
+    /**
+     * A read server answering every message or not answering within the timeout passed by the client.
+     */
+    private static class TestServer extends Server {
+        private final String answer;
+        private final AtomicInteger messages = new AtomicInteger();
+        private final AtomicLong timeoutMillis = new AtomicLong();
+
+        TestServer(final String uri, final String answer) {
+            super(null, uri, new DefaultThreadLocale(), false);
+            this.answer = answer;
+        }
+
+        @Override
+        public DataConnection getConnection() {
+            return new DataConnection(getDataUri()) {
+                @Override
+                public String sendWithResult(final String message, final long timeoutMillis) {
+                    messages.incrementAndGet();
+                    TestServer.this.timeoutMillis.set(timeoutMillis);
+
+                    if (answer == null) {
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(timeoutMillis);
+                        }
+                        catch (InterruptedException ignored) {
+                        }
+                    }
+
+                    return answer;
+                }
+
+                @Override
+                public boolean isUsable() {
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    @Before
+    public void setUp() {
+        readAnswerTimeoutMillis = ApplicationSettings.readAnswerTimeoutMillis();
+        ApplicationSettings.setReadAnswerTimeoutMillis(READ_TIMEOUT);
+
+        databaseMetrics = new DatabaseMetrics();
+        database = new Database(new JsonObjectMapper(new DefaultJsonSerializers()), new DefaultThreadLocale(),
+                databaseMetrics, new MethodCatalog());
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationSettings.setReadAnswerTimeoutMillis(readAnswerTimeoutMillis);
+    }
+
+    private void setReadServers(final Server... servers) {
+        database.readServers = servers;
+        database.localReadServers = servers;
+    }
+
+    @Test
+    public void timedOutReadIsRetriedTest() throws Exception {
+        TestServer silentServer = new TestServer("ws://silent:8765", null);
+        TestServer answeringServer = new TestServer("ws://answering:8765", "answer");
+        setReadServers(silentServer, answeringServer);
+
+        long start = System.nanoTime();
+        String answer = database.sendReadMessageWithRetries("message", silentServer);
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("answer", answer);
+        assertEquals(1, silentServer.messages.get());
+        assertEquals(READ_TIMEOUT, silentServer.timeoutMillis.get());
+        assertEquals(1, answeringServer.messages.get());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.READ_RETRIES));
+        // the retry is sent after the read timeout, not after the timeout of write messages
+        assertTrue(duration < ApplicationSettings.answerTimeoutMillis());
+        assertTrue(duration < READ_TIMEOUT + ApplicationSettings.retryMaxBackoffMillis() + 1000);
+    }
+
+    @Test
+    public void exhaustedRetryBudgetTest() throws Exception {
+        TestServer silentServer = new TestServer("ws://silent:8765", null);
+        TestServer answeringServer = new TestServer("ws://answering:8765", "answer");
+        setReadServers(silentServer, answeringServer);
+
+        while (database.retryBudget.tryWithdraw()) {
+        }
+
+        try {
+            database.sendReadMessageWithRetries("message", silentServer);
+            fail("retry budget is exhausted");
+        }
+        catch (ConnectionNotAvailableException ignored) {
+        }
+
+        assertEquals(0, answeringServer.messages.get());
+        assertEquals(1, databaseMetrics.getCount(DatabaseMetrics.RETRY_BUDGET_EXHAUSTED));
+    }
+
+    @Test
+    public void readRetriesTest() throws Exception {
+        TestServer[] silentServers = {
+                new TestServer("ws://silent1:8765", null),
+                new TestServer("ws://silent2:8765", null),
+                new TestServer("ws://silent3:8765", null),
+                new TestServer("ws://silent4:8765", null)
+        };
+        setReadServers(silentServers);
+
+        try {
+            database.sendReadMessageWithRetries("message", silentServers[0]);
+            fail("no server answers");
+        }
+        catch (ConnectionNotAvailableException ignored) {
+        }
+
+        int messages = 0;
+        for (TestServer server : silentServers) {
+            messages += server.messages.get();
+        }
+
+        assertEquals(ApplicationSettings.readRetries() + 1, messages);
+    }
+}
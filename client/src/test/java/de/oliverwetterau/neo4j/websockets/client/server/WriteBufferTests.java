@@ -0,0 +1,147 @@
+package de.oliverwetterau.neo4j.websockets.client.server;
+
+import de.oliverwetterau.neo4j.websockets.client.catalog.MethodCatalog;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.client.web.DataConnection;
+import de.oliverwetterau.neo4j.websockets.client.web.DefaultThreadLocale;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class WriteBufferTests {
+    private static final Function<DataConnection,String> SENDER = connection -> connection.sendWithResult("message");
+
+    private static CompletableFuture<Object> awaitAsync(final WriteBuffer.PendingWrite<String> pendingWrite) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return pendingWrite.await();
+            }
+            catch (ConnectionNotAvailableException e) {
+                return e;
+            }
+        });
+    }
+
+    @Test
+    public void capacityAndOrderTest() {
+        WriteBuffer writeBuffer = new WriteBuffer(2);
+
+        WriteBuffer.PendingWrite<String> first = writeBuffer.add(SENDER, 1000);
+        WriteBuffer.PendingWrite<String> second = writeBuffer.add(SENDER, 1000);
+        assertNull(writeBuffer.add(SENDER, 1000));
+
+        List<WriteBuffer.PendingWrite<?>> pendingWrites = writeBuffer.drain();
+        assertEquals(2, pendingWrites.size());
+        assertSame(first, pendingWrites.get(0));
+        assertSame(second, pendingWrites.get(1));
+        assertTrue(writeBuffer.isEmpty());
+    }
+
+    @Test
+    public void pendingWriteExpiresTest() {
+        WriteBuffer.PendingWrite<String> pendingWrite = new WriteBuffer(1).add(SENDER, 10);
+
+        try {
+            pendingWrite.await();
+            fail("no master within the deadline");
+        }
+        catch (ConnectionNotAvailableException ignored) {
+        }
+
+        assertTrue(pendingWrite.isExpired());
+        assertTrue(pendingWrite.isDone());
+        // an expired message is not sent anymore
+        assertFalse(pendingWrite.startSending());
+    }
+
+    @Test
+    public void sendingWriteDoesNotExpireTest() throws Exception {
+        WriteBuffer.PendingWrite<String> pendingWrite = new WriteBuffer(1).add(SENDER, 10);
+        assertTrue(pendingWrite.startSending());
+
+        CompletableFuture<Object> answer = awaitAsync(pendingWrite);
+
+        // the deadline passes while the master executes the message
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(pendingWrite.expire());
+        assertFalse(answer.isDone());
+        assertEquals(WriteBuffer.PendingWrite.State.SENDING, pendingWrite.getState());
+
+        pendingWrite.complete("answer");
+
+        assertEquals("answer", answer.get(5, TimeUnit.SECONDS));
+        assertFalse(pendingWrite.isExpired());
+    }
+
+    @Test
+    public void flushRacingWithDeadlineTest() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch answering = new CountDownLatch(1);
+        final AtomicInteger messages = new AtomicInteger();
+
+        Server master = new Server(null, "ws://master:8765", new DefaultThreadLocale(), false) {
+            @Override
+            public DataConnection getConnection() {
+                return new DataConnection(getDataUri()) {
+                    @Override
+                    public String sendWithResult(final String message) {
+                        messages.incrementAndGet();
+                        sending.countDown();
+
+                        try {
+                            answering.await();
+                        }
+                        catch (InterruptedException ignored) {
+                        }
+
+                        return "answer";
+                    }
+
+                    @Override
+                    public boolean isUsable() {
+                        return false;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+        Database database = new Database(new JsonObjectMapper(new DefaultJsonSerializers()), new DefaultThreadLocale(),
+                new DatabaseMetrics(), new MethodCatalog());
+
+        WriteBuffer.PendingWrite<String> pendingWrite = new WriteBuffer(1).add(SENDER, 200);
+        CompletableFuture<Object> answer = awaitAsync(pendingWrite);
+
+        database.flushPendingWrite(pendingWrite, master);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // the caller reaches the deadline while the message is being sent, it keeps waiting for the reply
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertFalse(answer.isDone());
+
+        answering.countDown();
+
+        assertEquals("answer", answer.get(5, TimeUnit.SECONDS));
+        assertEquals(1, messages.get());
+        assertFalse(pendingWrite.isExpired());
+    }
+}
@@ -0,0 +1,90 @@
+package de.oliverwetterau.neo4j.websockets.client.web;
+
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.server.ClusterListener;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class WebSocketHandlerTests {
+    private final List<String> events = new ArrayList<>();
+    private WebSocketHandler webSocketHandler;
+
+    private final ClusterListener clusterListener = new ClusterListener() {
+        @Override
+        public void onServerAvailable(final String id, final String role) {
+            events.add("available " + id + " " + role);
+        }
+
+        @Override
+        public void onServerUnavailable(final String id) {
+            events.add("unavailable " + id);
+        }
+
+        @Override
+        public void onServerReconnected(final String id, final String uri) {
+            events.add("reconnected " + id);
+        }
+
+        @Override
+        public void onServerDiscovered(final String id, final String uri) {
+            events.add("discovered " + id + " " + uri);
+        }
+
+        @Override
+        public void onServerFailed(final String id) {
+            events.add("failed " + id);
+        }
+
+        @Override
+        public void onEntitiesInvalidated(final long[] nodeIds, final long[] relationshipIds) {
+            events.add("invalidated " + Arrays.toString(nodeIds) + " " + Arrays.toString(relationshipIds));
+        }
+    };
+
+    @BeforeClass
+    public static void setUpClass() {
+        WebSocketHandler.setJsonObjectMapper(new JsonObjectMapper(new DefaultJsonSerializers()));
+    }
+
+    @Before
+    public void setUp() {
+        webSocketHandler = new WebSocketHandler(clusterListener, null);
+    }
+
+    @Test
+    public void broadcastIsNoResultTest() {
+        webSocketHandler.handleMessage(new TextMessage("{\"invalidate\":{\"n\":[1,2],\"r\":[3]}}"), false);
+        webSocketHandler.handleMessage(new TextMessage("{\"available\":\"2\",\"role\":\"slave\"}"), false);
+        webSocketHandler.handleMessage(new TextMessage("{\"discovered\":\"3\",\"uri\":\"ws://db3:8765\"}"), false);
+        webSocketHandler.handleMessage(new TextMessage("{\"failed\":\"2\"}"), false);
+
+        assertNull(webSocketHandler.getResultString());
+        assertEquals(Arrays.asList("invalidated [1, 2] [3]", "available 2 slave", "discovered 3 ws://db3:8765", "failed 2"),
+                events);
+    }
+
+    @Test
+    public void replyIsResultTest() {
+        webSocketHandler.handleMessage(new TextMessage("{\"id\":\"1\",\"isMaster\":true}"), false);
+        webSocketHandler.handleMessage(new TextMessage("{\"invalidate\":{\"n\":[1],\"r\":[]}}"), false);
+
+        // the broadcast received after the reply does not replace it
+        assertEquals("{\"id\":\"1\",\"isMaster\":true}", webSocketHandler.getResultString());
+
+        webSocketHandler.clearResult();
+        assertNull(webSocketHandler.getResultString());
+    }
+}
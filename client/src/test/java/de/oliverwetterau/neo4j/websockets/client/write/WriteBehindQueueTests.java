@@ -0,0 +1,117 @@
+package de.oliverwetterau.neo4j.websockets.client.write;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class WriteBehindQueueTests {
+    private static JsonObjectMapper jsonObjectMapper;
+
+    private final AtomicInteger sentWrites = new AtomicInteger();
+    private final Function<ObjectNode,Result<JsonNode>> batchSender = batchMessage -> {
+        sentWrites.addAndGet(batchMessage.get(CommandParameters.BATCH).size());
+        return new Result<>();
+    };
+
+    @BeforeClass
+    public static void setUpClass() {
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonSerializers());
+        Error.setJsonObjectMapper(jsonObjectMapper);
+    }
+
+    private static ObjectNode message(final int id) {
+        return jsonObjectMapper.getObjectMapper().createObjectNode().put("id", id);
+    }
+
+    @Test
+    public void writesAreSentOnCommitTest() throws Exception {
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(jsonObjectMapper, new DatabaseMetrics(), batchSender);
+
+        CompletableFuture<Result<JsonNode>> first = writeBehindQueue.enqueue(message(1), WriteAcknowledgement.COMMIT);
+        CompletableFuture<Result<JsonNode>> second = writeBehindQueue.enqueue(message(2), WriteAcknowledgement.COMMIT);
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isOk());
+        assertTrue(second.get(5, TimeUnit.SECONDS).isOk());
+        assertEquals(2, sentWrites.get());
+
+        writeBehindQueue.close();
+    }
+
+    @Test
+    public void closedQueueRejectsWritesTest() throws Exception {
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(jsonObjectMapper, new DatabaseMetrics(), batchSender);
+        writeBehindQueue.close();
+
+        Result<JsonNode> result = writeBehindQueue.enqueue(message(1), WriteAcknowledgement.ENQUEUE).get();
+
+        assertFalse(result.isOk());
+        assertEquals(0, sentWrites.get());
+    }
+
+    @Test
+    public void writesQueuedWhileClosingAreSentTest() throws Exception {
+        final WriteBehindQueue writeBehindQueue =
+                new WriteBehindQueue(jsonObjectMapper, new DatabaseMetrics(), batchSender);
+        final List<CompletableFuture<Result<JsonNode>>> futures =
+                Collections.synchronizedList(new ArrayList<CompletableFuture<Result<JsonNode>>>());
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int i = 0; i < 2000; i++) {
+                    futures.add(writeBehindQueue.enqueue(message(i), WriteAcknowledgement.COMMIT));
+                }
+            });
+        }
+
+        start.countDown();
+        TimeUnit.MILLISECONDS.sleep(5);
+        writeBehindQueue.close();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // every accepted write has been sent when close() returned, every other write has been rejected
+        int acceptedWrites = 0;
+        for (CompletableFuture<Result<JsonNode>> future : futures) {
+            assertTrue(future.isDone());
+            if (future.get().isOk()) {
+                acceptedWrites++;
+            }
+        }
+        assertEquals(acceptedWrites, sentWrites.get());
+    }
+}
@@ -0,0 +1,89 @@
+package de.oliverwetterau.neo4j.websockets.client.write;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import de.oliverwetterau.neo4j.websockets.client.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.client.json.DefaultJsonSerializers;
+import de.oliverwetterau.neo4j.websockets.client.metrics.DatabaseMetrics;
+import de.oliverwetterau.neo4j.websockets.core.data.CombinedUpdateParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class WriteCombinerTests {
+    private static JsonObjectMapper jsonObjectMapper;
+
+    private final List<JsonNode> sentParameters = Collections.synchronizedList(new ArrayList<JsonNode>());
+    private long writeCombineWindowMillis;
+    private WriteCombiner writeCombiner;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonSerializers());
+        Error.setJsonObjectMapper(jsonObjectMapper);
+    }
+
+    @Before
+    public void setUp() {
+        // no window ends during a test, the updates are sent by close()
+        writeCombineWindowMillis = ApplicationSettings.writeCombineWindowMillis();
+        ApplicationSettings.setWriteCombineWindowMillis(60000);
+
+        writeCombiner = new WriteCombiner(jsonObjectMapper, new DatabaseMetrics(), (service, method, parameters) -> {
+            sentParameters.add(parameters);
+            return new Result<>();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationSettings.setWriteCombineWindowMillis(writeCombineWindowMillis);
+    }
+
+    @Test
+    public void incrementsAreCombinedTest() throws Exception {
+        CompletableFuture<Result<JsonNode>> first = writeCombiner.increment("counter", "update", 1, "views", 1L);
+        writeCombiner.increment("counter", "update", 1, "views", 2L);
+        writeCombiner.set("counter", "update", 2, "name", TextNode.valueOf("first"));
+        writeCombiner.set("counter", "update", 2, "name", TextNode.valueOf("second"));
+
+        writeCombiner.close();
+
+        assertTrue(first.get().isOk());
+        assertEquals(1, sentParameters.size());
+
+        JsonNode updates = sentParameters.get(0).get(CombinedUpdateParameters.UPDATES);
+        assertEquals(2, updates.size());
+        assertEquals(3, updates.get(0).get(CombinedUpdateParameters.DELTA).asLong());
+        assertEquals("second", updates.get(1).get(CombinedUpdateParameters.VALUE).asText());
+    }
+
+    @Test
+    public void updatesAfterCloseAreRejectedTest() throws Exception {
+        writeCombiner.close();
+
+        Result<JsonNode> increment = writeCombiner.increment("counter", "update", 1, "views", 1L).get();
+        Result<JsonNode> set = writeCombiner.set("counter", "update", 1, "name", TextNode.valueOf("name")).get();
+
+        assertFalse(increment.isOk());
+        assertFalse(set.isOk());
+        assertTrue(writeCombiner.pending.isEmpty());
+        assertEquals(0, sentParameters.size());
+    }
+}
@@ -0,0 +1,18 @@
+package de.oliverwetterau.neo4j.websockets.core.data;
+
+/**
+ * This class holds a list of parameter names being used in the method catalog a server publishes on registration.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class CatalogParameters {
+    public static final String CATALOG = "catalog";
+
+    public static final String ROUTE = "route";
+    public static final String READ_ONLY = "readOnly";
+    public static final String CACHE_TTL_MILLIS = "cacheTtlMillis";
+    public static final String CACHE_GROUPS = "cacheGroups";
+    public static final String INVALIDATES = "invalidates";
+    public static final String COLLAPSE = "collapse";
+}
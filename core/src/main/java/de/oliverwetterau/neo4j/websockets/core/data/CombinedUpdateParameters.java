@@ -0,0 +1,17 @@
+package de.oliverwetterau.neo4j.websockets.core.data;
+
+/**
+ * This class holds a list of parameter names being used in messages carrying combined property updates (increments
+ * and last-write-wins property values of nodes).
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class CombinedUpdateParameters {
+    public static final String UPDATES = "u";
+
+    public static final String NODE_ID = "n";
+    public static final String PROPERTY = "k";
+    public static final String DELTA = "d";
+    public static final String VALUE = "v";
+}
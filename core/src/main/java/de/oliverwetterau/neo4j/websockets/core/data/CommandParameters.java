@@ -9,7 +9,11 @@ package de.oliverwetterau.neo4j.websockets.core.data;
 public class CommandParameters {
     public static final String SERVICE = "s";
     public static final String METHOD = "m";
+    public static final String ROUTE = "r";
     public static final String PARAMETERS = "p";
+    public static final String HASH = "h";
+    public static final String BATCH = "b";
+    public static final String IDEMPOTENCY_KEY = "i";
 
     public static final String COUNTRY = "c";
     public static final String LANGUAGE = "l";
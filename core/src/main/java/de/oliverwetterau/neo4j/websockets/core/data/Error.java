@@ -32,9 +32,14 @@ public class Error {
     public static final String UNKNOWN_SERVICE = "UnknownService";
     public static final String SERVICE_HAS_NO_METHODS = "ServiceHasNoMethods";
     public static final String UNKNOWN_SERVICE_METHOD = "UnknownServiceMethod";
+    public static final String UNKNOWN_ROUTE = "UnknownRoute";
     public static final String METHOD_EXECUTION_FAILED = "MethodExecutionFailed";
     public static final String NOT_FOUND = "NotFound";
     public static final String UNIQUE_CONSTRAINT_VIOLATION = "UniqueConstraintViolation";
+    public static final String NOT_MODIFIED = "NotModified";
+    public static final String WRITE_QUEUE_FULL = "WriteQueueFull";
+    public static final String SERVER_OVERLOADED = "ServerOverloaded";
+    public static final String SERVICE_OVERLOADED = "ServiceOverloaded";
 
     /**
      * Constructor
@@ -94,6 +99,14 @@ public class Error {
         return objectNode;
     }
 
+    /**
+     * Get the error type
+     * @return error type
+     */
+    public String getType() {
+        return objectNode.get(TYPE).asText();
+    }
+
     /**
      * Get the error to a json string
      * @return error in json format
@@ -1,10 +1,14 @@
 package de.oliverwetterau.neo4j.websockets.core.data;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -35,6 +39,9 @@ public class Result<T> {
     /** current json representation of this result */
     protected byte[] jsonBytes = null;
 
+    /** tokens of this result copied by detach(), encoded instead of the result itself */
+    protected TokenBuffer detached = null;
+
     /**
      * Constructor
      */
@@ -76,6 +83,7 @@ public class Result<T> {
     protected void setDirty() {
         isStringDirty = true;
         isBytesDirty = true;
+        detached = null;
     }
 
     public void add(final Error error) {
@@ -135,17 +143,50 @@ public class Result<T> {
         return errors == null || errors.size() == 0;
     }
 
+    /**
+     * Detaches the result while its data can still be read, e.g. before the transaction it has been created in is
+     * closed. The result is not encoded yet, that is done later in the format requested.
+     * @throws Exception result cannot be detached
+     */
     public void close() throws Exception {
         if (!isOk()) {
             data.clear();
         }
 
-        generateJsonString();
-        generateJsonBytes();
+        detach();
+    }
+
+    /**
+     * Copies the result into a buffer of json tokens, so it can be encoded without reading its data again. Copying
+     * tokens is much cheaper than encoding them, so transactions are not kept open while results are encoded.
+     * @throws Exception result cannot be serialized
+     */
+    public void detach() throws Exception {
+        TokenBuffer tokenBuffer = new TokenBuffer(jsonObjectMapper.getObjectMapperText(), false);
+        jsonObjectMapper.getObjectMapperText().writeValue(tokenBuffer, this);
+
+        detached = tokenBuffer;
+    }
+
+    /**
+     * Gets what is to be encoded: the detached tokens if there are any, the result itself otherwise.
+     * @return detached tokens or this result
+     */
+    protected Object getEncodable() {
+        return detached != null ? detached : this;
+    }
+
+    /**
+     * Writes the tokens of this result to a generator, the detached tokens if there are any.
+     * @param jsonGenerator generator to write to
+     * @throws Exception result cannot be serialized
+     */
+    public void writeJson(final JsonGenerator jsonGenerator) throws Exception {
+        jsonObjectMapper.getObjectMapperText().writeValue(jsonGenerator, getEncodable());
     }
 
     protected void generateJsonString() throws Exception {
-        jsonString = jsonObjectMapper.getObjectMapperText().writeValueAsString(this);
+        jsonString = jsonObjectMapper.getObjectMapperText().writeValueAsString(getEncodable());
         isStringDirty = false;
     }
 
@@ -160,8 +201,38 @@ public class Result<T> {
         return jsonString;
     }
 
+    /**
+     * Writes the json representation of this result to a stream. An existing encoding is copied, otherwise the result
+     * is encoded straight into the stream without being kept.
+     * @param outputStream stream to write to
+     * @throws Exception result cannot be encoded
+     */
+    public void writeJsonString(final OutputStream outputStream) throws Exception {
+        if (!isStringDirty) {
+            outputStream.write(jsonString.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        jsonObjectMapper.getObjectMapperText().writeValue(outputStream, getEncodable());
+    }
+
+    /**
+     * Writes the binary json representation of this result to a stream. An existing encoding is copied, otherwise the
+     * result is encoded straight into the stream without being kept.
+     * @param outputStream stream to write to
+     * @throws Exception result cannot be encoded
+     */
+    public void writeJsonBytes(final OutputStream outputStream) throws Exception {
+        if (!isBytesDirty) {
+            outputStream.write(jsonBytes);
+            return;
+        }
+
+        jsonObjectMapper.getObjectMapperBinary().writeValue(outputStream, getEncodable());
+    }
+
     protected void generateJsonBytes() throws Exception {
-        jsonBytes = jsonObjectMapper.getObjectMapperBinary().writeValueAsBytes(this);
+        jsonBytes = jsonObjectMapper.getObjectMapperBinary().writeValueAsBytes(getEncodable());
         isBytesDirty = false;
     }
 
@@ -17,11 +17,12 @@ public class ResultSerializer extends JsonSerializer<Result> {
     {
         jsonGenerator.writeStartObject();
 
-        jsonGenerator.writeBooleanField("Ok", result.isOk());
+        // "Ok" comes last, so a streamed result can write it once its data has been written
+        jsonGenerator.writeObjectField("Data", result.getData());
         if (result.getErrors() != null) {
             jsonGenerator.writeObjectField("Errors", result.getErrors());
         }
-        jsonGenerator.writeObjectField("Data", result.getData());
+        jsonGenerator.writeBooleanField("Ok", result.isOk());
 
         Result<?> r = result;
 
@@ -0,0 +1,50 @@
+package de.oliverwetterau.neo4j.websockets.core.helpers;
+
+import java.nio.charset.Charset;
+
+/**
+ * Fast non-cryptographic 64 bit hash functions (FNV-1a with a final avalanche step) that produce the same values on
+ * client and server side.
+ *
+ * @author Oliver Wetterau
+ * @version 2015-09-01
+ */
+public class Hashing {
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+    protected static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    protected static final long FNV_PRIME = 0x100000001b3L;
+
+    public static long hash(final byte[] bytes) {
+        return hash(bytes, 0, bytes.length);
+    }
+
+    public static long hash(final byte[] bytes, final int offset, final int length) {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        return mix(hash);
+    }
+
+    public static long hash(final String value) {
+        return hash(value.getBytes(UTF8));
+    }
+
+    /**
+     * Spreads the bits of a hash value over all 64 bits (finalizer of MurmurHash3).
+     * @param value hash value
+     * @return mixed hash value
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+
+        return value;
+    }
+}
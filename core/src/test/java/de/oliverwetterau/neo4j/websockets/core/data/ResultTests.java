@@ -0,0 +1,141 @@
+package de.oliverwetterau.neo4j.websockets.core.data;
+
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ResultTests {
+    private static JsonObjectMapper jsonObjectMapper;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jsonObjectMapper = new JsonObjectMapper(null);
+        Result.setJsonObjectMapper(jsonObjectMapper);
+        Error.setJsonObjectMapper(jsonObjectMapper);
+    }
+
+    private static Result<Object> customers() {
+        Map<String,Object> customer = new LinkedHashMap<>();
+        customer.put("name", "Anna");
+        customer.put("age", 42);
+        customer.put("tags", Arrays.asList("a", "b"));
+
+        Result<Object> result = new Result<>();
+        result.add(customer);
+        result.add("Ümlaut");
+        result.add(Long.valueOf(7));
+        result.add(Double.valueOf(0.5));
+        return result;
+    }
+
+    private static Result<Object> failedCustomers() {
+        Result<Object> result = customers();
+        result.add(new Error(Error.METHOD_EXECUTION_FAILED, "could not be executed"));
+        return result;
+    }
+
+    private static byte[] jsonString(final Result result) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        result.writeJsonString(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] jsonBytes(final Result result) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        result.writeJsonBytes(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    public void detachedEncodingTest() throws Exception {
+        for (Result<Object> expected : Arrays.asList(customers(), failedCustomers())) {
+            Result<Object> detached = expected.isOk() ? customers() : failedCustomers();
+            detached.detach();
+
+            assertNotNull(detached.detached);
+            assertEquals(expected.toJsonString(), detached.toJsonString());
+            assertArrayEquals(expected.toJsonBytes(), detached.toJsonBytes());
+        }
+    }
+
+    @Test
+    public void streamedEncodingTest() throws Exception {
+        Result<Object> expected = customers();
+
+        Result<Object> direct = customers();
+        assertArrayEquals(expected.toJsonString().getBytes(StandardCharsets.UTF_8), jsonString(direct));
+        assertArrayEquals(expected.toJsonBytes(), jsonBytes(direct));
+
+        Result<Object> detached = customers();
+        detached.detach();
+        assertArrayEquals(expected.toJsonString().getBytes(StandardCharsets.UTF_8), jsonString(detached));
+        assertArrayEquals(expected.toJsonBytes(), jsonBytes(detached));
+
+        // existing encodings are copied
+        Result<Object> encoded = customers();
+        encoded.toJsonString();
+        encoded.toJsonBytes();
+        assertArrayEquals(expected.toJsonString().getBytes(StandardCharsets.UTF_8), jsonString(encoded));
+        assertArrayEquals(expected.toJsonBytes(), jsonBytes(encoded));
+    }
+
+    @Test
+    public void changeAfterDetachTest() throws Exception {
+        Result<Object> result = customers();
+        result.detach();
+        result.add("Berta");
+
+        // the tokens do not contain the added element anymore, so they are dropped
+        assertNull(result.detached);
+
+        Result<Object> expected = customers();
+        expected.add("Berta");
+        assertEquals(expected.toJsonString(), result.toJsonString());
+
+        result.detach();
+        result.add(new Error(Error.METHOD_EXECUTION_FAILED, "could not be executed"));
+        assertNull(result.detached);
+        assertTrue(result.toJsonString().contains(Error.METHOD_EXECUTION_FAILED));
+    }
+
+    @Test
+    public void closeTest() throws Exception {
+        Result<Object> result = customers();
+        result.close();
+
+        assertNotNull(result.detached);
+        assertEquals(4, result.getData().size());
+        assertEquals(customers().toJsonString(), result.toJsonString());
+    }
+
+    @Test
+    public void closeFailedResultTest() throws Exception {
+        Result<Object> result = failedCustomers();
+        result.close();
+
+        // the data of a failed result is not sent
+        assertFalse(result.isOk());
+        assertTrue(result.getData().isEmpty());
+        assertNotNull(result.detached);
+
+        Result<Object> expected = new Result<>(new Error(Error.METHOD_EXECUTION_FAILED, "could not be executed"));
+        assertEquals(expected.toJsonString(), result.toJsonString());
+        assertArrayEquals(expected.toJsonBytes(), jsonBytes(result));
+    }
+}
@@ -8,7 +8,9 @@ import org.springframework.context.annotation.ClassPathScanningCandidateComponen
 import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.util.ClassUtils;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by oliver on 11.11.15.
@@ -19,6 +21,16 @@ public class ApplicationSettings {
     private static Integer port = null;
     private static String managementPath = null;
     private static String dataPath = null;
+    private static String advertisedUri = null;
+    private static String zone = "";
+    private static Integer invalidationInterval = 0;
+    private static Integer idempotencyTableSize = 0;
+    private static Integer idempotencyTtl = 0;
+    private static Integer workerThreads = 16;
+    private static Integer workerQueueSize = 1000;
+    private static Map<String,Integer> bulkheads = new HashMap<>();
+    private static boolean isVirtualThreadExecution = false;
+    private static Integer virtualMaxConcurrency = 256;
 
     private static Class jsonObjectSerializersClass = null;
     private static Class threadLocaleClass = null;
@@ -27,7 +39,10 @@ public class ApplicationSettings {
     private ApplicationSettings() {
     }
 
-    public static void configure(List<String> packageNames, String host, Integer port, String managementPath, String dataPath)
+    public static void configure(List<String> packageNames, String host, Integer port, String managementPath, String dataPath,
+                                 String advertisedUri, String zone, Integer invalidationInterval, Integer idempotencyTableSize,
+                                 Integer idempotencyTtl, Integer workerThreads, Integer workerQueueSize,
+                                 List<String> bulkheads, String executionMode, Integer virtualMaxConcurrency)
             throws Exception
     {
         ApplicationSettings.packageNames = packageNames;
@@ -35,6 +50,17 @@ public class ApplicationSettings {
         ApplicationSettings.port = port;
         ApplicationSettings.managementPath = sanitizePath(managementPath);
         ApplicationSettings.dataPath = sanitizePath(dataPath);
+        ApplicationSettings.advertisedUri = (advertisedUri == null || advertisedUri.isEmpty()) ? null : advertisedUri;
+        ApplicationSettings.zone = (zone == null) ? "" : zone;
+        ApplicationSettings.invalidationInterval = (invalidationInterval == null) ? 0 : invalidationInterval;
+        ApplicationSettings.idempotencyTableSize = (idempotencyTableSize == null) ? 0 : idempotencyTableSize;
+        ApplicationSettings.idempotencyTtl = (idempotencyTtl == null) ? 0 : idempotencyTtl;
+        ApplicationSettings.workerThreads = (workerThreads == null || workerThreads < 1) ? 16 : workerThreads;
+        ApplicationSettings.workerQueueSize = (workerQueueSize == null || workerQueueSize < 1) ? 1000 : workerQueueSize;
+        ApplicationSettings.bulkheads = parseBulkheads(bulkheads);
+        ApplicationSettings.isVirtualThreadExecution = parseExecutionMode(executionMode);
+        ApplicationSettings.virtualMaxConcurrency =
+                (virtualMaxConcurrency == null || virtualMaxConcurrency < 1) ? 256 : virtualMaxConcurrency;
 
         findInterfaceImplentations();
     }
@@ -76,6 +102,10 @@ public class ApplicationSettings {
         return packageNames;
     }
 
+    public static void setPackageNames(List<String> packageNames) {
+        ApplicationSettings.packageNames = packageNames;
+    }
+
     public static String host() {
         return host;
     }
@@ -92,6 +122,91 @@ public class ApplicationSettings {
         return dataPath;
     }
 
+    /**
+     * Gets the websocket uri other cluster members advertise to clients for this server (e.g. wss://db1.example.com:443).
+     * @return configured websocket uri or null if the uri is built from host and port
+     */
+    public static String advertisedUri() {
+        return advertisedUri;
+    }
+
+    public static String zone() {
+        return zone;
+    }
+
+    public static Integer invalidationInterval() {
+        return invalidationInterval;
+    }
+
+    public static Integer idempotencyTableSize() {
+        return idempotencyTableSize;
+    }
+
+    public static void setIdempotencyTableSize(Integer idempotencyTableSize) {
+        ApplicationSettings.idempotencyTableSize = (idempotencyTableSize == null) ? 0 : idempotencyTableSize;
+    }
+
+    public static Integer idempotencyTtl() {
+        return idempotencyTtl;
+    }
+
+    public static void setIdempotencyTtl(Integer idempotencyTtl) {
+        ApplicationSettings.idempotencyTtl = (idempotencyTtl == null) ? 0 : idempotencyTtl;
+    }
+
+    public static Integer workerThreads() {
+        return workerThreads;
+    }
+
+    public static void setWorkerThreads(Integer workerThreads) {
+        ApplicationSettings.workerThreads = (workerThreads == null || workerThreads < 1) ? 16 : workerThreads;
+    }
+
+    public static Integer workerQueueSize() {
+        return workerQueueSize;
+    }
+
+    public static void setWorkerQueueSize(Integer workerQueueSize) {
+        ApplicationSettings.workerQueueSize = (workerQueueSize == null || workerQueueSize < 1) ? 1000 : workerQueueSize;
+    }
+
+    /**
+     * Gets the maximum number of messages of a service that may be executed at the same time.
+     * @return concurrency limit by service name (services without a limit are not contained)
+     */
+    public static Map<String,Integer> bulkheads() {
+        return bulkheads;
+    }
+
+    public static void setBulkheads(Map<String,Integer> bulkheads) {
+        ApplicationSettings.bulkheads = (bulkheads == null) ? new HashMap<String,Integer>() : bulkheads;
+    }
+
+    /**
+     * Gets whether every data message is executed on its own virtual thread instead of a pool of platform threads.
+     * @return are messages executed on virtual threads?
+     */
+    public static boolean isVirtualThreadExecution() {
+        return isVirtualThreadExecution;
+    }
+
+    public static void setVirtualThreadExecution(boolean isVirtualThreadExecution) {
+        ApplicationSettings.isVirtualThreadExecution = isVirtualThreadExecution;
+    }
+
+    /**
+     * Gets the maximum number of data messages executed at the same time in virtual thread execution mode.
+     * @return number of concurrently executed messages
+     */
+    public static Integer virtualMaxConcurrency() {
+        return virtualMaxConcurrency;
+    }
+
+    public static void setVirtualMaxConcurrency(Integer virtualMaxConcurrency) {
+        ApplicationSettings.virtualMaxConcurrency =
+                (virtualMaxConcurrency == null || virtualMaxConcurrency < 1) ? 256 : virtualMaxConcurrency;
+    }
+
     public static Class jsonObjectSerializersClass() {
         return jsonObjectSerializersClass;
     }
@@ -104,6 +219,47 @@ public class ApplicationSettings {
         return startListenerClass;
     }
 
+    /**
+     * Parses concurrency limits of services given as "service=limit".
+     * @param bulkheads list of limits
+     * @return concurrency limit by service name
+     * @throws Exception invalid limit
+     */
+    private static Map<String,Integer> parseBulkheads(List<String> bulkheads) throws Exception {
+        Map<String,Integer> limits = new HashMap<>();
+
+        if (bulkheads == null) {
+            return limits;
+        }
+
+        for (String bulkhead : bulkheads) {
+            if (bulkhead.trim().isEmpty()) {
+                continue;
+            }
+
+            String[] parts = bulkhead.split("=");
+
+            if (parts.length != 2) {
+                throw new Exception("Invalid bulkhead '" + bulkhead + "', expected 'service=limit'");
+            }
+
+            limits.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+
+        return limits;
+    }
+
+    private static boolean parseExecutionMode(String executionMode) throws Exception {
+        if (executionMode == null || executionMode.trim().isEmpty() || executionMode.trim().equalsIgnoreCase("platform")) {
+            return false;
+        }
+        if (executionMode.trim().equalsIgnoreCase("virtual")) {
+            return true;
+        }
+
+        throw new Exception("Invalid execution mode '" + executionMode + "', expected 'platform' or 'virtual'");
+    }
+
     private static String sanitizePath(String path) {
         StringBuilder pathBuilder = new StringBuilder();
 
@@ -1,10 +1,15 @@
 package de.oliverwetterau.neo4j.websockets.server;
 
 import de.oliverwetterau.neo4j.websockets.server.annotations.StartListener;
+import de.oliverwetterau.neo4j.websockets.server.ha.HighAvailabilityConfiguration;
+import de.oliverwetterau.neo4j.websockets.server.ha.HighAvailabilityListener;
 import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import de.oliverwetterau.neo4j.websockets.server.neo4j.EntityInvalidationPublisher;
+import de.oliverwetterau.neo4j.websockets.server.web.CommandExecutor;
 import de.oliverwetterau.neo4j.websockets.server.web.CommandWebsocketHandler;
 import de.oliverwetterau.neo4j.websockets.server.web.DefaultThreadLocale;
 import de.oliverwetterau.neo4j.websockets.server.web.ManagementWebsocketHandler;
+import de.oliverwetterau.neo4j.websockets.server.web.RoutingTable;
 import io.undertow.Undertow;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.slf4j.Logger;
@@ -30,6 +35,8 @@ public class WebsocketServer {
         contextScan(applicationContext);
         registgerStartListener(applicationContext);
 
+        applicationContext.getBean(RoutingTable.class).init();
+
         ManagementWebsocketHandler managementWebsocketHandler = applicationContext.getBean(ManagementWebsocketHandler.class);
         CommandWebsocketHandler commandWebsocketHandler = applicationContext.getBean(CommandWebsocketHandler.class);
 
@@ -43,6 +50,14 @@ public class WebsocketServer {
         runStartListener(applicationContext);
 
         webServer.start();
+
+        applicationContext.getBean(EntityInvalidationPublisher.class).start();
+
+        if (HighAvailabilityConfiguration.instance().isHighlyAvailable()) {
+            HighAvailabilityConfiguration.instance().setHighAvailabilityListener(
+                    new HighAvailabilityListener(managementWebsocketHandler));
+            HighAvailabilityConfiguration.instance().announceWebsocketUri();
+        }
     }
 
     private void contextScan(AnnotationConfigApplicationContext applicationContext)
@@ -95,7 +110,10 @@ public class WebsocketServer {
     }
 
     public void stop() {
+        applicationContext.getBean(EntityInvalidationPublisher.class).stop();
+        HighAvailabilityConfiguration.instance().stop();
         webServer.stop();
+        applicationContext.getBean(CommandExecutor.class).stop();
         applicationContext.stop();
     }
 }
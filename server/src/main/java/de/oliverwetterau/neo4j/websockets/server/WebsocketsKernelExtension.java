@@ -21,17 +21,29 @@ public class WebsocketsKernelExtension implements Lifecycle {
 
     public WebsocketsKernelExtension(
             GraphDatabaseService graphDatabaseService, ClusterMemberEvents clusterMemberEvents,
-            List<String> packageNames, HostnamePort hostnamePort, String managementPath, String dataPath)
+            List<String> packageNames, HostnamePort hostnamePort, String managementPath, String dataPath, String advertisedUri,
+            String zone,
+            Integer invalidationInterval, Integer idempotencyTableSize, Integer idempotencyTtl, Integer workerThreads,
+            Integer workerQueueSize, List<String> bulkheads, String executionMode, Integer virtualMaxConcurrency)
             throws Exception
     {
-        logger.info("[Constructor] package names = '{}', port = '{}', management path = '{}', data path = '{}'",
-                packageNames, hostnamePort.getPort(), managementPath, dataPath);
+        logger.info("[Constructor] package names = '{}', port = '{}', management path = '{}', data path = '{}', " +
+                "advertised uri = '{}', zone = '{}', " +
+                "invalidation interval = '{}', idempotency table size = '{}', idempotency ttl = '{}', " +
+                "worker threads = '{}', worker queue size = '{}', bulkheads = '{}', execution mode = '{}', " +
+                "virtual max concurrency = '{}'",
+                packageNames, hostnamePort.getPort(), managementPath, dataPath, advertisedUri, zone, invalidationInterval,
+                idempotencyTableSize, idempotencyTtl, workerThreads, workerQueueSize, bulkheads, executionMode,
+                virtualMaxConcurrency);
 
         DatabaseConfiguration.setGraphDatabaseService(graphDatabaseService);
 
         DatabaseCallAspect.setGraphDatabaseService(graphDatabaseService);
 
-        ApplicationSettings.configure(packageNames, hostnamePort.getHost(), hostnamePort.getPort(), managementPath, dataPath);
+        ApplicationSettings.configure(
+                packageNames, hostnamePort.getHost(), hostnamePort.getPort(), managementPath, dataPath, advertisedUri,
+                zone, invalidationInterval, idempotencyTableSize, idempotencyTtl, workerThreads, workerQueueSize, bulkheads,
+                executionMode, virtualMaxConcurrency);
 
         HighAvailabilityConfiguration.instance().configure(graphDatabaseService, clusterMemberEvents);
 
@@ -43,6 +43,16 @@ public class WebsocketsKernelExtensionFactory extends KernelExtensionFactory<Web
         Setting<List<String>> packageNames = setting("websocket_packages", STRING_LIST, "");
         Setting<String> managementPath = setting("websocket_management_path", STRING, "/ws/management");
         Setting<String> commandPath = setting("websocket_data_path", STRING, "/ws/data");
+        Setting<String> advertisedUri = setting("websocket_advertised_uri", STRING, "");
+        Setting<String> zone = setting("websocket_zone", STRING, "");
+        Setting<Integer> invalidationInterval = setting("websocket_invalidation_interval", INTEGER, "0");
+        Setting<Integer> idempotencyTableSize = setting("websocket_idempotency_table_size", INTEGER, "10000");
+        Setting<Integer> idempotencyTtl = setting("websocket_idempotency_ttl", INTEGER, "600000");
+        Setting<Integer> workerThreads = setting("websocket_worker_threads", INTEGER, "16");
+        Setting<Integer> workerQueueSize = setting("websocket_worker_queue_size", INTEGER, "1000");
+        Setting<List<String>> bulkheads = setting("websocket_bulkheads", STRING_LIST, "");
+        Setting<String> executionMode = setting("websocket_execution_mode", STRING, "platform");
+        Setting<Integer> virtualMaxConcurrency = setting("websocket_virtual_max_concurrency", INTEGER, "256");
 
         ClusterMemberEvents clusterMemberEvents = null;
 
@@ -53,6 +63,9 @@ public class WebsocketsKernelExtensionFactory extends KernelExtensionFactory<Web
 
         return new WebsocketsKernelExtension(
                 graphDatabaseService, clusterMemberEvents, config.get(packageNames), config.get(hostnamePort),
-                config.get(managementPath), config.get(commandPath));
+                config.get(managementPath), config.get(commandPath), config.get(advertisedUri), config.get(zone),
+                config.get(invalidationInterval), config.get(idempotencyTableSize), config.get(idempotencyTtl),
+                config.get(workerThreads), config.get(workerQueueSize), config.get(bulkheads), config.get(executionMode),
+                config.get(virtualMaxConcurrency));
     }
 }
@@ -1,8 +1,9 @@
 package de.oliverwetterau.neo4j.websockets.server.annotations;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import de.oliverwetterau.neo4j.websockets.core.data.Result;
 import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.server.web.ResultWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +14,7 @@ import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ClassUtils;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.*;
 
@@ -28,7 +30,7 @@ public class AnnotationReader {
     private final Map<Class,String> controllerServices = new HashMap<>();
     private final Map<Class,Map<String,Method>> controllerMethods = new HashMap<>();
 
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
 
     @Autowired
     public AnnotationReader(ApplicationContext applicationContext) throws Exception {
@@ -49,7 +51,17 @@ public class AnnotationReader {
         return controllerMethods.get(controller);
     }
 
-    private void init() {
+    public Map<String,Map<String,Method>> getServiceMethods() {
+        Map<String,Map<String,Method>> serviceMethods = new HashMap<>();
+
+        for (Map.Entry<Class,String> controllerAssignment : controllerServices.entrySet()) {
+            serviceMethods.put(controllerAssignment.getValue(), controllerMethods.get(controllerAssignment.getKey()));
+        }
+
+        return serviceMethods;
+    }
+
+    private synchronized void init() {
         if (initialized) return;
 
         for (Map.Entry<Class,String> controllerAssignment : controllerServices.entrySet()) {
@@ -90,14 +102,12 @@ public class AnnotationReader {
     }
 
     private List<Method> getMessageMethodAnnotatedMethods(Class clazz) throws Exception {
-        Class[] parameters = new Class[] { JsonNode.class };
-
         final List<Method> methods = new ArrayList<>();
 
         for (Method method : clazz.getMethods()) {
             MessageMethod messageMethod = method.getAnnotation(MessageMethod.class);
             if (messageMethod != null) {
-                if (!Arrays.deepEquals(method.getParameterTypes(), parameters)) {
+                if (!hasBindableParameters(method)) {
                     throw new Exception("wrong parameters for @MessageMethod: " + method.toString());
                 }
                 if (!Result.class.isAssignableFrom(method.getReturnType())) {
@@ -110,6 +120,54 @@ public class AnnotationReader {
         return methods;
     }
 
+    /**
+     * Checks whether the message parameters can be bound to the parameters of a method, i.e. the method has either
+     * a single parameter (tree, parser or any type the parameters can be read as) or only @Param parameters with
+     * distinct names. A ResultWriter parameter may be declared in addition.
+     * @param method message method
+     * @return can the parameters be bound?
+     */
+    private boolean hasBindableParameters(Method method) {
+        Class[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        Set<String> names = new HashSet<>();
+        int writers = 0;
+
+        for (Class parameterType : parameterTypes) {
+            if (parameterType == ResultWriter.class) {
+                writers++;
+            }
+        }
+
+        if (writers > 1) {
+            return false;
+        }
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == ResultWriter.class) {
+                continue;
+            }
+
+            Param param = null;
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Param) {
+                    param = (Param) annotation;
+                }
+            }
+
+            if (param == null) {
+                if (parameterTypes.length - writers != 1) {
+                    return false;
+                }
+            }
+            else if (parameterTypes[i] == JsonParser.class || !names.add(param.value())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private Method getMessageMethodAnnotatedMethod(Class clazz, String name) throws Exception {
         for (Method method : getMessageMethodAnnotatedMethods(clazz)) {
             if (method.getName().equals(name)) {
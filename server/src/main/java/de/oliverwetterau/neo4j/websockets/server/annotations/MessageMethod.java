@@ -11,4 +11,35 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface MessageMethod {
+    /**
+     * Declares whether the method only reads data. Read only methods may be called on any server of the cluster,
+     * all other methods are sent to the master.
+     * @return does the method only read data?
+     */
+    boolean readOnly() default false;
+
+    /**
+     * Declares how long clients may cache the results of this method.
+     * @return time to live of cached results in milliseconds (0 for no caching)
+     */
+    long cacheTtlMillis() default 0;
+
+    /**
+     * Declares the invalidation groups the cached results of this method belong to.
+     * @return names of invalidation groups
+     */
+    String[] cacheGroups() default {};
+
+    /**
+     * Declares the invalidation groups whose cached results are outdated after this method has been called.
+     * @return names of invalidation groups
+     */
+    String[] invalidates() default {};
+
+    /**
+     * Declares whether clients may share the result of one call among identical calls of this read only method that
+     * are made while the first call is still in progress.
+     * @return may identical concurrent calls be collapsed?
+     */
+    boolean collapse() default false;
 }
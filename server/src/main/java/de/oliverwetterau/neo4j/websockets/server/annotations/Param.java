@@ -0,0 +1,21 @@
+package de.oliverwetterau.neo4j.websockets.server.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a parameter of a message method to a field of the message parameters.
+ *
+ * Created by oliver on 18.12.15.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Param {
+    /**
+     * Declares the name of the field of the message parameters.
+     * @return name of the field
+     */
+    String value();
+}
@@ -61,6 +61,14 @@ public class DatabaseCallAspect {
             return false;
         }
 
+        /**
+         * Gets whether there is no open transaction.
+         * @return is there no open transaction?
+         */
+        public boolean isEmpty() {
+            return transactions.isEmpty();
+        }
+
         /**
          * Marks a transaction as failed.
          */
@@ -141,10 +149,9 @@ public class DatabaseCallAspect {
                     result = (Result) value;
 
                     if (isNewTransaction) {
-                        // create json value of result to prevent another access to Neo4j when requesting json value of
-                        // result as result.toJsonString() will otherwise access to entities will thrown an exception
-                        // when not in a transaction - without a change on Result toString will cache the json value
-                        // created in toString()
+                        // detach the result (copy its json tokens) while the entities can still be read, it is encoded
+                        // after the transaction has been closed - without a change on Result the detached tokens are
+                        // kept and encoded instead of the entities
                         result.close();
                     }
 
@@ -162,6 +169,12 @@ public class DatabaseCallAspect {
         finally {
             if (isNewTransaction) {
                 transactionHolder.close();
+
+                // do not keep the holder of the outermost transaction, as threads might be short-lived (virtual
+                // threads) or be reused for other messages (worker pools)
+                if (transactionHolder.isEmpty()) {
+                    transactionHolderThreadLocal.remove();
+                }
             }
         }
 
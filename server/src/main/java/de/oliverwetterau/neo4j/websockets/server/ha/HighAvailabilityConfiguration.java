@@ -1,13 +1,22 @@
 package de.oliverwetterau.neo4j.websockets.server.ha;
 
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import org.neo4j.cluster.InstanceId;
+import org.neo4j.cluster.member.ClusterMemberAvailability;
 import org.neo4j.cluster.member.ClusterMemberEvents;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.jmx.JmxUtils;
+import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.ha.HighlyAvailableGraphDatabase;
+import org.neo4j.kernel.ha.cluster.member.ClusterMember;
+import org.neo4j.kernel.ha.cluster.member.ClusterMembers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.management.ObjectName;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by oliver on 10.11.15.
@@ -15,6 +24,9 @@ import javax.management.ObjectName;
 public class HighAvailabilityConfiguration {
     private static final Logger logger = LoggerFactory.getLogger(HighAvailabilityConfiguration.class);
 
+    /** cluster role every member announces with the base uri of its websocket server */
+    public static final String WEBSOCKET_ROLE = "websocket";
+
     private static HighAvailabilityConfiguration instance;
 
     private GraphDatabaseService databaseService;
@@ -46,14 +58,68 @@ public class HighAvailabilityConfiguration {
     }
 
     public void setHighAvailabilityListener(final HighAvailabilityListener highAvailabilityListener) {
+        if (clusterMemberEvents == null) {
+            return;
+        }
+
         this.highAvailabilityListener = highAvailabilityListener;
         clusterMemberEvents.addClusterMemberListener(highAvailabilityListener);
     }
 
     public void stop() {
-        if (clusterMemberEvents != null) {
+        if (clusterMemberEvents != null && highAvailabilityListener != null) {
             clusterMemberEvents.removeClusterMemberListener(highAvailabilityListener);
         }
+
+        if (highlyAvailable) {
+            try {
+                getClusterMemberAvailability().memberIsUnavailable(WEBSOCKET_ROLE);
+            }
+            catch (Exception e) {
+                logger.error("[stop] could not withdraw websocket uri", e);
+            }
+        }
+    }
+
+    /**
+     * Announces the websocket uri of this server to the cluster, so the other members can advertise it to their clients.
+     */
+    public void announceWebsocketUri() {
+        if (!highlyAvailable) {
+            return;
+        }
+
+        try {
+            getClusterMemberAvailability().memberIsAvailable(
+                    WEBSOCKET_ROLE, URI.create(getWebsocketUri()), ((GraphDatabaseAPI) databaseService).storeId());
+        }
+        catch (Exception e) {
+            logger.error("[announceWebsocketUri] could not announce websocket uri", e);
+        }
+    }
+
+    /**
+     * Gets the base uri clients use to reach the websocket server of this member. It is the configured
+     * websocket_advertised_uri or is built from websocket_host, using the host of the cluster member if the websocket
+     * server listens to all interfaces.
+     * @return websocket uri (e.g. ws://192.168.1.10:8765)
+     */
+    public String getWebsocketUri() {
+        if (ApplicationSettings.advertisedUri() != null) {
+            return ApplicationSettings.advertisedUri();
+        }
+
+        String host = ApplicationSettings.host();
+
+        if ((host == null || host.isEmpty() || host.equals("0.0.0.0")) && highlyAvailable) {
+            URI haUri = getClusterMembers().getCurrentMember().getHAUri();
+
+            if (haUri != null && haUri.getHost() != null) {
+                host = haUri.getHost();
+            }
+        }
+
+        return "ws://" + host + ":" + ApplicationSettings.port();
     }
 
     public Integer getId() {
@@ -73,4 +139,95 @@ public class HighAvailabilityConfiguration {
     public boolean isMaster() {
         return highlyAvailable && ((HighlyAvailableGraphDatabase) databaseService).isMaster();
     }
+
+    /**
+     * Gets the websocket uris of all alive cluster members that have announced their websocket server.
+     * @return websocket uris by cluster id
+     */
+    public Map<String,String> getMemberUris() {
+        Map<String,String> memberUris = new HashMap<>();
+
+        if (!highlyAvailable) {
+            return memberUris;
+        }
+
+        try {
+            ClusterMembers clusterMembers = getClusterMembers();
+            InstanceId currentId = clusterMembers.getCurrentMember().getInstanceId();
+
+            for (ClusterMember clusterMember : clusterMembers.getAliveMembers()) {
+                String websocketUri = clusterMember.getInstanceId().equals(currentId)
+                        ? getWebsocketUri()
+                        : toWebsocketUri(clusterMember);
+
+                if (websocketUri != null) {
+                    memberUris.put(clusterMember.getInstanceId().toString(), websocketUri);
+                }
+            }
+        }
+        catch (Exception e) {
+            logger.error("[getMemberUris] could not read cluster members", e);
+        }
+
+        return memberUris;
+    }
+
+    /**
+     * Gets the websocket uri a cluster member has announced.
+     * @param instanceId cluster id of the member
+     * @return websocket uri or null if the member has not announced a websocket server (yet)
+     */
+    public String getMemberUri(final InstanceId instanceId) {
+        if (!highlyAvailable) {
+            return null;
+        }
+
+        try {
+            ClusterMembers clusterMembers = getClusterMembers();
+
+            if (clusterMembers.getCurrentMember().getInstanceId().equals(instanceId)) {
+                return getWebsocketUri();
+            }
+
+            for (ClusterMember clusterMember : clusterMembers.getAliveMembers()) {
+                if (clusterMember.getInstanceId().equals(instanceId)) {
+                    return toWebsocketUri(clusterMember);
+                }
+            }
+        }
+        catch (Exception e) {
+            logger.error("[getMemberUri] could not read cluster members", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the uri a cluster member announced for the websocket role among the uris of all its roles.
+     * @param clusterMember cluster member
+     * @return websocket uri (e.g. wss://db1.example.com:443) or null if the member has not announced it
+     */
+    protected static String toWebsocketUri(final ClusterMember clusterMember) {
+        if (!clusterMember.hasRole(WEBSOCKET_ROLE)) {
+            return null;
+        }
+
+        for (URI uri : clusterMember.getRoleURIs()) {
+            if ("ws".equals(uri.getScheme()) || "wss".equals(uri.getScheme())) {
+                return uri.toString();
+            }
+        }
+
+        return null;
+    }
+
+    protected ClusterMembers getClusterMembers() {
+        return ((HighlyAvailableGraphDatabase) databaseService).getDependencyResolver()
+                .resolveDependency(ClusterMembers.class);
+    }
+
+    protected ClusterMemberAvailability getClusterMemberAvailability() {
+        return ((HighlyAvailableGraphDatabase) databaseService).getDependencyResolver()
+                .resolveDependency(ClusterMemberAvailability.class);
+    }
 }
@@ -18,21 +18,30 @@ public class HighAvailabilityListener implements ClusterMemberListener {
     public class AvailableMember implements Runnable {
         private final String id;
         private final String role;
+        private final String uri;
 
-        public AvailableMember(String id, String role) {
+        public AvailableMember(String id, String role, String uri) {
             this.id = id;
             this.role = role;
+            this.uri = uri;
         }
 
         public void run() {
-            while (managementWebsocketHandler != null){
-                try {
-                    Thread.sleep(100);
-                }
-                catch (InterruptedException ignored) {}
-            }
-
-            managementWebsocketHandler.informAvailableMember(id, role);
+            managementWebsocketHandler.informAvailableMember(id, role, uri);
+        }
+    }
+
+    public class DiscoveredMember implements Runnable {
+        private final String id;
+        private final String uri;
+
+        public DiscoveredMember(String id, String uri) {
+            this.id = id;
+            this.uri = uri;
+        }
+
+        public void run() {
+            managementWebsocketHandler.informDiscoveredMember(id, uri);
         }
     }
 
@@ -46,18 +55,23 @@ public class HighAvailabilityListener implements ClusterMemberListener {
         }
 
         public void run() {
-            while (managementWebsocketHandler != null){
-                try {
-                    Thread.sleep(100);
-                }
-                catch (InterruptedException ignored) {}
-            }
-
             managementWebsocketHandler.informUnavailableMember(id, role);
         }
     }
 
-    private ManagementWebsocketHandler managementWebsocketHandler;
+    public class FailedMember implements Runnable {
+        private final String id;
+
+        public FailedMember(String id) {
+            this.id = id;
+        }
+
+        public void run() {
+            managementWebsocketHandler.informFailedMember(id);
+        }
+    }
+
+    private final ManagementWebsocketHandler managementWebsocketHandler;
 
     public HighAvailabilityListener(final ManagementWebsocketHandler managementWebSocketHandler) {
         this.managementWebsocketHandler = managementWebSocketHandler;
@@ -72,12 +86,23 @@ public class HighAvailabilityListener implements ClusterMemberListener {
     public void memberIsAvailable(String role, InstanceId instanceId, URI uri, StoreId storeId) {
         logger.debug("[memberIsAvailable] id = {}, uri = {}, role = {}", instanceId, uri, role);
 
-        new Thread(new AvailableMember(instanceId.toString(), role)).start();
+        if (HighAvailabilityConfiguration.WEBSOCKET_ROLE.equals(role)) {
+            // the member announced the uri of its own websocket server
+            new Thread(new DiscoveredMember(instanceId.toString(), uri.toString())).start();
+            return;
+        }
+
+        new Thread(new AvailableMember(
+                instanceId.toString(), role, HighAvailabilityConfiguration.instance().getMemberUri(instanceId))).start();
     }
 
     @Override
     public void memberIsUnavailable(String role, InstanceId instanceId) {
-        logger.debug("[memberIsUnavailable] id = {}, uri = {}, role = {}", instanceId, role);
+        logger.debug("[memberIsUnavailable] id = {}, role = {}", instanceId, role);
+
+        if (HighAvailabilityConfiguration.WEBSOCKET_ROLE.equals(role)) {
+            return;
+        }
 
         new Thread(new UnavailableMember(instanceId.toString(), role)).start();
     }
@@ -85,6 +110,8 @@ public class HighAvailabilityListener implements ClusterMemberListener {
     @Override
     public void memberIsFailed(InstanceId instanceId) {
         logger.debug("[memberIsFailed] id = {}", instanceId);
+
+        new Thread(new FailedMember(instanceId.toString())).start();
     }
 
     @Override
@@ -0,0 +1,162 @@
+package de.oliverwetterau.neo4j.websockets.server.neo4j;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.core.data.CombinedUpdateParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.annotations.Transactional;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies property updates combined by the client (see WriteCombiner) in a single transaction. Message methods
+ * receiving combined updates simply delegate to this handler:
+ *
+ * <pre>
+ * &#64;MessageMethod
+ * public Result&lt;JsonNode&gt; updateCounters(JsonNode parameters) {
+ *     return combinedUpdateHandler.apply(parameters);
+ * }
+ * </pre>
+ *
+ * Updates are applied in the order of the node ids, so concurrent batches lock nodes in the same order. Updates of
+ * nodes that do not exist (anymore) are skipped. Increments keep the type of the stored number and fail for
+ * properties that are no numbers.
+ *
+ * Created by oliver on 20.11.15.
+ */
+@Service
+public class CombinedUpdateHandler {
+    private final GraphDatabaseService graphDatabaseService;
+    private final JsonObjectMapper jsonObjectMapper;
+
+    @Autowired
+    public CombinedUpdateHandler(GraphDatabaseService graphDatabaseService, JsonObjectMapper jsonObjectMapper) {
+        this.graphDatabaseService = graphDatabaseService;
+        this.jsonObjectMapper = jsonObjectMapper;
+    }
+
+    /**
+     * Applies combined updates.
+     * @param parameters message parameters holding the list of updates
+     * @return number of applied updates
+     */
+    @Transactional
+    public Result<JsonNode> apply(final JsonNode parameters) {
+        List<JsonNode> updates = new ArrayList<>();
+
+        for (JsonNode update : parameters.path(CombinedUpdateParameters.UPDATES)) {
+            updates.add(update);
+        }
+
+        Collections.sort(updates, new Comparator<JsonNode>() {
+            @Override
+            public int compare(JsonNode update1, JsonNode update2) {
+                return Long.compare(update1.path(CombinedUpdateParameters.NODE_ID).asLong(),
+                        update2.path(CombinedUpdateParameters.NODE_ID).asLong());
+            }
+        });
+
+        int count = 0;
+
+        for (JsonNode update : updates) {
+            Node node;
+
+            try {
+                node = graphDatabaseService.getNodeById(update.path(CombinedUpdateParameters.NODE_ID).asLong());
+            }
+            catch (NotFoundException e) {
+                continue;
+            }
+
+            String property = update.path(CombinedUpdateParameters.PROPERTY).asText();
+
+            if (update.has(CombinedUpdateParameters.DELTA)) {
+                if (!increment(node, property, update.get(CombinedUpdateParameters.DELTA))) {
+                    return new Result<JsonNode>(new Error(Error.EXCEPTION,
+                            "cannot increment property '" + property + "' of node " + node.getId()));
+                }
+            }
+            else if (!setProperty(node, property, update.get(CombinedUpdateParameters.VALUE))) {
+                return new Result<JsonNode>(new Error(Error.EXCEPTION,
+                        "unsupported value for property '" + property + "' of node " + node.getId()));
+            }
+
+            count++;
+        }
+
+        return new Result<JsonNode>(jsonObjectMapper.getObjectMapper().getNodeFactory().numberNode(count));
+    }
+
+    protected boolean increment(final Node node, final String property, final JsonNode delta) {
+        Object value = node.getProperty(property, null);
+
+        if (!delta.isNumber()) {
+            return false;
+        }
+
+        if (value == null) {
+            if (delta.isIntegralNumber()) {
+                node.setProperty(property, delta.asLong());
+            }
+            else {
+                node.setProperty(property, delta.asDouble());
+            }
+        }
+        else if (value instanceof Long && delta.isIntegralNumber()) {
+            node.setProperty(property, (Long) value + delta.asLong());
+        }
+        else if (value instanceof Integer && delta.isIntegralNumber()) {
+            long sum = (Integer) value + delta.asLong();
+
+            if (sum < Integer.MIN_VALUE || sum > Integer.MAX_VALUE) {
+                return false;
+            }
+            node.setProperty(property, (int) sum);
+        }
+        else if (value instanceof Double) {
+            node.setProperty(property, (Double) value + delta.asDouble());
+        }
+        else if (value instanceof Float) {
+            node.setProperty(property, (float) ((Float) value + delta.asDouble()));
+        }
+        else {
+            // no number or an integral number incremented by a fraction
+            return false;
+        }
+
+        return true;
+    }
+
+    protected boolean setProperty(final Node node, final String property, final JsonNode value) {
+        if (value == null || value.isNull()) {
+            node.removeProperty(property);
+        }
+        else if (value.isTextual()) {
+            node.setProperty(property, value.asText());
+        }
+        else if (value.isBoolean()) {
+            node.setProperty(property, value.asBoolean());
+        }
+        else if (value.isIntegralNumber()) {
+            node.setProperty(property, value.asLong());
+        }
+        else if (value.isNumber()) {
+            node.setProperty(property, value.asDouble());
+        }
+        else {
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,166 @@
+package de.oliverwetterau.neo4j.websockets.server.neo4j;
+
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.server.web.ManagementWebsocketHandler;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the ids of all nodes and relationships changed by committed transactions and broadcasts them in batches
+ * to all clients, so they can remove these entities from their caches.
+ *
+ * Created by oliver on 20.11.15.
+ */
+@Service
+public class EntityInvalidationPublisher implements TransactionEventHandler<Void> {
+    private static final Logger logger = LoggerFactory.getLogger(EntityInvalidationPublisher.class);
+    private static final int MAXIMUM_BATCH_SIZE = 10000;
+
+    private final GraphDatabaseService graphDatabaseService;
+    private final ManagementWebsocketHandler managementWebsocketHandler;
+
+    private final Object lock = new Object();
+    private Set<Long> nodeIds = new HashSet<>();
+    private Set<Long> relationshipIds = new HashSet<>();
+
+    private ScheduledExecutorService scheduler = null;
+
+    @Autowired
+    public EntityInvalidationPublisher(final GraphDatabaseService graphDatabaseService,
+                                       final ManagementWebsocketHandler managementWebsocketHandler)
+    {
+        this.graphDatabaseService = graphDatabaseService;
+        this.managementWebsocketHandler = managementWebsocketHandler;
+    }
+
+    public void start() {
+        int interval = ApplicationSettings.invalidationInterval();
+
+        if (interval <= 0 || graphDatabaseService == null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "neo4j-websockets-invalidation");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        graphDatabaseService.registerTransactionEventHandler(this);
+    }
+
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+
+        graphDatabaseService.unregisterTransactionEventHandler(this);
+        scheduler.shutdown();
+        scheduler = null;
+    }
+
+    @Override
+    public Void beforeCommit(final TransactionData data) throws Exception {
+        return null;
+    }
+
+    @Override
+    public void afterCommit(final TransactionData data, final Void state) {
+        boolean isBatchFull;
+
+        synchronized (lock) {
+            for (Node node : data.deletedNodes()) {
+                nodeIds.add(node.getId());
+            }
+            for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+                nodeIds.add(entry.entity().getId());
+            }
+            for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+                nodeIds.add(entry.entity().getId());
+            }
+            for (LabelEntry entry : data.assignedLabels()) {
+                nodeIds.add(entry.node().getId());
+            }
+            for (LabelEntry entry : data.removedLabels()) {
+                nodeIds.add(entry.node().getId());
+            }
+            for (Relationship relationship : data.deletedRelationships()) {
+                relationshipIds.add(relationship.getId());
+            }
+            for (PropertyEntry<Relationship> entry : data.assignedRelationshipProperties()) {
+                relationshipIds.add(entry.entity().getId());
+            }
+            for (PropertyEntry<Relationship> entry : data.removedRelationshipProperties()) {
+                relationshipIds.add(entry.entity().getId());
+            }
+
+            isBatchFull = nodeIds.size() + relationshipIds.size() >= MAXIMUM_BATCH_SIZE;
+        }
+
+        ScheduledExecutorService currentScheduler = scheduler;
+
+        if (isBatchFull && currentScheduler != null) {
+            currentScheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void afterRollback(final TransactionData data, final Void state) {
+    }
+
+    private void flush() {
+        Set<Long> flushedNodeIds;
+        Set<Long> flushedRelationshipIds;
+
+        synchronized (lock) {
+            if (nodeIds.isEmpty() && relationshipIds.isEmpty()) {
+                return;
+            }
+
+            flushedNodeIds = nodeIds;
+            flushedRelationshipIds = relationshipIds;
+            nodeIds = new HashSet<>();
+            relationshipIds = new HashSet<>();
+        }
+
+        logger.debug("[flush] nodes = {}, relationships = {}", flushedNodeIds.size(), flushedRelationshipIds.size());
+
+        try {
+            managementWebsocketHandler.informInvalidatedEntities(flushedNodeIds, flushedRelationshipIds);
+        }
+        catch (Exception e) {
+            logger.error("[flush] could not send invalidations", e);
+        }
+    }
+}
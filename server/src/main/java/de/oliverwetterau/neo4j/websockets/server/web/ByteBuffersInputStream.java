@@ -0,0 +1,67 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream reading a chain of buffers one after another, so a message received in several pooled buffers can
+ * be parsed without merging them into one array first. Reading moves the positions of the buffers.
+ *
+ * Created by oliver on 22.12.15.
+ */
+public class ByteBuffersInputStream extends InputStream {
+    private final ByteBuffer[] buffers;
+    private int index = 0;
+
+    public ByteBuffersInputStream(final ByteBuffer[] buffers) {
+        this.buffers = buffers;
+    }
+
+    /**
+     * Gets the buffer to read from next.
+     * @return buffer with remaining bytes or null if all buffers have been read
+     */
+    private ByteBuffer current() {
+        while (index < buffers.length && !buffers[index].hasRemaining()) {
+            index++;
+        }
+
+        return index < buffers.length ? buffers[index] : null;
+    }
+
+    @Override
+    public int read() {
+        ByteBuffer buffer = current();
+
+        return buffer == null ? -1 : buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) {
+        if (length == 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = current();
+
+        if (buffer == null) {
+            return -1;
+        }
+
+        int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        int available = 0;
+
+        for (int i = index; i < buffers.length; i++) {
+            available += buffers[i].remaining();
+        }
+
+        return available;
+    }
+}
@@ -0,0 +1,186 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes received data messages on a bounded pool of worker threads instead of the I/O threads of the websocket
+ * server, so a slow method does not stall the other connections served by the same I/O thread. Messages are rejected
+ * if all workers are busy and the queue is full. Services may additionally be limited to a number of concurrently
+ * executed messages (bulkheads), so one expensive service cannot occupy all workers.
+ *
+ * In virtual thread execution mode (requires a JDK providing virtual threads, otherwise the platform thread pool is
+ * used) every message runs on its own virtual thread. Up to websocket_virtual_max_concurrency messages are executed at
+ * the same time, further messages wait up to the size of the worker queue.
+ *
+ * Created by oliver on 21.11.15.
+ */
+@Service
+public class CommandExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(CommandExecutor.class);
+    private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+    private final ExecutorService executor;
+    private final Map<String,Semaphore> bulkheads = new HashMap<>();
+
+    /** virtual thread execution mode: number of messages that may still be accepted (executed or waiting) */
+    private final Semaphore acceptedMessages;
+    /** virtual thread execution mode: number of messages that may still be executed at the same time */
+    private final Semaphore executedMessages;
+
+    public CommandExecutor() {
+        this(ApplicationSettings.isVirtualThreadExecution()
+                ? createVirtualThreadExecutor(VIRTUAL_THREAD_EXECUTOR_FACTORY)
+                : null);
+    }
+
+    /**
+     * Constructor
+     * @param virtualThreadExecutor executor starting a thread per message, null to use the platform thread pool
+     */
+    CommandExecutor(final ExecutorService virtualThreadExecutor) {
+        if (virtualThreadExecutor != null) {
+            executor = virtualThreadExecutor;
+            acceptedMessages = new Semaphore(
+                    ApplicationSettings.virtualMaxConcurrency() + ApplicationSettings.workerQueueSize());
+            executedMessages = new Semaphore(ApplicationSettings.virtualMaxConcurrency());
+        }
+        else {
+            executor = createPlatformThreadExecutor();
+            acceptedMessages = null;
+            executedMessages = null;
+        }
+
+        for (Map.Entry<String,Integer> bulkhead : ApplicationSettings.bulkheads().entrySet()) {
+            bulkheads.put(bulkhead.getKey(), new Semaphore(bulkhead.getValue()));
+        }
+    }
+
+    private static ExecutorService createPlatformThreadExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                ApplicationSettings.workerThreads(), ApplicationSettings.workerThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(ApplicationSettings.workerQueueSize()),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "neo4j-websockets-worker-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per message. It is created by reflection, as virtual threads are
+     * not available on the JDK this module is compiled for.
+     * @param factoryMethod name of the factory method of {@link Executors}
+     * @return executor or null, if virtual threads are not available
+     */
+    static ExecutorService createVirtualThreadExecutor(final String factoryMethod) {
+        try {
+            return (ExecutorService) Executors.class.getMethod(factoryMethod).invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            logger.warn("[createVirtualThreadExecutor] virtual threads are not available, using platform threads");
+            return null;
+        }
+    }
+
+    /**
+     * Executes a message handler on a worker thread.
+     * @param runnable message handler
+     * @throws RejectedExecutionException all workers are busy and the queue is full
+     */
+    public void execute(final Runnable runnable) throws RejectedExecutionException {
+        if (acceptedMessages == null) {
+            executor.execute(runnable);
+            return;
+        }
+
+        if (!acceptedMessages.tryAcquire()) {
+            throw new RejectedExecutionException("all workers are busy");
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    executedMessages.acquireUninterruptibly();
+                    try {
+                        runnable.run();
+                    }
+                    finally {
+                        acceptedMessages.release();
+                        executedMessages.release();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            acceptedMessages.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Enters the bulkhead of a service before one of its methods is executed.
+     * @param service name of the service
+     * @return true, if the method may be executed; false, if the service's concurrency limit has been reached
+     */
+    public boolean tryEnter(final String service) {
+        Semaphore bulkhead = bulkheads.get(service);
+
+        return bulkhead == null || bulkhead.tryAcquire();
+    }
+
+    /**
+     * Leaves the bulkhead of a service after one of its methods has been executed.
+     * @param service name of the service
+     */
+    public void leave(final String service) {
+        Semaphore bulkhead = bulkheads.get(service);
+
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Gets the number of messages waiting for a worker.
+     * @return number of queued messages
+     */
+    public int getQueuedMessages() {
+        if (acceptedMessages == null) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+
+        int accepted = ApplicationSettings.virtualMaxConcurrency() + ApplicationSettings.workerQueueSize()
+                - acceptedMessages.availablePermits();
+        int executed = ApplicationSettings.virtualMaxConcurrency() - executedMessages.availablePermits();
+
+        return Math.max(0, accepted - executed);
+    }
+
+    public void stop() {
+        executor.shutdown();
+    }
+}
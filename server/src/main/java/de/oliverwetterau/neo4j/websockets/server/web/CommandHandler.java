@@ -3,26 +3,22 @@ package de.oliverwetterau.neo4j.websockets.server.web;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import de.oliverwetterau.neo4j.websockets.server.annotations.AnnotationReader;
+import de.oliverwetterau.neo4j.websockets.server.annotations.Transactional;
 import de.oliverwetterau.neo4j.websockets.server.neo4j.ExceptionToErrorConverter;
-import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
 import de.oliverwetterau.neo4j.websockets.core.data.Error;
 import de.oliverwetterau.neo4j.websockets.core.data.Result;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.helpers.Hashing;
 import de.oliverwetterau.neo4j.websockets.core.helpers.ThreadBinary;
 import de.oliverwetterau.neo4j.websockets.core.i18n.ThreadLocale;
 import io.undertow.websockets.core.WebSocketChannel;
-import io.undertow.websockets.core.WebSockets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 /**
  * Created by oliver on 13.11.15.
@@ -33,74 +29,252 @@ public class CommandHandler {
 
     private final JsonObjectMapper jsonObjectMapper;
     private final ThreadLocale threadLocale;
-    private final AnnotationReader annotationReader;
+    private final RoutingTable routingTable;
     private final ExceptionToErrorConverter exceptionToErrorConverter;
+    private final IdempotencyTable idempotencyTable;
+    private final CommandExecutor commandExecutor;
 
     @Autowired
     public CommandHandler(JsonObjectMapper jsonObjectMapper, ThreadLocale threadLocale,
-                          AnnotationReader annotationReader, ExceptionToErrorConverter exceptionToErrorConverter)
+                          RoutingTable routingTable, ExceptionToErrorConverter exceptionToErrorConverter,
+                          IdempotencyTable idempotencyTable, CommandExecutor commandExecutor)
     {
         this.jsonObjectMapper = jsonObjectMapper;
         this.threadLocale = threadLocale;
-        this.annotationReader = annotationReader;
+        this.routingTable = routingTable;
         this.exceptionToErrorConverter = exceptionToErrorConverter;
+        this.idempotencyTable = idempotencyTable;
+        this.commandExecutor = commandExecutor;
 
         Result.setJsonObjectMapper(this.jsonObjectMapper);
         Error.setJsonObjectMapper(this.jsonObjectMapper);
     }
 
-    public void handleTextMessage(final WebSocketChannel channel, final JsonNode jsonMessage) throws Exception {
+    public void handleTextMessage(final WebSocketChannel channel, final CommandMessage commandMessage)
+            throws Exception
+    {
         ThreadBinary.setBinary(false);
-        sendTextMessage(channel, handleMessage(jsonMessage).toJsonString());
+        Result result = handleIdempotentMessage(commandMessage, createResultWriter(channel, commandMessage, false));
+
+        if (result == null) {
+            return;
+        }
+
+        String message = result.toJsonString();
+
+        if (isNotModified(commandMessage, message)) {
+            message = notModifiedResult().toJsonString();
+        }
+
+        sendTextMessage(channel, message);
     }
 
-    public void handleBinaryMessage(final WebSocketChannel channel, final JsonNode jsonMessage) throws Exception {
+    public void handleBinaryMessage(final WebSocketChannel channel, final CommandMessage commandMessage)
+            throws Exception
+    {
         ThreadBinary.setBinary(true);
-        sendBinaryMessage(channel, handleMessage(jsonMessage).toJsonBytes());
+        Result result = handleIdempotentMessage(commandMessage, createResultWriter(channel, commandMessage, true));
+
+        if (result == null) {
+            return;
+        }
+
+        if (commandMessage.hasHash() && isNotModified(commandMessage, result.toJsonBytes())) {
+            result = notModifiedResult();
+        }
+
+        sendBinaryResult(channel, result);
+    }
+
+    /**
+     * Creates the writer for the result of a message. Results of read only methods are streamed unless they must be
+     * known as a whole, i.e. the client sent the hash of a previous result or the result is remembered for an
+     * idempotency key. All other results are collected, so no write transaction waits for a slow client.
+     * @param channel channel the message has been received from
+     * @param commandMessage received message
+     * @param isBinary is the result sent as a binary message?
+     * @return result writer
+     */
+    protected ResultWriter createResultWriter(final WebSocketChannel channel, final CommandMessage commandMessage,
+                                              final boolean isBinary)
+    {
+        ObjectMapper objectMapper = jsonObjectMapper.getObjectMapper();
+
+        if (commandMessage.hasHash() || commandMessage.getIdempotencyKey() != null || !isReadOnly(commandMessage)) {
+            return ResultWriter.collecting(objectMapper);
+        }
+
+        return ResultWriter.streaming(channel, objectMapper, isBinary);
+    }
+
+    /**
+     * Checks whether a message calls a read only method.
+     * @param commandMessage received message
+     * @return is the method known and read only?
+     */
+    protected boolean isReadOnly(final CommandMessage commandMessage) {
+        Route route;
+
+        if (commandMessage.isBatch()) {
+            return false;
+        }
+
+        if (commandMessage.hasRoute()) {
+            route = routingTable.getRoute(commandMessage.getRoute());
+        }
+        else if (commandMessage.getService() != null && commandMessage.getMethod() != null) {
+            route = routingTable.getRoute(commandMessage.getService(), commandMessage.getMethod());
+        }
+        else {
+            return false;
+        }
+
+        return route != null && route.getMessageMethod().readOnly();
+    }
+
+    /**
+     * Answers a text message that could not be executed because the server is overloaded.
+     * @param channel channel the message has been received from
+     */
+    public void rejectTextMessage(final WebSocketChannel channel) {
+        try {
+            sendTextMessage(channel, overloadedResult().toJsonString());
+        }
+        catch (Exception e) {
+            logger.error("[rejectTextMessage]", e);
+        }
+    }
+
+    /**
+     * Answers a binary message that could not be executed because the server is overloaded.
+     * @param channel channel the message has been received from
+     */
+    public void rejectBinaryMessage(final WebSocketChannel channel) {
+        try {
+            sendBinaryResult(channel, overloadedResult());
+        }
+        catch (Exception e) {
+            logger.error("[rejectBinaryMessage]", e);
+        }
+    }
+
+    protected Result overloadedResult() {
+        return new Result<>(new Error(Error.SERVER_OVERLOADED, "all workers are busy"));
     }
 
-    protected Result handleMessage(final JsonNode jsonMessage) throws Exception {
+    /**
+     * Checks whether the client already has the encoded result, i.e. it sent the hash of the encoded result it got
+     * for the same message before.
+     * @param commandMessage received message
+     * @param message encoded result
+     * @return does the client already have the result?
+     */
+    protected boolean isNotModified(final CommandMessage commandMessage, final String message) {
+        return commandMessage.hasHash() && commandMessage.getHash() == Hashing.hash(message);
+    }
+
+    protected boolean isNotModified(final CommandMessage commandMessage, final byte[] message) {
+        return commandMessage.hasHash() && commandMessage.getHash() == Hashing.hash(message);
+    }
+
+    protected Result notModifiedResult() {
+        return new Result<>(new Error(Error.NOT_MODIFIED, "result has not been modified"));
+    }
+
+    /**
+     * Handles a message. If the message has an idempotency key, the remembered result of an earlier message with the
+     * same key is returned instead of executing the message again.
+     * @param commandMessage received message
+     * @param resultWriter writer for the result of the message
+     * @return result of the message or null if it has been streamed
+     * @throws Exception exception thrown while executing the message
+     */
+    protected Result handleIdempotentMessage(final CommandMessage commandMessage, final ResultWriter resultWriter)
+            throws Exception
+    {
+        String key = commandMessage.getIdempotencyKey();
+
+        if (key == null || !idempotencyTable.isEnabled()) {
+            return handleMessage(commandMessage, resultWriter);
+        }
+
+        Result result = idempotencyTable.begin(key);
+
+        if (result != null) {
+            logger.debug("[handleIdempotentMessage] replaying result of '{}'", key);
+            return result;
+        }
+
+        try {
+            result = handleMessage(commandMessage, resultWriter);
+            return result;
+        }
+        finally {
+            idempotencyTable.complete(key, result);
+        }
+    }
+
+    /**
+     * Handles a message by calling its message method.
+     * @param commandMessage received message
+     * @param resultWriter writer for the result of the message
+     * @return result of the message or null if it has been streamed
+     * @throws Exception exception thrown while executing the message
+     */
+    protected Result handleMessage(final CommandMessage commandMessage, final ResultWriter resultWriter)
+            throws Exception
+    {
         ObjectMapper objectMapper = jsonObjectMapper.getObjectMapper();
         String service;
         String command;
-        JsonNode parameters;
         Locale locale;
 
         Result result;
 
+        if (commandMessage.isBatch()) {
+            return handleBatch(commandMessage.getBatch());
+        }
+
         try {
-            if (jsonMessage.has(CommandParameters.LANGUAGE)) {
-                locale = new Locale(jsonMessage.get(CommandParameters.LANGUAGE).asText());
+            if (commandMessage.getLanguage() != null) {
+                locale = new Locale(commandMessage.getLanguage());
             } else {
                 locale = Locale.US;
             }
             threadLocale.setLocale(locale);
 
-            service = jsonMessage.has(CommandParameters.SERVICE) ? jsonMessage.get(CommandParameters.SERVICE).asText() : "";
-            command = jsonMessage.has(CommandParameters.METHOD) ? jsonMessage.get(CommandParameters.METHOD).asText() : "";
-            parameters = jsonMessage.has(CommandParameters.PARAMETERS)
-                    ? jsonMessage.get(CommandParameters.PARAMETERS)
-                    : objectMapper.createObjectNode();
+            service = commandMessage.getService();
+            command = commandMessage.getMethod();
         }
         catch (Exception e) {
             return new Result<>(exceptionToErrorConverter.convert(e));
         }
 
-        Object controllerInstance = annotationReader.getServiceController(service);
+        Route route;
 
-        if (controllerInstance == null) {
-            return new Result<>(new de.oliverwetterau.neo4j.websockets.core.data.Error(Error.UNKNOWN_SERVICE, service));
-        }
+        if (commandMessage.hasRoute()) {
+            route = routingTable.getRoute(commandMessage.getRoute());
 
-        Map<String,Method> methods = annotationReader.getControllerMethods(controllerInstance.getClass());
+            if (route == null) {
+                return new Result<>(new Error(Error.UNKNOWN_ROUTE,
+                        "unknown route '" + commandMessage.getRoute() + "'"));
+            }
 
-        if (methods == null) {
-            return new Result<>(new Error(Error.SERVICE_HAS_NO_METHODS, service));
+            service = route.getService();
+            command = route.getMethod();
         }
+        else {
+            if (!routingTable.hasService(service)) {
+                return new Result<>(new de.oliverwetterau.neo4j.websockets.core.data.Error(Error.UNKNOWN_SERVICE, service));
+            }
+            if (routingTable.getServices().get(service).isEmpty()) {
+                return new Result<>(new Error(Error.SERVICE_HAS_NO_METHODS, service));
+            }
 
-        Method method = methods.get(command);
+            route = routingTable.getRoute(service, command);
+        }
 
-        if (method == null) {
+        if (route == null) {
             ObjectNode detailsNode = objectMapper.createObjectNode();
             detailsNode.put("Service", service);
             detailsNode.put("Command", command);
@@ -114,10 +288,17 @@ public class CommandHandler {
             return result;
         }
 
+        if (!commandExecutor.tryEnter(service)) {
+            return new Result<>(new Error(Error.SERVICE_OVERLOADED,
+                    "too many messages for service '" + service + "' are executed at the moment"));
+        }
+
         try {
-            return ((Result) method.invoke(controllerInstance, parameters));
+            result = route.invoke(commandMessage, objectMapper, resultWriter);
         }
-        catch (IllegalAccessException | InvocationTargetException e) {
+        catch (Throwable e) {
+            logger.debug("[handleMessage] " + service + "/" + command, e);
+
             ObjectNode detailsNode = objectMapper.createObjectNode();
             detailsNode.put("Service", service);
             detailsNode.put("Command", command);
@@ -128,47 +309,69 @@ public class CommandHandler {
                     detailsNode
             ));
 
-            return result;
+            if (e instanceof java.lang.Error) {
+                resultWriter.finish(result);
+                throw (java.lang.Error) e;
+            }
+        }
+        finally {
+            commandExecutor.leave(service);
         }
-    }
 
-    private void sendTextMessage(final WebSocketChannel channel, final String message) {
-        SendTextMessageRunnable sendMessageRunnable = new SendTextMessageRunnable(channel, message);
-        Thread worker = new Thread(sendMessageRunnable);
-        worker.start();
+        return resultWriter.finish(result);
     }
 
-    private class SendTextMessageRunnable implements Runnable {
-        private final WebSocketChannel channel;
-        private final String message;
+    /**
+     * Executes the messages of a batch one after another in a single transaction. If one of the messages fails, the
+     * transaction is rolled back and the remaining messages are skipped.
+     * @param messages messages of the batch
+     * @return number of executed messages or the errors of the failed message
+     * @throws Exception exception thrown while executing a message
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    protected Result handleBatch(final List<CommandMessage> messages) throws Exception {
+        int count = 0;
 
-        public SendTextMessageRunnable(final WebSocketChannel channel, final String message) {
-            this.channel = channel;
-            this.message = message;
-        }
+        for (CommandMessage message : messages) {
+            Result result = handleMessage(message, ResultWriter.collecting(jsonObjectMapper.getObjectMapper()));
+
+            if (!result.isOk()) {
+                return new Result<>((List<Error>) result.getErrors());
+            }
 
-        public void run() {
-            WebSockets.sendText(message, channel, null);
+            count++;
         }
+
+        return new Result<JsonNode>(jsonObjectMapper.getObjectMapper().getNodeFactory().numberNode(count));
     }
 
-    private void sendBinaryMessage(WebSocketChannel channel, byte[] message) {
-        SendBinaryMessageRunnable sendMessageRunnable = new SendBinaryMessageRunnable(channel, message);
-        Thread worker = new Thread(sendMessageRunnable);
-        worker.start();
+    /**
+     * Sends a text message through the outbound queue of the channel.
+     * @param channel channel to send the message to
+     * @param message message to be sent
+     */
+    protected void sendTextMessage(final WebSocketChannel channel, final String message) {
+        OutboundQueue.get(channel).sendText(message);
     }
 
-    private class SendBinaryMessageRunnable implements Runnable {
-        private final WebSocketChannel channel;
-        private final byte[] message;
+    /**
+     * Sends a binary result written into pooled buffers of the channel, which are released after the send.
+     * @param channel channel to send the result to
+     * @param result result to be sent
+     * @throws Exception result cannot be encoded
+     */
+    protected void sendBinaryResult(final WebSocketChannel channel, final Result result) throws Exception {
+        PooledOutputStream outputStream = new PooledOutputStream(channel.getBufferPool());
 
-        public SendBinaryMessageRunnable(final WebSocketChannel channel, final byte[] message) {
-            this.channel = channel;
-            this.message = message;
+        try {
+            result.writeJsonBytes(outputStream);
         }
-
-        public void run() {
-            WebSockets.sendBinary(ByteBuffer.wrap(message), channel, null);
+        catch (Exception e) {
+            outputStream.release();
+            throw e;
         }
+
+        OutboundQueue.get(channel).sendBinary(outputStream);
     }
 }
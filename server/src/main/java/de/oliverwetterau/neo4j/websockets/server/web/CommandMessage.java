@@ -0,0 +1,172 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A data message read with a streaming parser. The envelope fields are read directly, the parameters are only kept as
+ * a buffer of tokens and are turned into a tree when a message method asks for one.
+ *
+ * Created by oliver on 17.12.15.
+ */
+public class CommandMessage {
+    private String service = "";
+    private String method = "";
+    private int route = -1;
+    private String language = null;
+    private boolean hasHash = false;
+    private long hash;
+    private String idempotencyKey = null;
+    private TokenBuffer parameters = null;
+    private List<CommandMessage> batch = null;
+
+    private CommandMessage() {
+    }
+
+    /**
+     * Reads a message from a parser, which is either positioned before the message or at its start.
+     * @param parser parser of the message
+     * @return message
+     * @throws IOException message cannot be parsed
+     */
+    public static CommandMessage read(final JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken() == null ? parser.nextToken() : parser.getCurrentToken();
+
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException("message is no object", parser.getCurrentLocation());
+        }
+
+        CommandMessage message = new CommandMessage();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            token = parser.nextToken();
+
+            switch (name) {
+                case CommandParameters.SERVICE:
+                    message.service = parser.getValueAsString("");
+                    break;
+                case CommandParameters.METHOD:
+                    message.method = parser.getValueAsString("");
+                    break;
+                case CommandParameters.ROUTE:
+                    message.route = parser.getValueAsInt(-1);
+                    break;
+                case CommandParameters.LANGUAGE:
+                    message.language = parser.getValueAsString();
+                    break;
+                case CommandParameters.HASH:
+                    message.hasHash = token != JsonToken.VALUE_NULL;
+                    message.hash = parser.getValueAsLong();
+                    break;
+                case CommandParameters.IDEMPOTENCY_KEY:
+                    message.idempotencyKey = parser.getValueAsString();
+                    break;
+                case CommandParameters.PARAMETERS:
+                    message.parameters = new TokenBuffer(parser);
+                    message.parameters.copyCurrentStructure(parser);
+                    break;
+                case CommandParameters.BATCH:
+                    message.batch = readBatch(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return message;
+    }
+
+    private static List<CommandMessage> readBatch(final JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException("batch is no array", parser.getCurrentLocation());
+        }
+
+        List<CommandMessage> messages = new ArrayList<>();
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            messages.add(read(parser));
+        }
+
+        return messages;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public boolean hasRoute() {
+        return route >= 0;
+    }
+
+    public int getRoute() {
+        return route;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public boolean hasHash() {
+        return hasHash;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public boolean isBatch() {
+        return batch != null;
+    }
+
+    public List<CommandMessage> getBatch() {
+        return batch;
+    }
+
+    /**
+     * Gets the parameters as a tree.
+     * @param objectMapper object mapper building the tree
+     * @return parameters or an empty object if the message has none
+     * @throws IOException parameters cannot be read
+     */
+    public JsonNode getParameters(final ObjectMapper objectMapper) throws IOException {
+        if (parameters == null) {
+            return objectMapper.createObjectNode();
+        }
+
+        return objectMapper.readTree(parameters.asParser(objectMapper));
+    }
+
+    /**
+     * Gets a parser over the parameters, positioned at their first token.
+     * @param objectMapper object mapper used as codec of the parser
+     * @return parser of the parameters or of an empty object if the message has none
+     * @throws IOException parameters cannot be read
+     */
+    public JsonParser getParametersParser(final ObjectMapper objectMapper) throws IOException {
+        JsonParser parser = parameters == null
+                ? objectMapper.treeAsTokens(objectMapper.createObjectNode())
+                : parameters.asParser(objectMapper);
+
+        parser.nextToken();
+
+        return parser;
+    }
+}
@@ -1,6 +1,6 @@
 package de.oliverwetterau.neo4j.websockets.server.web;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
 import de.oliverwetterau.neo4j.websockets.core.helpers.ExceptionConverter;
 import io.undertow.websockets.WebSocketConnectionCallback;
@@ -13,6 +13,7 @@ import org.springframework.stereotype.Service;
 import org.xnio.Pooled;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Created by oliver on 13.11.15.
@@ -22,11 +23,15 @@ public class CommandWebsocketHandler implements WebSocketConnectionCallback {
     private static final Logger logger = LoggerFactory.getLogger(CommandWebsocketHandler.class);
 
     private final CommandHandler commandHandler;
+    private final CommandExecutor commandExecutor;
     private final JsonObjectMapper jsonObjectMapper;
 
     @Autowired
-    public CommandWebsocketHandler(CommandHandler commandHandler, JsonObjectMapper jsonObjectMapper) {
+    public CommandWebsocketHandler(CommandHandler commandHandler, CommandExecutor commandExecutor,
+                                   JsonObjectMapper jsonObjectMapper)
+    {
         this.commandHandler = commandHandler;
+        this.commandExecutor = commandExecutor;
         this.jsonObjectMapper = jsonObjectMapper;
     }
 
@@ -38,20 +43,37 @@ public class CommandWebsocketHandler implements WebSocketConnectionCallback {
             protected void onFullBinaryMessage(final WebSocketChannel channel, BufferedBinaryMessage message) {
                 logger.info("[onFullBinaryMessage]");
 
-                Pooled<ByteBuffer[]> messageData = message.getData();
-                try {
-                    ByteBuffer[] resource = messageData.getResource();
-                    ByteBuffer byteBuffer = WebSockets.mergeBuffers(resource);
+                // the message is parsed straight from the pooled buffers it has been received in, which are given
+                // back to the pool once the message has been read
+                final Pooled<ByteBuffer[]> messageData = message.getData();
 
-                    JsonNode jsonNode = jsonObjectMapper.getObjectMapperBinary().readTree(byteBuffer.array());
+                try {
+                    commandExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                CommandMessage commandMessage;
+                                try (JsonParser parser = jsonObjectMapper.getObjectMapperBinary().getFactory()
+                                        .createParser(new ByteBuffersInputStream(messageData.getResource())))
+                                {
+                                    commandMessage = CommandMessage.read(parser);
+                                }
+                                finally {
+                                    messageData.discard();
+                                }
 
-                    commandHandler.handleBinaryMessage(channel, jsonNode);
+                                commandHandler.handleBinaryMessage(channel, commandMessage);
+                            }
+                            catch (Exception e) {
+                                logger.error("[onFullBinaryMessage] {} \n => {}", e, ExceptionConverter.stackTrace(e));
+                            }
+                        }
+                    });
                 }
-                catch (Exception e) {
-                    logger.error("[onFullBinaryMessage] {} \n => {}", e, ExceptionConverter.stackTrace(e));
-                }
-                finally {
+                catch (RejectedExecutionException e) {
                     messageData.discard();
+                    logger.warn("[onFullBinaryMessage] message rejected, all workers are busy");
+                    commandHandler.rejectBinaryMessage(channel);
                 }
             }
 
@@ -59,13 +81,31 @@ public class CommandWebsocketHandler implements WebSocketConnectionCallback {
             protected void onFullTextMessage(final WebSocketChannel channel, BufferedTextMessage message) {
                 logger.info("[onFullTextMessage]");
 
+                final String data = message.getData();
+
                 try {
-                    JsonNode jsonNode = jsonObjectMapper.getObjectMapperText().readTree(message.getData());
+                    commandExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                CommandMessage commandMessage;
+                                try (JsonParser parser =
+                                             jsonObjectMapper.getObjectMapperText().getFactory().createParser(data))
+                                {
+                                    commandMessage = CommandMessage.read(parser);
+                                }
 
-                    commandHandler.handleTextMessage(channel, jsonNode);
+                                commandHandler.handleTextMessage(channel, commandMessage);
+                            }
+                            catch (Exception e) {
+                                logger.error("[onFullTextMessage] {} \n => {}", e, ExceptionConverter.stackTrace(e));
+                            }
+                        }
+                    });
                 }
-                catch (Exception e) {
-                    logger.error("[onFullTextMessage] {} \n => {}", e, ExceptionConverter.stackTrace(e));
+                catch (RejectedExecutionException e) {
+                    logger.warn("[onFullTextMessage] message rejected, all workers are busy");
+                    commandHandler.rejectTextMessage(channel);
                 }
             }
         });
@@ -0,0 +1,118 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the results of recently executed messages by their idempotency key, so a message that is sent again
+ * (e.g. retried by a client after a timeout) is answered with the remembered result instead of being executed twice.
+ * A message arriving while the first one with the same key is still executed waits for its result. Only successful
+ * results are remembered, as failed messages have been rolled back and may simply be executed again.
+ *
+ * The table is held in memory of this server only. As write messages are executed by the master, keys are lost on
+ * a master failover, so a retry reaching the new master is executed again.
+ *
+ * Created by oliver on 20.11.15.
+ */
+@Service
+public class IdempotencyTable {
+    /**
+     * The result of a message, which is null as long as the message is executed.
+     */
+    protected static class Entry {
+        protected Result result;
+        protected long expiresAt;
+    }
+
+    /** entries by idempotency key (least recently added first) */
+    private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+            return size() > ApplicationSettings.idempotencyTableSize() && eldest.getValue().result != null;
+        }
+    };
+
+    /**
+     * Gets whether idempotency keys are processed.
+     * @return is the table enabled?
+     */
+    public boolean isEnabled() {
+        return ApplicationSettings.idempotencyTableSize() > 0;
+    }
+
+    /**
+     * Starts the execution of a message. If a message with the same key is executed at the moment, this method waits
+     * until it has finished.
+     * @param key idempotency key
+     * @return remembered result of the message or null, if the message has to be executed
+     * @throws InterruptedException interrupted while waiting for the message being executed
+     */
+    public synchronized Result begin(final String key) throws InterruptedException {
+        long now = System.nanoTime();
+
+        removeExpired(now);
+
+        Entry entry = entries.get(key);
+
+        while (entry != null && entry.result == null) {
+            wait();
+            entry = entries.get(key);
+        }
+
+        if (entry != null && entry.expiresAt - now > 0) {
+            return entry.result;
+        }
+
+        entries.remove(key);
+        entries.put(key, new Entry());
+
+        return null;
+    }
+
+    /**
+     * Finishes the execution of a message and remembers its result, if it was successful.
+     * @param key idempotency key
+     * @param result result of the message (null, if the message threw an exception)
+     */
+    public synchronized void complete(final String key, final Result result) {
+        if (result == null || !result.isOk()) {
+            entries.remove(key);
+        }
+        else {
+            Entry entry = entries.get(key);
+
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+
+            entry.result = result;
+            entry.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ApplicationSettings.idempotencyTtl());
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Removes expired results, which are the oldest entries of the table.
+     * @param now current time (System.nanoTime())
+     */
+    protected void removeExpired(final long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            if (entry.result == null || entry.expiresAt - now > 0) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+}
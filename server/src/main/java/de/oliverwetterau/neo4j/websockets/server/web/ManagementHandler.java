@@ -1,17 +1,24 @@
 package de.oliverwetterau.neo4j.websockets.server.web;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.oliverwetterau.neo4j.websockets.core.data.CatalogParameters;
+import de.oliverwetterau.neo4j.websockets.core.data.CommandParameters;
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.server.annotations.MessageMethod;
 import de.oliverwetterau.neo4j.websockets.server.ha.HighAvailabilityConfiguration;
 import de.oliverwetterau.neo4j.websockets.core.data.ManagementCommand;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
 import io.undertow.websockets.core.WebSocketChannel;
-import io.undertow.websockets.core.WebSockets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
 
 /**
  * Created by oliver on 13.11.15.
@@ -22,30 +29,111 @@ public class ManagementHandler {
 
     private final HighAvailabilityConfiguration highAvailabilityConfiguration;
     private final JsonObjectMapper jsonObjectMapper;
+    private final RoutingTable routingTable;
+
+    private ObjectNode catalog = null;
 
     @Autowired
-    public ManagementHandler(final JsonObjectMapper jsonObjectMapper) {
+    public ManagementHandler(final JsonObjectMapper jsonObjectMapper, final RoutingTable routingTable) {
         this.highAvailabilityConfiguration = HighAvailabilityConfiguration.instance();
         this.jsonObjectMapper = jsonObjectMapper;
+        this.routingTable = routingTable;
     }
 
     public void handleMessage(final WebSocketChannel channel, final String message) {
         logger.debug("[handleMessage] session = {}, message = {}", channel.toString(), message);
 
         if (message.equals(ManagementCommand.REGISTER)) {
-            ObjectNode objectNode = jsonObjectMapper.getObjectMapper().createObjectNode();
-            objectNode.put("id", highAvailabilityConfiguration.getId());
-            objectNode.put("isMaster", highAvailabilityConfiguration.isMaster());
+            register(channel, false);
+        }
+    }
+
+    public void handleMessage(final WebSocketChannel channel, final JsonNode message, final boolean isBinary) {
+        logger.debug("[handleMessage] session = {}, message = {}", channel.toString(), message);
+
+        String command = message.has(CommandParameters.METHOD) ? message.get(CommandParameters.METHOD).asText() : "";
 
-            sendMessage(channel, objectNode);
+        if (command.equals(ManagementCommand.REGISTER)) {
+            register(channel, isBinary);
+        }
+    }
+
+    protected void register(final WebSocketChannel channel, final boolean isBinary) {
+        ObjectNode objectNode = jsonObjectMapper.getObjectMapper().createObjectNode();
+        objectNode.put("id", highAvailabilityConfiguration.getId());
+        objectNode.put("isMaster", highAvailabilityConfiguration.isMaster());
+        objectNode.put("zone", ApplicationSettings.zone());
 
-            logger.debug("[handleMessage] REGISTER: {}", objectNode.toString());
+        ObjectNode members = objectNode.putObject("members");
+        for (Map.Entry<String,String> member : highAvailabilityConfiguration.getMemberUris().entrySet()) {
+            members.put(member.getKey(), member.getValue());
         }
+
+        objectNode.set(CatalogParameters.CATALOG, getCatalog());
+
+        sendMessage(channel, objectNode, isBinary);
+
+        logger.debug("[handleMessage] REGISTER: {}", objectNode.toString());
+    }
+
+    /**
+     * Gets the catalog of all message methods, so clients can route calls to the right servers and reject unknown
+     * methods without asking a server.
+     * @return message methods and their attributes by service name
+     */
+    protected synchronized ObjectNode getCatalog() {
+        if (catalog != null) {
+            return catalog;
+        }
+
+        catalog = jsonObjectMapper.getObjectMapper().createObjectNode();
+
+        for (Map.Entry<String,Map<String,Route>> service : routingTable.getServices().entrySet()) {
+            ObjectNode serviceNode = catalog.putObject(service.getKey());
+
+            for (Map.Entry<String,Route> method : service.getValue().entrySet()) {
+                MessageMethod messageMethod = method.getValue().getMessageMethod();
+
+                ObjectNode methodNode = serviceNode.putObject(method.getKey());
+                methodNode.put(CatalogParameters.ROUTE, method.getValue().getId());
+                methodNode.put(CatalogParameters.READ_ONLY, messageMethod.readOnly());
+                if (messageMethod.cacheTtlMillis() > 0) {
+                    methodNode.put(CatalogParameters.CACHE_TTL_MILLIS, messageMethod.cacheTtlMillis());
+                }
+                if (messageMethod.cacheGroups().length > 0) {
+                    ArrayNode groups = methodNode.putArray(CatalogParameters.CACHE_GROUPS);
+                    for (String group : messageMethod.cacheGroups()) {
+                        groups.add(group);
+                    }
+                }
+                if (messageMethod.invalidates().length > 0) {
+                    ArrayNode groups = methodNode.putArray(CatalogParameters.INVALIDATES);
+                    for (String group : messageMethod.invalidates()) {
+                        groups.add(group);
+                    }
+                }
+                if (messageMethod.collapse()) {
+                    methodNode.put(CatalogParameters.COLLAPSE, true);
+                }
+            }
+        }
+
+        return catalog;
     }
 
     public void sendMessage(final WebSocketChannel channel, final ObjectNode message) {
+        sendMessage(channel, message, false);
+    }
+
+    public void sendMessage(final WebSocketChannel channel, final ObjectNode message, final boolean isBinary) {
         try {
-            WebSockets.sendText(jsonObjectMapper.getObjectMapperText().writeValueAsString(message), channel, null);
+            if (isBinary) {
+                OutboundQueue.get(channel).sendBinary(
+                        ByteBuffer.wrap(jsonObjectMapper.getObjectMapperBinary().writeValueAsBytes(message)));
+            }
+            else {
+                OutboundQueue.get(channel).sendText(jsonObjectMapper.getObjectMapperText().writeValueAsString(message));
+            }
         }
         catch (IOException e) {
             logger.error("[sendMessage]", e);
@@ -1,7 +1,10 @@
 package de.oliverwetterau.neo4j.websockets.server.web;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.helpers.ExceptionConverter;
 import io.undertow.websockets.WebSocketConnectionCallback;
 import io.undertow.websockets.core.*;
 import io.undertow.websockets.spi.WebSocketHttpExchange;
@@ -9,11 +12,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.xnio.Pooled;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by oliver on 13.11.15.
@@ -24,7 +30,9 @@ public class ManagementWebsocketHandler implements WebSocketConnectionCallback {
 
     private final ManagementHandler managementHandler;
     private final JsonObjectMapper jsonObjectMapper;
-    private final Set<WebSocketChannel> channels = new HashSet<>();
+    /** connected clients, added and removed by the i/o threads while broadcasts iterate over them */
+    private final Set<WebSocketChannel> channels =
+            Collections.newSetFromMap(new ConcurrentHashMap<WebSocketChannel,Boolean>());
 
     @Autowired
     public ManagementWebsocketHandler(ManagementHandler managementHandler, JsonObjectMapper jsonObjectMapper) {
@@ -39,7 +47,24 @@ public class ManagementWebsocketHandler implements WebSocketConnectionCallback {
                 managementHandler.handleMessage(channel, message.getData());
 
                 for (WebSocketChannel session : channel.getPeerConnections()) {
-                    WebSockets.sendText(message.getData(), session, null);
+                    OutboundQueue.get(session).sendText(message.getData());
+                }
+            }
+
+            @Override
+            protected void onFullBinaryMessage(final WebSocketChannel channel, BufferedBinaryMessage message) {
+                Pooled<ByteBuffer[]> messageData = message.getData();
+                try {
+                    ByteBuffer byteBuffer = WebSockets.mergeBuffers(messageData.getResource());
+                    JsonNode jsonNode = jsonObjectMapper.getObjectMapperBinary().readTree(byteBuffer.array());
+
+                    managementHandler.handleMessage(channel, jsonNode, true);
+                }
+                catch (Exception e) {
+                    logger.error("[onFullBinaryMessage] {} \n => {}", e, ExceptionConverter.stackTrace(e));
+                }
+                finally {
+                    messageData.discard();
                 }
             }
 
@@ -58,10 +83,21 @@ public class ManagementWebsocketHandler implements WebSocketConnectionCallback {
         return Collections.unmodifiableSet(channels);
     }
 
-    public void informAvailableMember(final String memberId, final String role) {
+    public void informAvailableMember(final String memberId, final String role, final String uri) {
         ObjectNode objectNode = jsonObjectMapper.getObjectMapperBinary().createObjectNode();
         objectNode.put("available", memberId);
         objectNode.put("role", role);
+        if (uri != null) {
+            objectNode.put("uri", uri);
+        }
+
+        informAllClients(objectNode);
+    }
+
+    public void informDiscoveredMember(final String memberId, final String uri) {
+        ObjectNode objectNode = jsonObjectMapper.getObjectMapperBinary().createObjectNode();
+        objectNode.put("discovered", memberId);
+        objectNode.put("uri", uri);
 
         informAllClients(objectNode);
     }
@@ -74,6 +110,30 @@ public class ManagementWebsocketHandler implements WebSocketConnectionCallback {
         informAllClients(objectNode);
     }
 
+    public void informFailedMember(final String memberId) {
+        ObjectNode objectNode = jsonObjectMapper.getObjectMapperBinary().createObjectNode();
+        objectNode.put("failed", memberId);
+
+        informAllClients(objectNode);
+    }
+
+    public void informInvalidatedEntities(final Collection<Long> nodeIds, final Collection<Long> relationshipIds) {
+        ObjectNode objectNode = jsonObjectMapper.getObjectMapperBinary().createObjectNode();
+        ObjectNode invalidateNode = objectNode.putObject("invalidate");
+
+        ArrayNode nodes = invalidateNode.putArray("n");
+        for (Long id : nodeIds) {
+            nodes.add(id);
+        }
+
+        ArrayNode relationships = invalidateNode.putArray("r");
+        for (Long id : relationshipIds) {
+            relationships.add(id);
+        }
+
+        informAllClients(objectNode);
+    }
+
     private void informAllClients(final ObjectNode message) {
         for (WebSocketChannel channel : getChannels()) {
             managementHandler.sendMessage(channel, message);
@@ -0,0 +1,246 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import io.undertow.websockets.core.WebSocketCallback;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Sends the messages of a websocket channel one after another in the order they have been queued. Messages are sent
+ * non-blocking; the next message is sent by the completion callback of the previous one, so no thread waits for a
+ * slow client. Pooled buffers of binary messages are returned to their pool once the message has been sent.
+ *
+ * Created by oliver on 20.11.15.
+ */
+public class OutboundQueue {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+    private static final String ATTRIBUTE = OutboundQueue.class.getName();
+
+    private final WebSocketChannel channel;
+    /** queued messages (String for text messages, ByteBuffer or PooledOutputStream for binary messages) */
+    private final ArrayDeque<Object> messages = new ArrayDeque<>();
+    /** is a message being sent? */
+    private boolean isSending = false;
+
+    /**
+     * A single send of a message. Whichever finishes last, the thread handing the message to the channel or the
+     * completion callback, sends the next message. As every send has its own state, a completion never continues a
+     * different send, no matter on which thread it is called.
+     */
+    private class Send implements WebSocketCallback<Void> {
+        private final Object message;
+        /** has the thread handing the message to the channel returned? */
+        private boolean isReturned = false;
+        /** has the send completed (or failed)? */
+        private boolean isCompleted = false;
+
+        Send(final Object message) {
+            this.message = message;
+        }
+
+        @Override
+        public void complete(final WebSocketChannel channel, final Void context) {
+            sendNext(this);
+        }
+
+        @Override
+        public void onError(final WebSocketChannel channel, final Void context, final Throwable throwable) {
+            logger.error("[onError] could not send message", throwable);
+
+            if (channel != null && !channel.isOpen()) {
+                discardQueuedMessages();
+            }
+
+            sendNext(this);
+        }
+    }
+
+    OutboundQueue(final WebSocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Gets the queue of a channel.
+     * @param channel websocket channel
+     * @return queue of the channel
+     */
+    public static OutboundQueue get(final WebSocketChannel channel) {
+        synchronized (channel) {
+            OutboundQueue outboundQueue = (OutboundQueue) channel.getAttribute(ATTRIBUTE);
+
+            if (outboundQueue == null) {
+                outboundQueue = new OutboundQueue(channel);
+                channel.setAttribute(ATTRIBUTE, outboundQueue);
+            }
+
+            return outboundQueue;
+        }
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent through this channel.
+     * @return number of queued messages
+     */
+    public synchronized int getQueuedMessages() {
+        return messages.size();
+    }
+
+    public void sendText(final String message) {
+        enqueue(message);
+    }
+
+    public void sendBinary(final ByteBuffer message) {
+        enqueue(message);
+    }
+
+    /**
+     * Sends a binary message written into pooled buffers. The buffers are released after the message has been sent.
+     * @param message binary message
+     */
+    public void sendBinary(final PooledOutputStream message) {
+        enqueue(message);
+    }
+
+    /**
+     * Reserves the channel for a message streamed by the calling thread. Waits until all queued messages have been
+     * sent; messages queued meanwhile are sent after the streamed message.
+     * @throws InterruptedException thread has been interrupted while waiting
+     */
+    public synchronized void beginStream() throws InterruptedException {
+        while (isSending) {
+            wait();
+        }
+
+        isSending = true;
+    }
+
+    /**
+     * Releases the channel after a streamed message and sends the messages queued meanwhile.
+     */
+    public void endStream() {
+        Object message;
+
+        synchronized (this) {
+            message = pollNext();
+        }
+
+        send(message);
+    }
+
+    /**
+     * Marks that no message is being sent and wakes up threads waiting to stream a message.
+     */
+    private void setIdle() {
+        isSending = false;
+        notifyAll();
+    }
+
+    private void enqueue(final Object message) {
+        synchronized (this) {
+            if (isSending) {
+                messages.addLast(message);
+                return;
+            }
+            isSending = true;
+        }
+
+        send(message);
+    }
+
+    /**
+     * Sends a message and all messages whose predecessor's send completed synchronously.
+     * @param firstMessage message to be sent
+     */
+    private void send(final Object firstMessage) {
+        Object message = firstMessage;
+
+        while (message != null) {
+            Send send = new Send(message);
+
+            write(message, send);
+
+            synchronized (this) {
+                send.isReturned = true;
+
+                if (!send.isCompleted) {
+                    return;
+                }
+
+                message = pollNext();
+            }
+        }
+    }
+
+    /**
+     * Hands a message to the channel.
+     * @param message message to be sent
+     * @param callback callback called once the message has been sent (possibly before this method returns)
+     */
+    protected void write(final Object message, final WebSocketCallback<Void> callback) {
+        if (message instanceof String) {
+            WebSockets.sendText((String) message, channel, callback);
+        }
+        else if (message instanceof PooledOutputStream) {
+            WebSockets.sendBinary(((PooledOutputStream) message).getBuffers(), channel, callback);
+        }
+        else {
+            WebSockets.sendBinary((ByteBuffer) message, channel, callback);
+        }
+    }
+
+    /**
+     * Continues after a send has completed. If the thread handing the message to the channel has not returned yet, it
+     * sends the next message itself (avoiding a recursion for synchronously completed sends).
+     * @param send completed send
+     */
+    private void sendNext(final Send send) {
+        Object message;
+
+        synchronized (this) {
+            release(send.message);
+            send.isCompleted = true;
+
+            if (!send.isReturned) {
+                return;
+            }
+
+            message = pollNext();
+        }
+
+        send(message);
+    }
+
+    /**
+     * Takes the next queued message or marks the queue as idle if there is none. Must be called holding the lock.
+     * @return next message or null
+     */
+    private Object pollNext() {
+        Object message = messages.pollFirst();
+
+        if (message == null) {
+            setIdle();
+        }
+
+        return message;
+    }
+
+    /**
+     * Drops all queued messages of a closed channel.
+     */
+    private synchronized void discardQueuedMessages() {
+        for (Object message : messages) {
+            release(message);
+        }
+        messages.clear();
+    }
+
+    private static void release(final Object message) {
+        if (message instanceof PooledOutputStream) {
+            ((PooledOutputStream) message).release();
+        }
+    }
+}
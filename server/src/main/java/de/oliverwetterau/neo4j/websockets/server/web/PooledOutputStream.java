@@ -0,0 +1,86 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.connector.PooledByteBuffer;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An output stream writing into buffers taken from a buffer pool (usually the direct buffer pool of a websocket
+ * channel). The written buffers can be handed to the channel and must be released once they have been sent.
+ *
+ * Created by oliver on 19.12.15.
+ */
+public class PooledOutputStream extends OutputStream {
+    private final ByteBufferPool bufferPool;
+    private final List<PooledByteBuffer> pooledBuffers = new ArrayList<>();
+
+    private ByteBuffer current = null;
+
+    public PooledOutputStream(final ByteBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public void write(final int b) {
+        if (current == null || !current.hasRemaining()) {
+            allocate();
+        }
+
+        current.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (current == null || !current.hasRemaining()) {
+                allocate();
+            }
+
+            int count = Math.min(length, current.remaining());
+            current.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void allocate() {
+        PooledByteBuffer pooledBuffer = bufferPool.allocate();
+        pooledBuffers.add(pooledBuffer);
+
+        current = pooledBuffer.getBuffer();
+        current.clear();
+    }
+
+    /**
+     * Gets the written buffers ready to be read. Nothing may be written afterwards.
+     * @return written buffers
+     */
+    public ByteBuffer[] getBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[pooledBuffers.size()];
+
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pooledBuffers.get(i).getBuffer();
+            buffers[i].flip();
+        }
+
+        current = null;
+
+        return buffers;
+    }
+
+    /**
+     * Returns all buffers to the pool. Closing the stream does not release them, so they can still be sent.
+     */
+    public void release() {
+        for (PooledByteBuffer pooledBuffer : pooledBuffers) {
+            pooledBuffer.close();
+        }
+
+        pooledBuffers.clear();
+        current = null;
+    }
+}
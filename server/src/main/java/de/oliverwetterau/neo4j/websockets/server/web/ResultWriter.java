@@ -0,0 +1,227 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import io.undertow.websockets.core.BinaryOutputStream;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSocketFrameType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets a message method write the data of its result element by element while it is still reading them. A message
+ * method gets a writer by declaring a ResultWriter parameter; the Result it returns then only carries errors (and
+ * optionally data written after the elements).
+ *
+ * A streaming writer encodes the elements straight into a websocket message which is sent in fragments as the
+ * buffers of the channel fill up. Writing blocks while the channel cannot take more data, so a slow client slows
+ * down the method instead of filling the heap. As the method's transaction stays open meanwhile, only results of
+ * read only methods are streamed. A collecting writer is used for all other methods and where a result must be known
+ * as a whole (batches, conditional reads, idempotent writes); it copies the elements into trees while they can still
+ * be read.
+ *
+ * A streamed result is encoded in the field order of ResultSerializer ("Data", "Errors", "Ok"), so it is byte for
+ * byte the same as a collected one and its hash matches the hash of a later conditional read. Elements already
+ * streamed cannot be taken back, so a failed streamed result still carries them in front of its errors.
+ *
+ * Created by oliver on 21.12.15.
+ */
+public class ResultWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ResultWriter.class);
+
+    private final WebSocketChannel channel;
+    private final ObjectMapper objectMapper;
+    private final boolean isBinary;
+    private final boolean isStreamed;
+
+    private List<JsonNode> elements = null;
+    private OutboundQueue outboundQueue = null;
+    private JsonGenerator jsonGenerator = null;
+
+    /**
+     * Constructor
+     * @param channel channel the result is sent to (null if the elements are collected)
+     * @param objectMapper object mapper encoding the result
+     * @param isBinary is the result sent as a binary message?
+     * @param isStreamed are the elements streamed (or collected)?
+     */
+    protected ResultWriter(final WebSocketChannel channel, final ObjectMapper objectMapper, final boolean isBinary,
+                           final boolean isStreamed)
+    {
+        this.channel = channel;
+        this.objectMapper = objectMapper;
+        this.isBinary = isBinary;
+        this.isStreamed = isStreamed;
+    }
+
+    /**
+     * Creates a writer streaming the elements to a channel.
+     * @param channel channel the result is sent to
+     * @param objectMapper object mapper encoding the result
+     * @param isBinary is the result sent as a binary message?
+     * @return streaming writer
+     */
+    public static ResultWriter streaming(final WebSocketChannel channel, final ObjectMapper objectMapper,
+                                         final boolean isBinary)
+    {
+        return new ResultWriter(channel, objectMapper, isBinary, true);
+    }
+
+    /**
+     * Creates a writer collecting the elements.
+     * @param objectMapper object mapper converting the elements into trees
+     * @return collecting writer
+     */
+    public static ResultWriter collecting(final ObjectMapper objectMapper) {
+        return new ResultWriter(null, objectMapper, false, false);
+    }
+
+    /**
+     * Writes an element of the result data.
+     * @param element data element
+     * @throws IOException element cannot be encoded or sent
+     */
+    public void write(final Object element) throws IOException {
+        if (!isStreamed) {
+            if (elements == null) {
+                elements = new ArrayList<>();
+            }
+            elements.add(objectMapper.<JsonNode>valueToTree(element));
+            return;
+        }
+
+        if (jsonGenerator == null) {
+            start();
+        }
+
+        jsonGenerator.writeObject(element);
+    }
+
+    /**
+     * Checks whether elements have been streamed, i.e. the result has to be finished by this writer.
+     * @return has a message been started?
+     */
+    public boolean isStreaming() {
+        return jsonGenerator != null;
+    }
+
+    private void start() throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(beginMessage());
+
+        try {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("Data");
+        }
+        catch (IOException e) {
+            endMessage();
+            throw e;
+        }
+
+        jsonGenerator = generator;
+    }
+
+    /**
+     * Reserves the channel and starts the websocket message the result is streamed into.
+     * @return stream of the message
+     * @throws IOException message cannot be started
+     */
+    protected OutputStream beginMessage() throws IOException {
+        outboundQueue = OutboundQueue.get(channel);
+
+        try {
+            outboundQueue.beginStream();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the channel", e);
+        }
+
+        try {
+            return new BinaryOutputStream(channel.send(isBinary ? WebSocketFrameType.BINARY : WebSocketFrameType.TEXT));
+        }
+        catch (IOException e) {
+            endMessage();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the channel after the streamed message has been sent or has failed.
+     */
+    protected void endMessage() {
+        outboundQueue.endStream();
+    }
+
+    /**
+     * Closes the channel after a streamed message could not be completed.
+     */
+    protected void abortMessage() {
+        // the message cannot be completed anymore, so the client only notices the failure if the channel is closed
+        IoUtils.safeClose(channel);
+    }
+
+    /**
+     * Completes a result. A collected result is returned with the elements in front of the data of the result
+     * returned by the message method. A streamed result is finished by writing the returned result's data and errors,
+     * nothing is returned then.
+     * @param result result returned by the message method
+     * @return complete result or null if the result has been streamed
+     */
+    @SuppressWarnings("unchecked")
+    public Result finish(final Result result) {
+        if (!isStreaming()) {
+            if (elements == null) {
+                return result;
+            }
+
+            Result<Object> collected = new Result<>(elements.size() + result.getData().size());
+            for (JsonNode element : elements) {
+                collected.add(element);
+            }
+            collected.add((List<Object>) result.getData());
+            if (result.getErrors() != null) {
+                collected.addErrors((List<Error>) result.getErrors());
+            }
+
+            return collected;
+        }
+
+        try {
+            // the result may have been detached when its transaction was closed, so its tokens are copied (they
+            // start with the data, the start of the result and of its data has been written already)
+            TokenBuffer tokens = new TokenBuffer(objectMapper, false);
+            result.writeJson(tokens);
+
+            JsonParser parser = tokens.asParser();
+            parser.nextToken();
+            parser.nextToken();
+            parser.nextToken();
+
+            while (parser.nextToken() != null) {
+                jsonGenerator.copyCurrentEvent(parser);
+            }
+
+            jsonGenerator.close();
+        }
+        catch (Exception e) {
+            logger.error("[finish] could not send streamed result", e);
+            abortMessage();
+        }
+        finally {
+            endMessage();
+        }
+
+        return null;
+    }
+}
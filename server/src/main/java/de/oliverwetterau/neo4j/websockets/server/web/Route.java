@@ -0,0 +1,234 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.server.annotations.MessageMethod;
+import de.oliverwetterau.neo4j.websockets.server.annotations.Param;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A message method together with the controller instance it is called on. The method handle is bound to the
+ * controller once, so a call neither looks up the controller nor goes through reflection.
+ *
+ * The parameters of the message are passed to the method as a tree, as a parser, bound to the type of the method's
+ * only parameter or bound field by field to the method's @Param parameters. The readers binding them are built once
+ * with the route. A ResultWriter parameter is not bound to the message parameters but gets the writer of the call.
+ *
+ * Created by oliver on 16.12.15.
+ */
+public class Route {
+    private enum Binding { TREE, PARSER, VALUE, NAMED }
+
+    private final int id;
+    private final String service;
+    private final String method;
+    private final MessageMethod messageMethod;
+    private final Binding binding;
+    private final ObjectReader[] readers;
+    private final Object[] defaults;
+    private final Map<String,Integer> parameterIndexes = new HashMap<>();
+    /** index of the parameter bound by a tree, parser or value binding */
+    private final int valueIndex;
+    /** index of the ResultWriter parameter or -1 */
+    private final int writerIndex;
+    /** invoker taking the single bound parameter (not used with a ResultWriter or @Param parameters) */
+    private final MethodHandle invoker;
+    /** invoker taking all parameters as an array */
+    private final MethodHandle spreadInvoker;
+
+    public Route(final int id, final String service, final Method method, final Object controller,
+                 final ObjectMapper objectMapper) throws IllegalAccessException
+    {
+        this.id = id;
+        this.service = service;
+        this.method = method.getName();
+        this.messageMethod = method.getAnnotation(MessageMethod.class);
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+
+        readers = new ObjectReader[parameterTypes.length];
+        defaults = new Object[parameterTypes.length];
+
+        int valueIndex = -1;
+        int writerIndex = -1;
+        int boundParameters = 0;
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == ResultWriter.class) {
+                writerIndex = i;
+                continue;
+            }
+
+            boundParameters++;
+            valueIndex = i;
+
+            Param param = getParam(parameterAnnotations[i]);
+            if (param != null) {
+                parameterIndexes.put(param.value(), i);
+            }
+
+            if (parameterTypes[i] != JsonParser.class) {
+                readers[i] = objectMapper.readerFor(
+                        objectMapper.getTypeFactory().constructType(method.getGenericParameterTypes()[i]));
+            }
+
+            if (parameterTypes[i].isPrimitive()) {
+                defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+            }
+        }
+
+        this.valueIndex = valueIndex;
+        this.writerIndex = writerIndex;
+
+        method.setAccessible(true);
+        MethodHandle methodHandle = MethodHandles.lookup().unreflect(method).bindTo(controller);
+
+        if (boundParameters == 1 && parameterIndexes.isEmpty()) {
+            if (parameterTypes[valueIndex] == JsonNode.class) {
+                binding = Binding.TREE;
+            }
+            else if (parameterTypes[valueIndex] == JsonParser.class) {
+                binding = Binding.PARSER;
+            }
+            else {
+                binding = Binding.VALUE;
+            }
+        }
+        else {
+            binding = Binding.NAMED;
+        }
+
+        if (binding != Binding.NAMED && writerIndex < 0) {
+            Class<?> parameterType = binding == Binding.VALUE ? Object.class : parameterTypes[valueIndex];
+            invoker = methodHandle.asType(MethodType.methodType(Result.class, parameterType));
+        }
+        else {
+            invoker = null;
+        }
+
+        spreadInvoker = methodHandle.asSpreader(Object[].class, parameterTypes.length)
+                .asType(MethodType.methodType(Result.class, Object[].class));
+    }
+
+    private static Param getParam(final Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Param) {
+                return (Param) annotation;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the id of the route, which is its index in the routing table.
+     * @return route id
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public MessageMethod getMessageMethod() {
+        return messageMethod;
+    }
+
+    /**
+     * Binds the parameters of a message and calls the message method on its controller.
+     * @param message received message
+     * @param objectMapper object mapper to read the parameters with
+     * @param resultWriter writer passed to a ResultWriter parameter
+     * @return result of the message method
+     * @throws Throwable parameters cannot be bound or anything thrown by the message method
+     */
+    public Result invoke(final CommandMessage message, final ObjectMapper objectMapper,
+                         final ResultWriter resultWriter) throws Throwable
+    {
+        if (invoker != null && binding == Binding.TREE) {
+            return (Result) invoker.invokeExact(message.getParameters(objectMapper));
+        }
+
+        try (JsonParser parser = message.getParametersParser(objectMapper)) {
+            if (invoker != null) {
+                if (binding == Binding.PARSER) {
+                    return (Result) invoker.invokeExact(parser);
+                }
+
+                Object value = bindValue(parser);
+                return (Result) invoker.invokeExact(value);
+            }
+
+            Object[] arguments;
+
+            if (binding == Binding.NAMED) {
+                arguments = bindNamedParameters(parser);
+            }
+            else {
+                arguments = new Object[readers.length];
+                arguments[valueIndex] = binding == Binding.TREE ? message.getParameters(objectMapper)
+                        : binding == Binding.PARSER ? parser : bindValue(parser);
+            }
+
+            if (writerIndex >= 0) {
+                arguments[writerIndex] = resultWriter;
+            }
+
+            return (Result) spreadInvoker.invokeExact(arguments);
+        }
+    }
+
+    private Object bindValue(final JsonParser parser) throws Exception {
+        Object value = readers[valueIndex].readValue(parser);
+
+        return value != null ? value : defaults[valueIndex];
+    }
+
+    private Object[] bindNamedParameters(final JsonParser parser) throws Exception {
+        Object[] arguments = new Object[readers.length];
+
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException("parameters are no object", parser.getCurrentLocation());
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Integer index = parameterIndexes.get(parser.getCurrentName());
+            parser.nextToken();
+
+            if (index == null) {
+                parser.skipChildren();
+            }
+            else {
+                arguments[index] = readers[index].readValue(parser);
+            }
+        }
+
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == null) {
+                arguments[i] = defaults[i];
+            }
+        }
+
+        return arguments;
+    }
+}
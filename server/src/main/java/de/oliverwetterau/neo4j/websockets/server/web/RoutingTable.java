@@ -0,0 +1,138 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.annotations.AnnotationReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of all message methods, built once when the server starts. Routes can be found by service and
+ * method name or by their id, which is published in the method catalog.
+ *
+ * Created by oliver on 16.12.15.
+ */
+@Service
+public class RoutingTable {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingTable.class);
+
+    private final AnnotationReader annotationReader;
+    private final JsonObjectMapper jsonObjectMapper;
+
+    private volatile Table table = null;
+
+    @Autowired
+    public RoutingTable(final AnnotationReader annotationReader, final JsonObjectMapper jsonObjectMapper) {
+        this.annotationReader = annotationReader;
+        this.jsonObjectMapper = jsonObjectMapper;
+    }
+
+    /**
+     * Builds the routing table unless it has been built already.
+     * @throws IllegalStateException a message method cannot be bound to its controller
+     */
+    public void init() {
+        getTable();
+    }
+
+    /**
+     * Gets a route by service and method name.
+     * @param service name of the service
+     * @param method name of the method
+     * @return route or null if the method is unknown
+     */
+    public Route getRoute(final String service, final String method) {
+        Map<String,Route> methods = getTable().services.get(service);
+        return methods == null ? null : methods.get(method);
+    }
+
+    /**
+     * Gets a route by its id.
+     * @param id id of the route
+     * @return route or null if there is no route with this id
+     */
+    public Route getRoute(final int id) {
+        Route[] routes = getTable().routes;
+        return id >= 0 && id < routes.length ? routes[id] : null;
+    }
+
+    /**
+     * Checks whether a service is known.
+     * @param service name of the service
+     * @return is there a controller for the service?
+     */
+    public boolean hasService(final String service) {
+        return getTable().services.containsKey(service);
+    }
+
+    /**
+     * Gets all routes ordered by service and method name.
+     * @return routes by method name by service name
+     */
+    public Map<String,Map<String,Route>> getServices() {
+        return getTable().services;
+    }
+
+    private Table getTable() {
+        Table current = table;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (table == null) {
+                table = build();
+            }
+            return table;
+        }
+    }
+
+    private Table build() {
+        Map<String,Map<String,Method>> serviceMethods = new TreeMap<>(annotationReader.getServiceMethods());
+        Map<String,Map<String,Route>> services = new TreeMap<>();
+        List<Route> routes = new ArrayList<>();
+
+        for (Map.Entry<String,Map<String,Method>> service : serviceMethods.entrySet()) {
+            Object controller = annotationReader.getServiceController(service.getKey());
+            Map<String,Route> methods = new TreeMap<>();
+
+            for (Map.Entry<String,Method> method : new TreeMap<>(service.getValue()).entrySet()) {
+                Route route;
+                try {
+                    route = new Route(routes.size(), service.getKey(), method.getValue(), controller,
+                            jsonObjectMapper.getObjectMapper());
+                }
+                catch (IllegalAccessException e) {
+                    throw new IllegalStateException("cannot bind message method " + method.getValue(), e);
+                }
+
+                routes.add(route);
+                methods.put(method.getKey(), route);
+            }
+
+            services.put(service.getKey(), Collections.unmodifiableMap(methods));
+        }
+
+        logger.info("[build] {} routes for {} services", routes.size(), services.size());
+
+        return new Table(Collections.unmodifiableMap(services), routes.toArray(new Route[routes.size()]));
+    }
+
+    private static class Table {
+        private final Map<String,Map<String,Route>> services;
+        private final Route[] routes;
+
+        private Table(final Map<String,Map<String,Route>> services, final Route[] routes) {
+            this.services = services;
+            this.routes = routes;
+        }
+    }
+}
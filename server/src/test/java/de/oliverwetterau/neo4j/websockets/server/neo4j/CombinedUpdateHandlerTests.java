@@ -0,0 +1,77 @@
+package de.oliverwetterau.neo4j.websockets.server.neo4j;
+
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.harness.junit.Neo4jRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class CombinedUpdateHandlerTests {
+    @ClassRule
+    public static Neo4jRule neo4j = new Neo4jRule();
+
+    private GraphDatabaseService graphDatabaseService;
+    private CombinedUpdateHandler combinedUpdateHandler;
+
+    @Before
+    public void setUp() {
+        graphDatabaseService = neo4j.getGraphDatabaseService();
+        combinedUpdateHandler = new CombinedUpdateHandler(graphDatabaseService,
+                new JsonObjectMapper(new DefaultJsonObjectSerializers()));
+    }
+
+    @Test
+    public void incrementKeepsTypeTest() {
+        try (Transaction transaction = graphDatabaseService.beginTx()) {
+            Node node = graphDatabaseService.createNode();
+            node.setProperty("int", 1);
+            node.setProperty("long", 1L);
+            node.setProperty("double", 1.5d);
+
+            assertTrue(combinedUpdateHandler.increment(node, "int", LongNode.valueOf(2)));
+            assertTrue(combinedUpdateHandler.increment(node, "long", LongNode.valueOf(2)));
+            assertTrue(combinedUpdateHandler.increment(node, "double", LongNode.valueOf(2)));
+            assertTrue(combinedUpdateHandler.increment(node, "new", LongNode.valueOf(2)));
+
+            assertEquals(3, node.getProperty("int"));
+            assertEquals(3L, node.getProperty("long"));
+            assertEquals(3.5d, node.getProperty("double"));
+            assertEquals(2L, node.getProperty("new"));
+
+            transaction.failure();
+        }
+    }
+
+    @Test
+    public void incrementOfNoNumberFailsTest() {
+        try (Transaction transaction = graphDatabaseService.beginTx()) {
+            Node node = graphDatabaseService.createNode();
+            node.setProperty("name", "customer");
+            node.setProperty("int", Integer.MAX_VALUE);
+            node.setProperty("long", 1L);
+
+            assertFalse(combinedUpdateHandler.increment(node, "name", LongNode.valueOf(1)));
+            assertFalse(combinedUpdateHandler.increment(node, "int", LongNode.valueOf(1)));
+            assertFalse(combinedUpdateHandler.increment(node, "long", DoubleNode.valueOf(0.5)));
+
+            assertEquals("customer", node.getProperty("name"));
+            assertEquals(Integer.MAX_VALUE, node.getProperty("int"));
+            assertEquals(1L, node.getProperty("long"));
+
+            transaction.failure();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ByteBuffersInputStreamTests {
+    /**
+     * Splits bytes into buffers of the given sizes, with empty buffers in front of, between and after them.
+     */
+    private static ByteBuffer[] split(final byte[] bytes, final int... sizes) {
+        ByteBuffer[] buffers = new ByteBuffer[sizes.length * 2 + 1];
+        int offset = 0;
+
+        for (int i = 0; i < sizes.length; i++) {
+            buffers[i * 2] = ByteBuffer.allocate(0);
+            buffers[i * 2 + 1] = ByteBuffer.wrap(Arrays.copyOfRange(bytes, offset, offset + sizes[i]));
+            offset += sizes[i];
+        }
+        buffers[sizes.length * 2] = ByteBuffer.allocate(0);
+
+        return buffers;
+    }
+
+    private static byte[] bytes(final int length) {
+        byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+
+        return bytes;
+    }
+
+    @Test
+    public void singleBytesTest() {
+        byte[] bytes = bytes(10);
+        ByteBuffersInputStream inputStream = new ByteBuffersInputStream(split(bytes, 3, 1, 6));
+
+        for (byte expected : bytes) {
+            // bytes are returned unsigned
+            assertEquals(expected & 0xff, inputStream.read());
+        }
+
+        assertEquals(-1, inputStream.read());
+        assertEquals(-1, inputStream.read());
+    }
+
+    @Test
+    public void byteArraysTest() {
+        byte[] bytes = bytes(100);
+        ByteBuffersInputStream inputStream = new ByteBuffersInputStream(split(bytes, 30, 1, 69));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] chunk = new byte[16];
+
+        assertEquals(100, inputStream.available());
+
+        int count;
+        while ((count = inputStream.read(chunk, 2, 12)) >= 0) {
+            // a read does not go beyond the end of a buffer
+            assertTrue(count > 0 && count <= 12);
+            outputStream.write(chunk, 2, count);
+        }
+
+        assertArrayEquals(bytes, outputStream.toByteArray());
+        assertEquals(0, inputStream.available());
+        assertEquals(0, inputStream.read(chunk, 0, 0));
+    }
+
+    @Test
+    public void availableTest() {
+        ByteBuffersInputStream inputStream = new ByteBuffersInputStream(split(bytes(10), 4, 6));
+
+        inputStream.read();
+        assertEquals(9, inputStream.available());
+
+        inputStream.read(new byte[10], 0, 10);
+        assertEquals(6, inputStream.available());
+    }
+
+    @Test
+    public void noBuffersTest() {
+        ByteBuffersInputStream inputStream = new ByteBuffersInputStream(new ByteBuffer[0]);
+
+        assertEquals(0, inputStream.available());
+        assertEquals(-1, inputStream.read());
+        assertEquals(-1, inputStream.read(new byte[4], 0, 4));
+    }
+
+    @Test
+    public void parseSplitMessageTest() throws Exception {
+        ObjectMapper objectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers()).getObjectMapperBinary();
+        byte[] message = objectMapper.writeValueAsBytes(objectMapper.createObjectNode()
+                .put("s", "customer").put("m", "getCustomer").put("l", "de"));
+
+        // every field is split between buffers
+        int[] sizes = new int[message.length];
+        Arrays.fill(sizes, 1);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(
+                new ByteBuffersInputStream(split(message, sizes))))
+        {
+            CommandMessage commandMessage = CommandMessage.read(parser);
+
+            assertEquals("customer", commandMessage.getService());
+            assertEquals("getCustomer", commandMessage.getMethod());
+            assertEquals("de", commandMessage.getLanguage());
+        }
+
+        // text messages are parsed the same way
+        byte[] textMessage = "{\"s\":\"customer\",\"m\":\"getCustomer\"}".getBytes(StandardCharsets.UTF_8);
+        ObjectMapper textObjectMapper =
+                new JsonObjectMapper(new DefaultJsonObjectSerializers()).getObjectMapperText();
+
+        try (JsonParser parser = textObjectMapper.getFactory().createParser(
+                new ByteBuffersInputStream(split(textMessage, 10, 10, textMessage.length - 20))))
+        {
+            assertEquals("getCustomer", CommandMessage.read(parser).getMethod());
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.server.annotations.MessageMethod;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import io.undertow.websockets.core.WebSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class CommandExecutorTests {
+    private Integer workerThreads;
+    private Integer workerQueueSize;
+    private Map<String,Integer> bulkheads;
+    private boolean isVirtualThreadExecution;
+    private Integer virtualMaxConcurrency;
+
+    private JsonObjectMapper jsonObjectMapper;
+    private CommandExecutor commandExecutor;
+    private ExecutorService callers;
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * Methods of the service "customer", which is limited to one message at a time.
+     */
+    public class CustomerController {
+        @MessageMethod
+        public Result<Object> block(final JsonNode parameters) throws InterruptedException {
+            entered.countDown();
+            release.await();
+            return new Result<Object>("blocked");
+        }
+
+        @MessageMethod
+        public Result<Object> fail(final JsonNode parameters) {
+            throw new IllegalStateException("failed");
+        }
+
+        @MessageMethod
+        public Result<Object> echo(final JsonNode parameters) {
+            return new Result<Object>("echo");
+        }
+    }
+
+    /**
+     * Records the answers to rejected messages instead of sending them.
+     */
+    private class RecordingCommandHandler extends CommandHandler {
+        private final List<String> textMessages = new ArrayList<>();
+
+        RecordingCommandHandler(final RoutingTable routingTable) {
+            super(jsonObjectMapper, new DefaultThreadLocale(), routingTable, null, null, commandExecutor);
+        }
+
+        @Override
+        protected void sendTextMessage(final WebSocketChannel channel, final String message) {
+            textMessages.add(message);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        workerThreads = ApplicationSettings.workerThreads();
+        workerQueueSize = ApplicationSettings.workerQueueSize();
+        bulkheads = ApplicationSettings.bulkheads();
+        isVirtualThreadExecution = ApplicationSettings.isVirtualThreadExecution();
+        virtualMaxConcurrency = ApplicationSettings.virtualMaxConcurrency();
+
+        ApplicationSettings.setWorkerThreads(1);
+        ApplicationSettings.setWorkerQueueSize(1);
+        ApplicationSettings.setBulkheads(Collections.singletonMap("customer", 1));
+
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers());
+        commandExecutor = new CommandExecutor();
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        commandExecutor.stop();
+        callers.shutdownNow();
+
+        ApplicationSettings.setWorkerThreads(workerThreads);
+        ApplicationSettings.setWorkerQueueSize(workerQueueSize);
+        ApplicationSettings.setBulkheads(bulkheads);
+        ApplicationSettings.setVirtualThreadExecution(isVirtualThreadExecution);
+        ApplicationSettings.setVirtualMaxConcurrency(virtualMaxConcurrency);
+    }
+
+    private CommandHandler commandHandler() throws Exception {
+        final Map<String,Route> routes = new HashMap<>();
+        CustomerController controller = new CustomerController();
+
+        for (Method method : CustomerController.class.getMethods()) {
+            if (method.getAnnotation(MessageMethod.class) != null) {
+                routes.put(method.getName(), new Route(routes.size(), "customer", method, controller,
+                        jsonObjectMapper.getObjectMapper()));
+            }
+        }
+
+        return new RecordingCommandHandler(new RoutingTable(null, jsonObjectMapper) {
+            @Override
+            public Route getRoute(final String service, final String method) {
+                return routes.get(method);
+            }
+
+            @Override
+            public boolean hasService(final String service) {
+                return "customer".equals(service);
+            }
+
+            @Override
+            public Map<String,Map<String,Route>> getServices() {
+                return Collections.singletonMap("customer", routes);
+            }
+        });
+    }
+
+    private CommandMessage message(final String method) throws IOException {
+        ObjectMapper objectMapper = jsonObjectMapper.getObjectMapperText();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(
+                "{\"s\":\"customer\",\"m\":\"" + method + "\",\"l\":\"en\"}"))
+        {
+            return CommandMessage.read(parser);
+        }
+    }
+
+    private Result handle(final CommandHandler commandHandler, final String method) throws Exception {
+        return commandHandler.handleMessage(message(method),
+                ResultWriter.collecting(jsonObjectMapper.getObjectMapper()));
+    }
+
+    private static String errorType(final Result result) {
+        return ((Error) result.getErrors().get(0)).getType();
+    }
+
+    @Test
+    public void serverOverloadedTest() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        // the only worker is busy and the queue is full
+        commandExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException ignored) {
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        commandExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertEquals(1, commandExecutor.getQueuedMessages());
+
+        RecordingCommandHandler commandHandler = (RecordingCommandHandler) commandHandler();
+
+        try {
+            commandExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("message has not been rejected");
+        }
+        catch (RejectedExecutionException e) {
+            commandHandler.rejectTextMessage(null);
+        }
+
+        assertEquals(Error.SERVER_OVERLOADED, jsonObjectMapper.getObjectMapperText()
+                .readTree(commandHandler.textMessages.get(0)).get("Errors").get(0).get("type").asText());
+    }
+
+    @Test
+    public void serviceOverloadedTest() throws Exception {
+        final CommandHandler commandHandler = commandHandler();
+
+        Future<Result> blocked = callers.submit(new Callable<Result>() {
+            @Override
+            public Result call() throws Exception {
+                return handle(commandHandler, "block");
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // the bulkhead of the service is exhausted while the first message is executed
+        Result result = handle(commandHandler, "echo");
+        assertEquals(Error.SERVICE_OVERLOADED, errorType(result));
+
+        release.countDown();
+        assertEquals("blocked", blocked.get(5, TimeUnit.SECONDS).getSingleData());
+        assertEquals("echo", handle(commandHandler, "echo").getSingleData());
+    }
+
+    @Test
+    public void permitReleasedOnFailureTest() throws Exception {
+        CommandHandler commandHandler = commandHandler();
+
+        assertEquals(Error.METHOD_EXECUTION_FAILED, errorType(handle(commandHandler, "fail")));
+        assertEquals(Error.METHOD_EXECUTION_FAILED, errorType(handle(commandHandler, "fail")));
+
+        // the failed messages have left the bulkhead of the service
+        assertEquals("echo", handle(commandHandler, "echo").getSingleData());
+        assertTrue(commandExecutor.tryEnter("customer"));
+        commandExecutor.leave("customer");
+    }
+
+    /**
+     * Blocks until the test releases it and counts the messages running at the same time.
+     */
+    private class BlockingMessage implements Runnable {
+        private final AtomicInteger running;
+        private final CountDownLatch started;
+        private volatile String threadName = null;
+
+        BlockingMessage(final AtomicInteger running, final CountDownLatch started) {
+            this.running = running;
+            this.started = started;
+        }
+
+        @Override
+        public void run() {
+            threadName = Thread.currentThread().getName();
+            running.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException ignored) {
+            }
+            finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    public void platformThreadFallbackTest() throws Exception {
+        assertNull(CommandExecutor.createVirtualThreadExecutor("newNoThreadPerTaskExecutor"));
+
+        ApplicationSettings.setVirtualThreadExecution(true);
+        commandExecutor.stop();
+        commandExecutor = new CommandExecutor(null);
+
+        CountDownLatch started = new CountDownLatch(1);
+        BlockingMessage message = new BlockingMessage(new AtomicInteger(), started);
+
+        commandExecutor.execute(message);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(message.threadName.startsWith("neo4j-websockets-worker-"));
+
+        // the limits of the platform thread pool apply
+        commandExecutor.execute(new BlockingMessage(new AtomicInteger(), new CountDownLatch(1)));
+        try {
+            commandExecutor.execute(new BlockingMessage(new AtomicInteger(), new CountDownLatch(1)));
+            fail("message has not been rejected");
+        }
+        catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    @Test
+    public void virtualThreadLimitsTest() throws Exception {
+        ApplicationSettings.setVirtualThreadExecution(true);
+        ApplicationSettings.setVirtualMaxConcurrency(2);
+        commandExecutor.stop();
+        // a thread per message stands in for virtual threads
+        commandExecutor = new CommandExecutor(Executors.newCachedThreadPool());
+
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch waitingStarted = new CountDownLatch(1);
+
+        commandExecutor.execute(new BlockingMessage(running, started));
+        commandExecutor.execute(new BlockingMessage(running, started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // a third message is accepted, but waits until one of the executed messages has finished
+        commandExecutor.execute(new BlockingMessage(running, waitingStarted));
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(2, running.get());
+        assertEquals(1, commandExecutor.getQueuedMessages());
+
+        try {
+            commandExecutor.execute(new BlockingMessage(running, new CountDownLatch(1)));
+            fail("message has not been rejected");
+        }
+        catch (RejectedExecutionException ignored) {
+        }
+
+        release.countDown();
+        assertTrue(waitingStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, commandExecutor.getQueuedMessages());
+    }
+}
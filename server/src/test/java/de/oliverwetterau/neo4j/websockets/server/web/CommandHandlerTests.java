@@ -0,0 +1,119 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.helpers.Hashing;
+import de.oliverwetterau.neo4j.websockets.core.helpers.ThreadBinary;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import io.undertow.websockets.core.WebSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class CommandHandlerTests {
+    private JsonObjectMapper jsonObjectMapper;
+    private RecordingCommandHandler commandHandler;
+
+    /**
+     * Answers every message with the same result and records the sent replies instead of sending them.
+     */
+    private static class RecordingCommandHandler extends CommandHandler {
+        private final List<String> textMessages = new ArrayList<>();
+        private final List<Result> binaryResults = new ArrayList<>();
+        private final ObjectMapper objectMapper;
+
+        RecordingCommandHandler(final JsonObjectMapper jsonObjectMapper) {
+            super(jsonObjectMapper, null, null, null, null, null);
+            this.objectMapper = jsonObjectMapper.getObjectMapperText();
+        }
+
+        @Override
+        protected Result handleMessage(final CommandMessage commandMessage, final ResultWriter resultWriter)
+                throws Exception
+        {
+            Result<Object> result = new Result<>();
+            result.add("customer " + commandMessage.getParameters(objectMapper).get("id").asInt());
+            return resultWriter.finish(result);
+        }
+
+        @Override
+        protected void sendTextMessage(final WebSocketChannel channel, final String message) {
+            textMessages.add(message);
+        }
+
+        @Override
+        protected void sendBinaryResult(final WebSocketChannel channel, final Result result) {
+            binaryResults.add(result);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers());
+        commandHandler = new RecordingCommandHandler(jsonObjectMapper);
+    }
+
+    @After
+    public void tearDown() {
+        ThreadBinary.setBinary(false);
+    }
+
+    private CommandMessage message(final long hash) throws IOException {
+        String message = "{\"s\":\"customer\",\"m\":\"getCustomer\",\"p\":{\"id\":1},\"h\":" + hash + "}";
+
+        try (JsonParser parser = jsonObjectMapper.getObjectMapperText().getFactory().createParser(message)) {
+            return CommandMessage.read(parser);
+        }
+    }
+
+    private static boolean isNotModified(final Result result) {
+        return !result.isOk() && result.getErrors().size() == 1
+                && Error.NOT_MODIFIED.equals(((Error) result.getErrors().get(0)).getType());
+    }
+
+    @Test
+    public void textNotModifiedTest() throws Exception {
+        commandHandler.handleTextMessage(null, message(0));
+        String answer = commandHandler.textMessages.get(0);
+
+        // the client sends the hash of the answer it got before (the first hash does not match any answer)
+        commandHandler.handleTextMessage(null, message(Hashing.hash(answer)));
+        ObjectMapper objectMapper = jsonObjectMapper.getObjectMapperText();
+        assertEquals(Error.NOT_MODIFIED, objectMapper.readTree(commandHandler.textMessages.get(1))
+                .get("Errors").get(0).get("type").asText());
+
+        commandHandler.handleTextMessage(null, message(Hashing.hash(answer) + 1));
+        assertEquals(answer, commandHandler.textMessages.get(2));
+    }
+
+    @Test
+    public void binaryNotModifiedTest() throws Exception {
+        commandHandler.handleBinaryMessage(null, message(0));
+        Result result = commandHandler.binaryResults.get(0);
+        assertTrue(result.isOk());
+
+        byte[] answer = result.toJsonBytes();
+
+        commandHandler.handleBinaryMessage(null, message(Hashing.hash(answer)));
+        assertTrue(isNotModified(commandHandler.binaryResults.get(1)));
+
+        commandHandler.handleBinaryMessage(null, message(Hashing.hash(answer) - 1));
+        Result changedResult = commandHandler.binaryResults.get(2);
+        assertFalse(isNotModified(changedResult));
+        assertEquals("customer 1", changedResult.getSingleData());
+    }
+}
@@ -0,0 +1,126 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class CommandMessageTests {
+    private static ObjectMapper textObjectMapper;
+    private static ObjectMapper binaryObjectMapper;
+
+    @BeforeClass
+    public static void setUpClass() {
+        JsonObjectMapper jsonObjectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers());
+        textObjectMapper = jsonObjectMapper.getObjectMapperText();
+        binaryObjectMapper = jsonObjectMapper.getObjectMapperBinary();
+    }
+
+    private static CommandMessage read(final String message) throws IOException {
+        try (JsonParser parser = textObjectMapper.getFactory().createParser(message)) {
+            return CommandMessage.read(parser);
+        }
+    }
+
+    @Test
+    public void envelopeTest() throws Exception {
+        // the parameters may come before the envelope fields, unknown fields are skipped
+        CommandMessage message = read("{\"p\":{\"id\":1,\"names\":[\"a\",\"b\"]},\"x\":{\"y\":[1,{\"z\":2}]}," +
+                "\"s\":\"customer\",\"m\":\"getCustomer\",\"r\":3,\"l\":\"de\",\"h\":42,\"i\":\"key-1\"}");
+
+        assertEquals("customer", message.getService());
+        assertEquals("getCustomer", message.getMethod());
+        assertTrue(message.hasRoute());
+        assertEquals(3, message.getRoute());
+        assertEquals("de", message.getLanguage());
+        assertTrue(message.hasHash());
+        assertEquals(42L, message.getHash());
+        assertEquals("key-1", message.getIdempotencyKey());
+        assertFalse(message.isBatch());
+
+        assertEquals(textObjectMapper.readTree("{\"id\":1,\"names\":[\"a\",\"b\"]}"),
+                message.getParameters(textObjectMapper));
+    }
+
+    @Test
+    public void missingFieldsTest() throws Exception {
+        CommandMessage message = read("{\"s\":\"customer\",\"m\":\"getCustomers\",\"h\":null}");
+
+        assertFalse(message.hasRoute());
+        assertFalse(message.hasHash());
+        assertNull(message.getLanguage());
+        assertNull(message.getIdempotencyKey());
+        assertEquals(textObjectMapper.createObjectNode(), message.getParameters(textObjectMapper));
+
+        JsonParser parser = message.getParametersParser(textObjectMapper);
+        assertEquals(JsonToken.START_OBJECT, parser.getCurrentToken());
+        assertEquals(JsonToken.END_OBJECT, parser.nextToken());
+    }
+
+    @Test
+    public void parametersParserTest() throws Exception {
+        CommandMessage message = read("{\"s\":\"customer\",\"m\":\"getCustomer\",\"p\":{\"id\":7}}");
+
+        // the parameters can be read more than once
+        JsonParser parser = message.getParametersParser(textObjectMapper);
+        assertEquals(JsonToken.START_OBJECT, parser.getCurrentToken());
+        assertEquals(7, ((JsonNode) parser.readValueAsTree()).get("id").asInt());
+
+        assertEquals(7, message.getParameters(textObjectMapper).get("id").asInt());
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        CommandMessage message = read("{\"i\":\"batch-1\",\"b\":[" +
+                "{\"s\":\"customer\",\"m\":\"createCustomer\",\"p\":{\"name\":\"a\"}}," +
+                "{\"s\":\"order\",\"m\":\"createOrder\",\"p\":{\"amount\":2}}]}");
+
+        assertTrue(message.isBatch());
+        assertEquals("batch-1", message.getIdempotencyKey());
+        assertEquals(2, message.getBatch().size());
+        assertEquals("createCustomer", message.getBatch().get(0).getMethod());
+        assertEquals("a", message.getBatch().get(0).getParameters(textObjectMapper).get("name").asText());
+        assertEquals("order", message.getBatch().get(1).getService());
+        assertEquals(2, message.getBatch().get(1).getParameters(textObjectMapper).get("amount").asInt());
+    }
+
+    @Test
+    public void binaryMessageTest() throws Exception {
+        byte[] binaryMessage = binaryObjectMapper.writeValueAsBytes(textObjectMapper.readTree(
+                "{\"s\":\"customer\",\"m\":\"getCustomer\",\"h\":-5,\"p\":{\"id\":1,\"score\":0.5}}"));
+
+        CommandMessage message;
+        try (JsonParser parser = binaryObjectMapper.getFactory().createParser(binaryMessage)) {
+            message = CommandMessage.read(parser);
+        }
+
+        assertEquals("getCustomer", message.getMethod());
+        assertEquals(-5L, message.getHash());
+        assertEquals(0.5, message.getParameters(binaryObjectMapper).get("score").asDouble(), 0);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void noObjectTest() throws Exception {
+        read("[1,2]");
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void batchNoArrayTest() throws Exception {
+        read("{\"b\":{\"s\":\"customer\"}}");
+    }
+}
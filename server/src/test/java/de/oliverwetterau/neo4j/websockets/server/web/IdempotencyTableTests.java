@@ -0,0 +1,151 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class IdempotencyTableTests {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private Integer idempotencyTableSize;
+    private Integer idempotencyTtl;
+    private IdempotencyTable idempotencyTable;
+    private CountingCommandHandler commandHandler;
+    private ExecutorService executor;
+
+    /**
+     * Counts the executions of messages instead of calling message methods. An execution can be blocked until it is
+     * released.
+     */
+    private static class CountingCommandHandler extends CommandHandler {
+        private final AtomicInteger executions = new AtomicInteger();
+        private final CountDownLatch executing = new CountDownLatch(1);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        CountingCommandHandler(final IdempotencyTable idempotencyTable) {
+            super(new JsonObjectMapper(new DefaultJsonObjectSerializers()), null, null, null, idempotencyTable, null);
+        }
+
+        @Override
+        protected Result handleMessage(final CommandMessage commandMessage, final ResultWriter resultWriter)
+                throws Exception
+        {
+            Result<Integer> result = new Result<>();
+            result.add(executions.incrementAndGet());
+            executing.countDown();
+            release.await();
+
+            return result;
+        }
+    }
+
+    private static CommandMessage message(final String idempotencyKey) throws Exception {
+        return CommandMessage.read(jsonFactory.createParser(
+                "{\"s\":\"customer\",\"m\":\"createCustomer\",\"i\":\"" + idempotencyKey + "\",\"p\":{}}"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        idempotencyTableSize = ApplicationSettings.idempotencyTableSize();
+        idempotencyTtl = ApplicationSettings.idempotencyTtl();
+        ApplicationSettings.setIdempotencyTableSize(100);
+        ApplicationSettings.setIdempotencyTtl(60000);
+
+        idempotencyTable = new IdempotencyTable();
+        commandHandler = new CountingCommandHandler(idempotencyTable);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+
+        ApplicationSettings.setIdempotencyTableSize(idempotencyTableSize);
+        ApplicationSettings.setIdempotencyTtl(idempotencyTtl);
+    }
+
+    @Test
+    public void replayedKeyReturnsStoredResultTest() throws Exception {
+        Result first = commandHandler.handleIdempotentMessage(message("key-1"), null);
+        Result replayed = commandHandler.handleIdempotentMessage(message("key-1"), null);
+        Result other = commandHandler.handleIdempotentMessage(message("key-2"), null);
+
+        assertSame(first, replayed);
+        assertEquals(Arrays.asList(1), replayed.getData());
+        assertEquals(Arrays.asList(2), other.getData());
+        assertEquals(2, commandHandler.executions.get());
+    }
+
+    @Test
+    public void replayWaitsForExecutionInProgressTest() throws Exception {
+        commandHandler.release = new CountDownLatch(1);
+
+        Callable<Result> call = new Callable<Result>() {
+            @Override
+            public Result call() throws Exception {
+                return commandHandler.handleIdempotentMessage(message("key-1"), null);
+            }
+        };
+
+        Future<Result> first = executor.submit(call);
+        assertTrue(commandHandler.executing.await(5, TimeUnit.SECONDS));
+        Future<Result> replayed = executor.submit(call);
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertFalse(replayed.isDone());
+
+        commandHandler.release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), replayed.get(5, TimeUnit.SECONDS));
+        assertEquals(1, commandHandler.executions.get());
+    }
+
+    @Test
+    public void failedResultIsNotRememberedTest() throws Exception {
+        Error.setJsonObjectMapper(new JsonObjectMapper(new DefaultJsonObjectSerializers()));
+
+        assertNull(idempotencyTable.begin("key-1"));
+        idempotencyTable.complete("key-1", new Result<>(new Error(Error.EXCEPTION, "rolled back")));
+        assertNull(idempotencyTable.begin("key-1"));
+
+        // a message that threw an exception is executed again as well
+        idempotencyTable.complete("key-1", null);
+        assertNull(idempotencyTable.begin("key-1"));
+    }
+
+    @Test
+    public void expiredResultIsExecutedAgainTest() throws Exception {
+        ApplicationSettings.setIdempotencyTtl(1);
+
+        commandHandler.handleIdempotentMessage(message("key-1"), null);
+        TimeUnit.MILLISECONDS.sleep(10);
+        Result executedAgain = commandHandler.handleIdempotentMessage(message("key-1"), null);
+
+        assertEquals(Arrays.asList(2), executedAgain.getData());
+        assertEquals(2, commandHandler.executions.get());
+    }
+}
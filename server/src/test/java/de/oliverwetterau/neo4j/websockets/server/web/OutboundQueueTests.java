@@ -0,0 +1,282 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.websockets.core.WebSocketCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class OutboundQueueTests {
+    private static final int THREADS = 4;
+    private static final int MESSAGES = 500;
+
+    private ExecutorService ioThread;
+    private ExecutorService senders;
+
+    /**
+     * Records written messages instead of sending them through a channel. A send is either completed by the writing
+     * thread before write() returns or later on a separate i/o thread.
+     */
+    private class RecordingOutboundQueue extends OutboundQueue {
+        private final List<Object> written = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger sendsInFlight = new AtomicInteger();
+        private final AtomicInteger concurrentSends = new AtomicInteger();
+        private final AtomicInteger writes = new AtomicInteger();
+        private final boolean isAlwaysSynchronous;
+
+        RecordingOutboundQueue(final boolean isAlwaysSynchronous) {
+            super(null);
+            this.isAlwaysSynchronous = isAlwaysSynchronous;
+        }
+
+        @Override
+        protected void write(final Object message, final WebSocketCallback<Void> callback) {
+            if (sendsInFlight.incrementAndGet() > 1) {
+                concurrentSends.incrementAndGet();
+            }
+            written.add(message);
+
+            onWrite(message);
+
+            if (isAlwaysSynchronous || writes.incrementAndGet() % 2 == 0) {
+                complete(callback);
+            }
+            else {
+                ioThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(callback);
+                    }
+                });
+            }
+        }
+
+        protected void onWrite(final Object message) {
+        }
+
+        private void complete(final WebSocketCallback<Void> callback) {
+            sendsInFlight.decrementAndGet();
+            callback.complete(null, null);
+        }
+    }
+
+    /**
+     * Counts the buffers taken from the pool and not returned yet.
+     */
+    private static class CountingBufferPool implements ByteBufferPool {
+        private final AtomicInteger allocated = new AtomicInteger();
+        private final AtomicInteger open = new AtomicInteger();
+
+        @Override
+        public PooledByteBuffer allocate() {
+            allocated.incrementAndGet();
+            open.incrementAndGet();
+
+            final ByteBuffer buffer = ByteBuffer.allocate(getBufferSize());
+
+            return new PooledByteBuffer() {
+                private boolean isOpen = true;
+
+                @Override
+                public ByteBuffer getBuffer() {
+                    return buffer;
+                }
+
+                @Override
+                public void close() {
+                    if (isOpen) {
+                        isOpen = false;
+                        open.decrementAndGet();
+                    }
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return isOpen;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int getBufferSize() {
+            return 16;
+        }
+    }
+
+    /**
+     * Completes or fails every send on the i/o thread.
+     */
+    private class CallbackOutboundQueue extends OutboundQueue {
+        private final boolean isFailing;
+
+        CallbackOutboundQueue(final boolean isFailing) {
+            super(null);
+            this.isFailing = isFailing;
+        }
+
+        @Override
+        protected void write(final Object message, final WebSocketCallback<Void> callback) {
+            ioThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isFailing) {
+                        callback.onError(null, null, new IOException("connection reset"));
+                    }
+                    else {
+                        callback.complete(null, null);
+                    }
+                }
+            });
+        }
+    }
+
+    @Before
+    public void setUp() {
+        ioThread = Executors.newSingleThreadExecutor();
+        senders = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        ioThread.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    @Test
+    public void synchronousCompletionTest() throws Exception {
+        // a message sent while a message is written (e.g. by the i/o thread) is queued behind it
+        final RecordingOutboundQueue outboundQueue = new RecordingOutboundQueue(true) {
+            @Override
+            protected void onWrite(final Object message) {
+                if ("first".equals(message)) {
+                    sendText("nested");
+                }
+            }
+        };
+
+        outboundQueue.sendText("first");
+        outboundQueue.sendText("second");
+
+        assertEquals(Arrays.<Object>asList("first", "nested", "second"), outboundQueue.written);
+        assertEquals(0, outboundQueue.concurrentSends.get());
+        assertEquals(0, outboundQueue.getQueuedMessages());
+
+        // no message is being sent any more
+        outboundQueue.beginStream();
+        outboundQueue.endStream();
+    }
+
+    @Test
+    public void asynchronousCompletionTest() throws Exception {
+        final RecordingOutboundQueue outboundQueue = new RecordingOutboundQueue(false);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+
+            senders.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < MESSAGES; i++) {
+                        outboundQueue.sendText(thread + ":" + i);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(10, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (outboundQueue.written.size() < THREADS * MESSAGES && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+
+        assertEquals(THREADS * MESSAGES, outboundQueue.written.size());
+        assertEquals(0, outboundQueue.concurrentSends.get());
+
+        // the messages of every thread have been sent in the order they have been queued
+        int[] next = new int[THREADS];
+        for (Object message : outboundQueue.written) {
+            String[] parts = ((String) message).split(":");
+            int thread = Integer.parseInt(parts[0]);
+
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+        }
+
+        outboundQueue.beginStream();
+        outboundQueue.endStream();
+    }
+
+    private void sendPooled(final OutboundQueue outboundQueue, final CountingBufferPool bufferPool) {
+        for (int i = 0; i < 10; i++) {
+            PooledOutputStream outputStream = new PooledOutputStream(bufferPool);
+            outputStream.write(new byte[40], 0, 40);
+            outboundQueue.sendBinary(outputStream);
+        }
+    }
+
+    private static void awaitReleased(final CountingBufferPool bufferPool) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (bufferPool.open.get() > 0 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    @Test
+    public void pooledBuffersReleasedAfterSendTest() throws Exception {
+        CountingBufferPool bufferPool = new CountingBufferPool();
+        CallbackOutboundQueue outboundQueue = new CallbackOutboundQueue(false);
+
+        sendPooled(outboundQueue, bufferPool);
+        awaitReleased(bufferPool);
+
+        assertEquals(30, bufferPool.allocated.get());
+        assertEquals(0, bufferPool.open.get());
+        assertEquals(0, outboundQueue.getQueuedMessages());
+    }
+
+    @Test
+    public void pooledBuffersReleasedAfterFailureTest() throws Exception {
+        CountingBufferPool bufferPool = new CountingBufferPool();
+        CallbackOutboundQueue outboundQueue = new CallbackOutboundQueue(true);
+
+        sendPooled(outboundQueue, bufferPool);
+        awaitReleased(bufferPool);
+
+        assertEquals(30, bufferPool.allocated.get());
+        assertEquals(0, bufferPool.open.get());
+        assertEquals(0, outboundQueue.getQueuedMessages());
+    }
+}
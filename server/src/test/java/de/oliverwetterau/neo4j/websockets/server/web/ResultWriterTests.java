@@ -0,0 +1,222 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.annotations.MessageMethod;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class ResultWriterTests {
+    private JsonObjectMapper jsonObjectMapper;
+
+    /**
+     * Streams the result into a byte array instead of a websocket message.
+     */
+    private static class TestResultWriter extends ResultWriter {
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        private int endedMessages = 0;
+        private int abortedMessages = 0;
+
+        TestResultWriter(final ObjectMapper objectMapper, final boolean isBinary) {
+            super(null, objectMapper, isBinary, true);
+        }
+
+        @Override
+        protected OutputStream beginMessage() {
+            return outputStream;
+        }
+
+        @Override
+        protected void endMessage() {
+            endedMessages++;
+        }
+
+        @Override
+        protected void abortMessage() {
+            abortedMessages++;
+        }
+    }
+
+    public static class CustomerController {
+        @MessageMethod(readOnly = true)
+        public Result<Object> getCustomers(final JsonNode parameters, final ResultWriter resultWriter) {
+            return new Result<>();
+        }
+
+        @MessageMethod
+        public Result<Object> importCustomers(final JsonNode parameters, final ResultWriter resultWriter) {
+            return new Result<>();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers());
+        Result.setJsonObjectMapper(jsonObjectMapper);
+        Error.setJsonObjectMapper(jsonObjectMapper);
+    }
+
+    private static List<Object> elements() {
+        Map<String,Object> customer = new LinkedHashMap<>();
+        customer.put("name", "Anna");
+        customer.put("age", 42);
+
+        return Arrays.<Object>asList(customer, "Ümlaut", Long.valueOf(7));
+    }
+
+    private static Result<Object> trailingResult() {
+        Result<Object> result = new Result<>();
+        result.add("Berta");
+        return result;
+    }
+
+    private static Result<Object> failedResult() {
+        return new Result<>(new Error(Error.METHOD_EXECUTION_FAILED, "could not be executed"));
+    }
+
+    private static byte[] stream(final TestResultWriter resultWriter, final Result result) throws IOException {
+        for (Object element : elements()) {
+            resultWriter.write(element);
+        }
+        assertTrue(resultWriter.isStreaming());
+
+        assertNull(resultWriter.finish(result));
+        assertEquals(1, resultWriter.endedMessages);
+
+        return resultWriter.outputStream.toByteArray();
+    }
+
+    private static byte[] collect(final ObjectMapper objectMapper, final Result result) throws IOException {
+        ResultWriter resultWriter = ResultWriter.collecting(objectMapper);
+
+        for (Object element : elements()) {
+            resultWriter.write(element);
+        }
+        assertFalse(resultWriter.isStreaming());
+
+        return objectMapper.writeValueAsBytes(resultWriter.finish(result));
+    }
+
+    @Test
+    public void streamedEncodingTest() throws Exception {
+        for (boolean isBinary : new boolean[] { false, true }) {
+            ObjectMapper objectMapper = isBinary ? jsonObjectMapper.getObjectMapperBinary()
+                    : jsonObjectMapper.getObjectMapperText();
+
+            // the data of the returned result follows the streamed elements
+            TestResultWriter resultWriter = new TestResultWriter(objectMapper, isBinary);
+            assertArrayEquals(collect(objectMapper, trailingResult()), stream(resultWriter, trailingResult()));
+            assertEquals(0, resultWriter.abortedMessages);
+
+            // the returned result may have been detached when its transaction was closed
+            Result<Object> detached = trailingResult();
+            detached.close();
+            resultWriter = new TestResultWriter(objectMapper, isBinary);
+            assertArrayEquals(collect(objectMapper, trailingResult()), stream(resultWriter, detached));
+        }
+    }
+
+    @Test
+    public void failedStreamedResultTest() throws Exception {
+        ObjectMapper objectMapper = jsonObjectMapper.getObjectMapperText();
+
+        Result<Object> detached = failedResult();
+        detached.close();
+
+        for (Result<Object> result : Arrays.asList(failedResult(), detached)) {
+            byte[] streamed = stream(new TestResultWriter(objectMapper, false), result);
+            assertArrayEquals(collect(objectMapper, failedResult()), streamed);
+
+            // the streamed elements are kept in front of the errors and "Ok" is written once
+            JsonNode answer = objectMapper.readTree(streamed);
+            List<String> fieldNames = new ArrayList<>();
+            for (Iterator<String> iterator = answer.fieldNames(); iterator.hasNext();) {
+                fieldNames.add(iterator.next());
+            }
+            assertEquals(Arrays.asList("Data", "Errors", "Ok"), fieldNames);
+            assertEquals(3, answer.get("Data").size());
+            assertEquals(Error.METHOD_EXECUTION_FAILED, answer.get("Errors").get(0).get("type").asText());
+            assertFalse(answer.get("Ok").asBoolean());
+        }
+
+        // a parsed tree would hide a repeated key, so the keys are counted in the encoded answer
+        int okCount = 0;
+        String answer = new String(stream(new TestResultWriter(objectMapper, false), failedResult()), "UTF-8");
+        for (int index = answer.indexOf("\"Ok\""); index >= 0; index = answer.indexOf("\"Ok\"", index + 1)) {
+            okCount++;
+        }
+        assertEquals(1, okCount);
+    }
+
+    @Test
+    public void readOnlyTest() throws Exception {
+        final Map<String,Route> routes = new HashMap<>();
+        CustomerController controller = new CustomerController();
+
+        for (Method method : CustomerController.class.getMethods()) {
+            if (method.getAnnotation(MessageMethod.class) != null) {
+                routes.put(method.getName(), new Route(routes.size(), "customer", method, controller,
+                        jsonObjectMapper.getObjectMapper()));
+            }
+        }
+
+        CommandHandler commandHandler = new CommandHandler(jsonObjectMapper, null,
+                new RoutingTable(null, jsonObjectMapper) {
+                    @Override
+                    public Route getRoute(final String service, final String method) {
+                        return routes.get(method);
+                    }
+
+                    @Override
+                    public Route getRoute(final int id) {
+                        for (Route route : routes.values()) {
+                            if (route.getId() == id) {
+                                return route;
+                            }
+                        }
+                        return null;
+                    }
+                }, null, null, null);
+
+        int getCustomers = routes.get("getCustomers").getId();
+
+        // only results of read only methods are streamed, as the transaction stays open while they are sent
+        assertTrue(commandHandler.isReadOnly(message("{\"s\":\"customer\",\"m\":\"getCustomers\"}")));
+        assertTrue(commandHandler.isReadOnly(message("{\"r\":" + getCustomers + "}")));
+        assertFalse(commandHandler.isReadOnly(message("{\"s\":\"customer\",\"m\":\"importCustomers\"}")));
+        assertFalse(commandHandler.isReadOnly(message("{\"s\":\"customer\",\"m\":\"deleteCustomers\"}")));
+        assertFalse(commandHandler.isReadOnly(message("{\"b\":[{\"s\":\"customer\",\"m\":\"getCustomers\"}]}")));
+    }
+
+    private CommandMessage message(final String message) throws IOException {
+        try (JsonParser parser = jsonObjectMapper.getObjectMapperText().getFactory().createParser(message)) {
+            return CommandMessage.read(parser);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.annotations.MessageMethod;
+import de.oliverwetterau.neo4j.websockets.server.annotations.Param;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class RouteTests {
+    private static ObjectMapper objectMapper;
+
+    private final CustomerController controller = new CustomerController();
+
+    public static class Customer {
+        public String name;
+        public int age;
+    }
+
+    /**
+     * Returns the bound parameters of every call as result data.
+     */
+    public static class CustomerController {
+        private ResultWriter lastWriter;
+
+        @MessageMethod(readOnly = true)
+        public Result<Object> tree(final JsonNode parameters) {
+            return new Result<Object>(parameters);
+        }
+
+        @MessageMethod(readOnly = true)
+        public Result<Object> parser(final JsonParser parser) throws IOException {
+            return new Result<Object>(parser.readValueAsTree());
+        }
+
+        @MessageMethod
+        public Result<Object> value(final Customer customer) {
+            return new Result<Object>(customer.name + " " + customer.age);
+        }
+
+        @MessageMethod
+        public Result<Object> genericValue(final Map<String,List<Long>> ids) {
+            return new Result<Object>(ids.get("ids").get(0));
+        }
+
+        @MessageMethod
+        public Result<Object> primitiveValue(final long id) {
+            return new Result<Object>(id);
+        }
+
+        @MessageMethod
+        public Result<Object> named(@Param("name") final String name, @Param("age") final int age,
+                                    @Param("tags") final List<String> tags)
+        {
+            return new Result<Object>(name + " " + age + " " + tags);
+        }
+
+        @MessageMethod(readOnly = true)
+        public Result<Object> streamed(final JsonNode parameters, final ResultWriter resultWriter) {
+            lastWriter = resultWriter;
+            return new Result<Object>(Integer.valueOf(parameters.get("id").asInt()));
+        }
+
+        @MessageMethod(readOnly = true)
+        public Result<Object> namedStreamed(final ResultWriter resultWriter, @Param("id") final int id) {
+            lastWriter = resultWriter;
+            return new Result<Object>(Integer.valueOf(id));
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        objectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers()).getObjectMapperText();
+    }
+
+    private Route route(final String name) throws Exception {
+        for (Method method : CustomerController.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return new Route(0, "customer", method, controller, objectMapper);
+            }
+        }
+
+        throw new IllegalArgumentException(name);
+    }
+
+    private Object invoke(final String name, final String parameters, final ResultWriter resultWriter)
+            throws Throwable
+    {
+        String message = parameters == null
+                ? "{\"s\":\"customer\",\"m\":\"" + name + "\"}"
+                : "{\"s\":\"customer\",\"m\":\"" + name + "\",\"p\":" + parameters + "}";
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(message)) {
+            return route(name).invoke(CommandMessage.read(parser), objectMapper, resultWriter).getSingleData();
+        }
+    }
+
+    private Object invoke(final String name, final String parameters) throws Throwable {
+        return invoke(name, parameters, null);
+    }
+
+    @Test
+    public void routeTest() throws Exception {
+        Route route = route("tree");
+
+        assertEquals(0, route.getId());
+        assertEquals("customer", route.getService());
+        assertEquals("tree", route.getMethod());
+        assertTrue(route.getMessageMethod().readOnly());
+        assertFalse(route("value").getMessageMethod().readOnly());
+    }
+
+    @Test
+    public void treeBindingTest() throws Throwable {
+        assertEquals(objectMapper.readTree("{\"id\":1,\"tags\":[\"a\"]}"), invoke("tree", "{\"id\":1,\"tags\":[\"a\"]}"));
+        assertEquals(objectMapper.createObjectNode(), invoke("tree", null));
+    }
+
+    @Test
+    public void parserBindingTest() throws Throwable {
+        assertEquals(objectMapper.readTree("{\"id\":1,\"tags\":[\"a\"]}"),
+                invoke("parser", "{\"id\":1,\"tags\":[\"a\"]}"));
+        assertEquals(objectMapper.createObjectNode(), invoke("parser", null));
+    }
+
+    @Test
+    public void valueBindingTest() throws Throwable {
+        assertEquals("Anna 42", invoke("value", "{\"name\":\"Anna\",\"age\":42}"));
+        assertEquals(7L, invoke("genericValue", "{\"ids\":[7,8]}"));
+        assertEquals(5L, invoke("primitiveValue", "5"));
+
+        // a primitive parameter without a value gets its default value
+        assertEquals(0L, invoke("primitiveValue", "null"));
+    }
+
+    @Test
+    public void namedBindingTest() throws Throwable {
+        assertEquals("Anna 42 [a, b]",
+                invoke("named", "{\"tags\":[\"a\",\"b\"],\"unknown\":{\"x\":[1]},\"age\":42,\"name\":\"Anna\"}"));
+
+        // missing parameters are null or the default value of primitive types
+        assertEquals("Anna 0 null", invoke("named", "{\"name\":\"Anna\"}"));
+        assertEquals("null 0 null", invoke("named", null));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void namedBindingOfNoObjectTest() throws Throwable {
+        invoke("named", "[\"Anna\",42]");
+    }
+
+    @Test
+    public void resultWriterBindingTest() throws Throwable {
+        ResultWriter resultWriter = ResultWriter.collecting(objectMapper);
+
+        assertEquals(3, invoke("streamed", "{\"id\":3}", resultWriter));
+        assertSame(resultWriter, controller.lastWriter);
+
+        ResultWriter otherResultWriter = ResultWriter.collecting(objectMapper);
+
+        assertEquals(4, invoke("namedStreamed", "{\"id\":4}", otherResultWriter));
+        assertSame(otherResultWriter, controller.lastWriter);
+    }
+}
@@ -0,0 +1,190 @@
+package de.oliverwetterau.neo4j.websockets.server.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import de.oliverwetterau.neo4j.websockets.core.data.Error;
+import de.oliverwetterau.neo4j.websockets.core.data.Result;
+import de.oliverwetterau.neo4j.websockets.core.data.json.JsonObjectMapper;
+import de.oliverwetterau.neo4j.websockets.server.ApplicationSettings;
+import de.oliverwetterau.neo4j.websockets.server.annotations.AnnotationReader;
+import de.oliverwetterau.neo4j.websockets.server.annotations.MessageMethod;
+import de.oliverwetterau.neo4j.websockets.server.json.DefaultJsonObjectSerializers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by oliver on 23.12.15.
+ */
+public class RoutingTableTests {
+    private List<String> packageNames;
+
+    private JsonObjectMapper jsonObjectMapper;
+    private RoutingTable routingTable;
+    private CommandExecutor commandExecutor;
+
+    public static class CustomerController {
+        @MessageMethod(readOnly = true)
+        public Result<Object> getCustomer(final JsonNode parameters) {
+            return new Result<Object>("customer " + parameters.get("id").asInt());
+        }
+
+        @MessageMethod
+        public Result<Object> createCustomer(final JsonNode parameters) {
+            return new Result<Object>("created");
+        }
+    }
+
+    public static class OrderController {
+        @MessageMethod(readOnly = true)
+        public Result<Object> getOrder(final JsonNode parameters) {
+            return new Result<Object>("order");
+        }
+    }
+
+    public static class EmptyController {
+    }
+
+    /**
+     * Provides the controllers without scanning packages for annotated classes.
+     */
+    private static class TestAnnotationReader extends AnnotationReader {
+        private final Map<String,Object> controllers = new HashMap<>();
+
+        TestAnnotationReader() throws Exception {
+            super(null);
+
+            controllers.put("order", new OrderController());
+            controllers.put("customer", new CustomerController());
+            controllers.put("empty", new EmptyController());
+        }
+
+        @Override
+        public Object getServiceController(final String name) {
+            return controllers.get(name);
+        }
+
+        @Override
+        public Map<String,Map<String,Method>> getServiceMethods() {
+            Map<String,Map<String,Method>> serviceMethods = new HashMap<>();
+
+            for (Map.Entry<String,Object> controller : controllers.entrySet()) {
+                Map<String,Method> methods = new HashMap<>();
+
+                for (Method method : controller.getValue().getClass().getMethods()) {
+                    if (method.getAnnotation(MessageMethod.class) != null) {
+                        methods.put(method.getName(), method);
+                    }
+                }
+
+                serviceMethods.put(controller.getKey(), methods);
+            }
+
+            return serviceMethods;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        packageNames = ApplicationSettings.packageNames();
+        ApplicationSettings.setPackageNames(Collections.<String>emptyList());
+
+        jsonObjectMapper = new JsonObjectMapper(new DefaultJsonObjectSerializers());
+        routingTable = new RoutingTable(new TestAnnotationReader(), jsonObjectMapper);
+        commandExecutor = new CommandExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        commandExecutor.stop();
+        ApplicationSettings.setPackageNames(packageNames);
+    }
+
+    private Result handle(final String message) throws Exception {
+        CommandMessage commandMessage;
+
+        try (JsonParser parser = jsonObjectMapper.getObjectMapperText().getFactory().createParser(message)) {
+            commandMessage = CommandMessage.read(parser);
+        }
+
+        CommandHandler commandHandler = new CommandHandler(jsonObjectMapper, new DefaultThreadLocale(), routingTable,
+                null, null, commandExecutor);
+
+        return commandHandler.handleMessage(commandMessage,
+                ResultWriter.collecting(jsonObjectMapper.getObjectMapper()));
+    }
+
+    private static String errorType(final Result result) {
+        assertFalse(result.isOk());
+        return ((Error) result.getErrors().get(0)).getType();
+    }
+
+    @Test
+    public void routingTableTest() {
+        routingTable.init();
+
+        // services and methods are ordered by name
+        assertEquals(Arrays.asList("customer", "empty", "order"),
+                Arrays.asList(routingTable.getServices().keySet().toArray()));
+        assertEquals(Arrays.asList("createCustomer", "getCustomer"),
+                Arrays.asList(routingTable.getServices().get("customer").keySet().toArray()));
+        assertTrue(routingTable.getServices().get("empty").isEmpty());
+
+        assertTrue(routingTable.hasService("order"));
+        assertFalse(routingTable.hasService("invoice"));
+
+        Route route = routingTable.getRoute("customer", "getCustomer");
+        assertEquals("customer", route.getService());
+        assertEquals("getCustomer", route.getMethod());
+        assertTrue(route.getMessageMethod().readOnly());
+    }
+
+    @Test
+    public void routeIdTest() {
+        // ids are assigned in the order of service and method names
+        assertEquals(0, routingTable.getRoute("customer", "createCustomer").getId());
+        assertEquals(1, routingTable.getRoute("customer", "getCustomer").getId());
+        assertEquals(2, routingTable.getRoute("order", "getOrder").getId());
+
+        for (int id = 0; id < 3; id++) {
+            Route route = routingTable.getRoute(id);
+            assertSame(route, routingTable.getRoute(route.getService(), route.getMethod()));
+        }
+    }
+
+    @Test
+    public void unknownRouteTest() throws Exception {
+        assertNull(routingTable.getRoute(-1));
+        assertNull(routingTable.getRoute(3));
+        assertNull(routingTable.getRoute("customer", "deleteCustomer"));
+        assertNull(routingTable.getRoute("invoice", "getInvoice"));
+
+        assertEquals(Error.UNKNOWN_ROUTE, errorType(handle("{\"r\":3,\"p\":{\"id\":1}}")));
+        assertEquals(Error.UNKNOWN_ROUTE, errorType(handle("{\"r\":100,\"s\":\"customer\",\"m\":\"getCustomer\"}")));
+        assertEquals(Error.UNKNOWN_SERVICE_METHOD,
+                errorType(handle("{\"s\":\"customer\",\"m\":\"deleteCustomer\"}")));
+        assertEquals(Error.UNKNOWN_SERVICE, errorType(handle("{\"s\":\"invoice\",\"m\":\"getInvoice\"}")));
+        assertEquals(Error.SERVICE_HAS_NO_METHODS, errorType(handle("{\"s\":\"empty\",\"m\":\"getEmpty\"}")));
+    }
+
+    @Test
+    public void routedMessageTest() throws Exception {
+        // a route id takes the place of service and method name
+        assertEquals("customer 7", handle("{\"r\":1,\"p\":{\"id\":7}}").getSingleData());
+        assertEquals("customer 7",
+                handle("{\"s\":\"customer\",\"m\":\"getCustomer\",\"p\":{\"id\":7}}").getSingleData());
+    }
+}